@@ -0,0 +1,143 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two jmh json results (e.g. before and after a change) and lists the relative change of every benchmark.
+ * A change is a regression, if score got worse by more than threshold and more than the combined score errors.
+ *
+ * usage: BenchmarkReport baseline.json result.json [threshold]
+ * exits with 1 if a regression was found, so it can fail a build.
+ */
+public final class BenchmarkReport
+{
+  private static final double DEFAULT_THRESHOLD = 0.05;
+
+  private BenchmarkReport()
+  {
+    // no instances
+  }
+
+  public static void main(String[] args)
+    throws IOException
+  {
+    if(args.length < 2)
+    {
+      System.err.println("usage: BenchmarkReport <baseline.json> <result.json> [threshold]");
+      System.exit(2);
+    }
+    File baselineFile = new File(args[0]);
+    if(!baselineFile.exists())
+    {
+      System.err.println("baseline '" + baselineFile + "' not found, keep a result as baseline first.");
+      System.exit(2);
+    }
+    double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+
+    Map<String, JsonNode> baseline = read(baselineFile);
+    Map<String, JsonNode> result = read(new File(args[1]));
+
+    int regressions = 0;
+    System.out.println(String.format("%-90s %16s %16s %9s", "benchmark", "baseline", "result", "change"));
+    for(Map.Entry<String, JsonNode> entry : result.entrySet())
+    {
+      JsonNode metric = entry.getValue().get("primaryMetric");
+      double score = metric.get("score").asDouble();
+      String unit = metric.get("scoreUnit").asText();
+
+      JsonNode baselineEntry = baseline.get(entry.getKey());
+      if(baselineEntry == null)
+      {
+        System.out.println(String.format("%-90s %16s %16s %9s", entry.getKey(), "-", format(score, unit), "new"));
+        continue;
+      }
+      JsonNode baselineMetric = baselineEntry.get("primaryMetric");
+      double baselineScore = baselineMetric.get("score").asDouble();
+      double change = baselineScore != 0 ? (score - baselineScore) / baselineScore : 0;
+
+      // throughput: higher is better, all other modes measure time
+      boolean higherIsBetter = "thrpt".equals(entry.getValue().get("mode").asText());
+      double worse = higherIsBetter ? -change : change;
+      double errors = error(baselineMetric) + error(metric);
+      boolean regression = worse > threshold && Math.abs(score - baselineScore) > errors;
+      boolean improvement = -worse > threshold && Math.abs(score - baselineScore) > errors;
+      regressions += regression ? 1 : 0;
+
+      System.out.println(String.format("%-90s %16s %16s %+8.1f%% %s", entry.getKey(), format(baselineScore, unit), format(score, unit), change * 100,
+                                       regression ? "REGRESSION" : improvement ? "improved" : ""));
+    }
+    for(String key : baseline.keySet())
+    {
+      if(!result.containsKey(key))
+      {
+        System.out.println(String.format("%-90s %16s %16s %9s", key, "", "-", "missing"));
+      }
+    }
+
+    System.out.println(regressions + " regression(s), threshold " + Math.round(threshold * 100) + "%");
+    System.exit(regressions > 0 ? 1 : 0);
+  }
+
+  // benchmark name with params, e.g. 'CpuCheckerBenchmark.findLowest engine=NATIVE nonces=96000'
+  private static Map<String, JsonNode> read(File file)
+    throws IOException
+  {
+    Map<String, JsonNode> results = new LinkedHashMap<>();
+    for(JsonNode node : new ObjectMapper().readTree(file))
+    {
+      String benchmark = node.get("benchmark").asText();
+      StringBuilder key = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1));
+      JsonNode params = node.get("params");
+      if(params != null)
+      {
+        Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+        while(fields.hasNext())
+        {
+          Map.Entry<String, JsonNode> param = fields.next();
+          key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+        }
+      }
+      results.put(key.toString(), node);
+    }
+    return results;
+  }
+
+  private static double error(JsonNode metric)
+  {
+    double error = metric.path("scoreError").asDouble(0);
+    return Double.isNaN(error) ? 0 : error;
+  }
+
+  private static String format(double score, String unit)
+  {
+    return String.format("%.3f %s", score, unit);
+  }
+}
@@ -0,0 +1,524 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.benchmark;
+
+import burstcoin.jminer.core.CoreConfig;
+import burstcoin.jminer.core.network.event.NetworkStateChangeEvent;
+import burstcoin.jminer.core.reader.Reader;
+import burstcoin.jminer.core.reader.data.PlotDrive;
+import burstcoin.jminer.core.reader.event.ReaderDriveFinishEvent;
+import burstcoin.jminer.core.reader.event.ReaderDriveInterruptedEvent;
+import burstcoin.jminer.core.round.event.RoundFinishedEvent;
+import burstcoin.jminer.core.round.event.RoundSingleResultEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * End to end replay of mining rounds on a synthetic plot farm, to compare reader changes on one machine.
+ * Writes plot files (kept for next runs) and a jminer.properties for a local stub pool, then starts the mining core without
+ * network polling and drives round by a script of network state changes. Reports time to first deadline, round time and
+ * bytes read per drive and round, as counted by the reader.
+ *
+ * usage: RoundReplay [key=value ...], run in an empty work directory, jminer.properties is written there
+ *   farm:   drives=2 filesPerDrive=2 nonces=4096 stagger=0 (poc2) generatedNonces=0 (all, fewer nonces give sparse files)
+ *   replay: script=block,block,update,block@500,block timeout=600000 submitDelay=0
+ *   all other keys go to jminer.properties, e.g. readMode=MAPPED readerThreads=2 cpuEngine=java
+ *
+ * script steps: 'block' is a new block, 'update' a new generation signature on same block. A step waits for its round
+ * to finish, with '@ms' the next step starts after that time instead, interrupting the round if it is not finished.
+ */
+public final class RoundReplay
+{
+  private static final String PROPERTIES_MARKER = "written by RoundReplay";
+  private static final long FIRST_BLOCK_NUMBER = 500000;
+  private static final long TARGET_DEADLINE = Long.MAX_VALUE;
+
+  private static final Map<String, String> DEFAULT_OPTIONS = new LinkedHashMap<>();
+
+  static
+  {
+    DEFAULT_OPTIONS.put("drives", "2");
+    DEFAULT_OPTIONS.put("filesPerDrive", "2");
+    DEFAULT_OPTIONS.put("nonces", "4096");
+    DEFAULT_OPTIONS.put("stagger", "0");
+    DEFAULT_OPTIONS.put("generatedNonces", "0");
+    DEFAULT_OPTIONS.put("script", "block,block,update,block@500,block");
+    DEFAULT_OPTIONS.put("timeout", "600000");
+    DEFAULT_OPTIONS.put("submitDelay", "0");
+  }
+
+  private RoundReplay()
+  {
+    // no instances
+  }
+
+  public static void main(String[] args)
+    throws Exception
+  {
+    Map<String, String> options = new LinkedHashMap<>(DEFAULT_OPTIONS);
+    Properties jminerProperties = new Properties();
+    for(String arg : args)
+    {
+      int separator = arg.indexOf('=');
+      if(separator < 1)
+      {
+        System.err.println("usage: RoundReplay [key=value ...], options " + DEFAULT_OPTIONS + ", other keys are written to jminer.properties");
+        System.exit(2);
+      }
+      String key = arg.substring(0, separator);
+      String value = arg.substring(separator + 1);
+      if(options.containsKey(key))
+      {
+        options.put(key, value);
+      }
+      else
+      {
+        jminerProperties.setProperty(key, value);
+      }
+    }
+
+    Path workDirectory = Paths.get(System.getProperty("user.dir"));
+    Path propertiesFile = workDirectory.resolve("jminer.properties");
+    if(Files.exists(propertiesFile) && !isWrittenByReplay(propertiesFile))
+    {
+      System.err.println("'" + propertiesFile + "' was not written by RoundReplay, run it in an empty work directory.");
+      System.exit(2);
+    }
+
+    List<String> plotPaths = writePlotFarm(workDirectory.resolve("plots"), options);
+
+    StubPool pool = new StubPool(Long.parseLong(options.get("submitDelay")));
+    pool.start();
+
+    // core reads jminer.properties of work directory on first access, so it has to be written before
+    Properties properties = new Properties();
+    properties.setProperty("poolMining", "true");
+    properties.setProperty("poolServer", pool.getUrl());
+    properties.setProperty("numericAccountId", Long.toUnsignedString(SyntheticPlotData.ACCOUNT_ID));
+    properties.setProperty("plotPaths", String.join(",", plotPaths));
+    properties.setProperty("useOpenCl", "false");
+    // drive events are needed for report
+    properties.setProperty("showDriveInfo", "true");
+    properties.putAll(jminerProperties);
+    try(OutputStream out = Files.newOutputStream(propertiesFile))
+    {
+      properties.store(out, PROPERTIES_MARKER);
+    }
+
+    // core only, no command line runner, so network does not poll mining info
+    AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(CoreConfig.class);
+    ReplayRecorder recorder = new ReplayRecorder();
+    context.addApplicationListener(recorder);
+
+    List<RoundStats> rounds = replay(context, pool, recorder, options.get("script"), Long.parseLong(options.get("timeout")));
+    report(rounds, getDriveDirectories(context.getBean(Reader.class)), pool.getSubmittedNonces());
+
+    context.close();
+    pool.stop();
+
+    int timeouts = 0;
+    for(RoundStats round : rounds)
+    {
+      timeouts += round.isTimeout() ? 1 : 0;
+    }
+    // exit code tells, if rounds timed out
+    System.exit(timeouts > 0 ? 1 : 0);
+  }
+
+  private static boolean isWrittenByReplay(Path propertiesFile)
+    throws IOException
+  {
+    try(BufferedReader reader = Files.newBufferedReader(propertiesFile, StandardCharsets.ISO_8859_1))
+    {
+      String firstLine = reader.readLine();
+      return firstLine != null && firstLine.equals("#" + PROPERTIES_MARKER);
+    }
+  }
+
+  private static List<String> writePlotFarm(Path plotsDirectory, Map<String, String> options)
+    throws IOException
+  {
+    int drives = Integer.parseInt(options.get("drives"));
+    int filesPerDrive = Integer.parseInt(options.get("filesPerDrive"));
+    long nonces = Long.parseLong(options.get("nonces"));
+    long stagger = Long.parseLong(options.get("stagger"));
+    long generatedNonces = Long.parseLong(options.get("generatedNonces"));
+    generatedNonces = generatedNonces > 0 ? generatedNonces : nonces;
+
+    long startTime = System.currentTimeMillis();
+    List<String> plotPaths = new ArrayList<>();
+    long startNonce = 0;
+    for(int drive = 0; drive < drives; drive++)
+    {
+      Path directory = plotsDirectory.resolve("drive" + drive).toAbsolutePath();
+      Set<Path> plotFiles = new HashSet<>();
+      for(int file = 0; file < filesPerDrive; file++)
+      {
+        Path plotFile = SyntheticPlotFarm.writePlotFile(directory, SyntheticPlotData.ACCOUNT_ID, startNonce, nonces, stagger, generatedNonces);
+        System.out.println("plot file: " + plotFile);
+        plotFiles.add(plotFile);
+        startNonce += nonces;
+      }
+      // plot files of previous runs with other farm options would overlap nonces
+      try(DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory))
+      {
+        for(Path path : directoryStream)
+        {
+          if(!plotFiles.contains(path))
+          {
+            System.out.println("removed plot file of previous run: " + path);
+            Files.delete(path);
+          }
+        }
+      }
+      plotPaths.add(directory.toString());
+    }
+    System.out.println("plot farm ready in " + (System.currentTimeMillis() - startTime) + " ms");
+    return plotPaths;
+  }
+
+  private static List<RoundStats> replay(AnnotationConfigApplicationContext context, StubPool pool, ReplayRecorder recorder, String script,
+                                         long timeout)
+    throws InterruptedException
+  {
+    List<RoundStats> rounds = new ArrayList<>();
+    long blockNumber = FIRST_BLOCK_NUMBER;
+    for(String step : script.split(","))
+    {
+      String[] parts = step.trim().split("@");
+      String type = parts[0];
+      long delay = parts.length > 1 ? Long.parseLong(parts[1]) : 0;
+      if("block".equals(type))
+      {
+        blockNumber++;
+      }
+      else if(!"update".equals(type) || rounds.isEmpty())
+      {
+        throw new IllegalArgumentException("unknown script step '" + step + "', expected 'block' first, then 'block' or 'update' (with optional '@ms')");
+      }
+
+      // every step has its own generation signature, so no round is skipped as already mined
+      byte[] generationSignature = SyntheticPlotData.generationSignature(rounds.size() + 1);
+      pool.setMiningInfo(blockNumber, generationSignature, SyntheticPlotData.BASE_TARGET, TARGET_DEADLINE);
+
+      RoundStats round = recorder.start(step.trim(), blockNumber, generationSignature);
+      rounds.add(round);
+      context.publishEvent(new NetworkStateChangeEvent(blockNumber, SyntheticPlotData.BASE_TARGET, generationSignature, TARGET_DEADLINE));
+      if(!round.awaitFinished(delay > 0 ? delay : timeout) && delay <= 0)
+      {
+        round.timeout();
+      }
+    }
+    return rounds;
+  }
+
+  private static Set<String> getDriveDirectories(Reader reader)
+  {
+    Set<String> directories = new TreeSet<>();
+    for(PlotDrive plotDrive : reader.getPlots().getPlotDrives())
+    {
+      directories.add(plotDrive.getDirectory());
+    }
+    return directories;
+  }
+
+  private static void report(List<RoundStats> rounds, Set<String> driveDirectories, int submittedNonces)
+  {
+    System.out.println();
+    System.out.println(String.format("%-4s %-14s %10s %12s %12s %10s %20s  %s", "#", "step", "block", "first dl", "round", "deadlines", "best dl", "status"));
+    long firstDeadlineSum = 0;
+    long roundTimeSum = 0;
+    int finishedRounds = 0;
+    for(int i = 0; i < rounds.size(); i++)
+    {
+      RoundStats round = rounds.get(i);
+      System.out.println(String.format("%-4d %-14s %10d %12s %12s %10d %20s  %s", i + 1, round.getStep(), round.getBlockNumber(),
+                                       formatTime(round.getFirstDeadlineTime()), formatTime(round.getRoundTime()), round.getDeadlines(),
+                                       round.getBestDeadline() == Long.MAX_VALUE ? "N/A" : String.valueOf(round.getBestDeadline()),
+                                       round.getStatus()));
+      if(round.isFinished() && round.getFirstDeadlineTime() >= 0)
+      {
+        firstDeadlineSum += round.getFirstDeadlineTime();
+        roundTimeSum += round.getRoundTime();
+        finishedRounds++;
+      }
+    }
+
+    System.out.println();
+    System.out.println(String.format("%-4s %-60s %12s %12s %14s", "#", "drive", "read", "time", "throughput"));
+    for(int i = 0; i < rounds.size(); i++)
+    {
+      RoundStats round = rounds.get(i);
+      Map<String, Long> driveTimes = round.getDriveTimes();
+      Map<String, Long> driveReadBytes = round.getDriveReadBytes();
+      Set<String> interruptedDrives = round.getInterruptedDrives();
+      for(String directory : driveDirectories)
+      {
+        // parts of an interrupted drive may have finished, their bytes are no complete read
+        boolean interrupted = interruptedDrives.contains(directory);
+        Long time = interrupted ? null : driveTimes.get(directory);
+        Long readBytes = time == null ? null : driveReadBytes.get(directory);
+        String throughput = time == null || time == 0 ? "-" : String.format("%.1f MiB/s", readBytes * 1000d / time / 1024 / 1024);
+        String status = time == null ? (interrupted ? "interrupted" : "not finished") : formatTime(time);
+        System.out.println(String.format("%-4d %-60s %12s %12s %14s", i + 1, directory, readBytes == null ? "-" : formatBytes(readBytes), status,
+                                         throughput));
+      }
+    }
+
+    System.out.println();
+    System.out.println("finished rounds: " + finishedRounds + "/" + rounds.size() + ", submitted nonces: " + submittedNonces);
+    if(finishedRounds > 0)
+    {
+      System.out.println("mean time to first deadline: " + formatTime(firstDeadlineSum / finishedRounds)
+                         + ", mean round time: " + formatTime(roundTimeSum / finishedRounds));
+    }
+  }
+
+  private static String formatTime(long millis)
+  {
+    return millis < 0 ? "-" : millis + " ms";
+  }
+
+  // small farms read less than 1 MiB per drive, alignment differences need KiB then
+  private static String formatBytes(long bytes)
+  {
+    return bytes < 1024 * 1024 ? String.format("%.1f KiB", bytes / 1024d) : String.format("%.1f MiB", bytes / 1024d / 1024d);
+  }
+
+  /* records events of the round of current script step, late events of previous rounds (also on same block) are ignored */
+  private static final class ReplayRecorder
+    implements ApplicationListener<ApplicationEvent>
+  {
+    private final AtomicReference<RoundStats> current = new AtomicReference<>();
+
+    private RoundStats start(String step, long blockNumber, byte[] generationSignature)
+    {
+      RoundStats round = new RoundStats(step, blockNumber, generationSignature);
+      current.set(round);
+      return round;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event)
+    {
+      RoundStats round = current.get();
+      if(round == null)
+      {
+        return;
+      }
+      if(event instanceof RoundSingleResultEvent)
+      {
+        RoundSingleResultEvent resultEvent = (RoundSingleResultEvent) event;
+        if(round.isRound(resultEvent.getBlockNumber(), resultEvent.getGenerationSignature()))
+        {
+          round.deadline();
+        }
+      }
+      else if(event instanceof ReaderDriveFinishEvent)
+      {
+        ReaderDriveFinishEvent driveFinishEvent = (ReaderDriveFinishEvent) event;
+        if(round.isRound(driveFinishEvent.getBlockNumber(), driveFinishEvent.getGenerationSignature()))
+        {
+          round.driveFinished(driveFinishEvent.getDirectory(), driveFinishEvent.getReadBytes(), driveFinishEvent.getTime());
+        }
+      }
+      else if(event instanceof ReaderDriveInterruptedEvent)
+      {
+        ReaderDriveInterruptedEvent driveInterruptedEvent = (ReaderDriveInterruptedEvent) event;
+        if(round.isRound(driveInterruptedEvent.getBlockNumber(), driveInterruptedEvent.getGenerationSignature()))
+        {
+          round.driveInterrupted(driveInterruptedEvent.getDirectory());
+        }
+      }
+      else if(event instanceof RoundFinishedEvent)
+      {
+        RoundFinishedEvent finishedEvent = (RoundFinishedEvent) event;
+        if(round.isRound(finishedEvent.getBlockNumber(), finishedEvent.getGenerationSignature()))
+        {
+          round.finished(finishedEvent.getBestCommittedDeadline());
+        }
+      }
+    }
+  }
+
+  private static final class RoundStats
+  {
+    private final String step;
+    private final long blockNumber;
+    // every step has its own, so rounds on same block are told apart
+    private final byte[] generationSignature;
+    private final long startTime;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    // drives may be split into parts of same directory, the slowest part counts
+    private final Map<String, Long> driveTimes = new LinkedHashMap<>();
+    // bytes of parts are summed up
+    private final Map<String, Long> driveReadBytes = new LinkedHashMap<>();
+    private final Set<String> interruptedDrives = new HashSet<>();
+
+    private long firstDeadlineTime = -1;
+    private long roundTime = -1;
+    private int deadlines;
+    private long bestDeadline = Long.MAX_VALUE;
+    private boolean timeout;
+
+    private RoundStats(String step, long blockNumber, byte[] generationSignature)
+    {
+      this.step = step;
+      this.blockNumber = blockNumber;
+      this.generationSignature = generationSignature;
+      startTime = System.nanoTime();
+    }
+
+    private boolean isRound(long blockNumber, byte[] generationSignature)
+    {
+      return this.blockNumber == blockNumber && Arrays.equals(this.generationSignature, generationSignature);
+    }
+
+    private synchronized void deadline()
+    {
+      if(firstDeadlineTime < 0)
+      {
+        firstDeadlineTime = elapsed();
+      }
+      deadlines++;
+    }
+
+    private synchronized void driveFinished(String directory, long readBytes, long time)
+    {
+      driveTimes.merge(directory, time, Math::max);
+      driveReadBytes.merge(directory, readBytes, Long::sum);
+    }
+
+    private synchronized void driveInterrupted(String directory)
+    {
+      interruptedDrives.add(directory);
+    }
+
+    private synchronized void finished(long bestCommittedDeadline)
+    {
+      if(roundTime < 0)
+      {
+        roundTime = elapsed();
+        bestDeadline = bestCommittedDeadline;
+        finished.countDown();
+      }
+    }
+
+    private boolean awaitFinished(long millis)
+      throws InterruptedException
+    {
+      return finished.await(millis, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void timeout()
+    {
+      timeout = true;
+    }
+
+    private long elapsed()
+    {
+      return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    }
+
+    private String getStep()
+    {
+      return step;
+    }
+
+    private long getBlockNumber()
+    {
+      return blockNumber;
+    }
+
+    private synchronized long getFirstDeadlineTime()
+    {
+      return firstDeadlineTime;
+    }
+
+    private synchronized long getRoundTime()
+    {
+      return roundTime;
+    }
+
+    private synchronized int getDeadlines()
+    {
+      return deadlines;
+    }
+
+    private synchronized long getBestDeadline()
+    {
+      return bestDeadline;
+    }
+
+    private synchronized Map<String, Long> getDriveTimes()
+    {
+      return new LinkedHashMap<>(driveTimes);
+    }
+
+    private synchronized Map<String, Long> getDriveReadBytes()
+    {
+      return new LinkedHashMap<>(driveReadBytes);
+    }
+
+    private synchronized Set<String> getInterruptedDrives()
+    {
+      return new HashSet<>(interruptedDrives);
+    }
+
+    private synchronized boolean isFinished()
+    {
+      return roundTime >= 0;
+    }
+
+    private synchronized boolean isTimeout()
+    {
+      return timeout;
+    }
+
+    private synchronized String getStatus()
+    {
+      return isFinished() ? "finished" : timeout ? "timeout" : "interrupted";
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.benchmark;
+
+import nxt.util.Convert;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for pool and wallet: serves current mining info and accepts every submitted nonce with the deadline the miner
+ * calculated. Submits can be delayed to simulate pool latency. Other requests are answered with an error, like unknown ones on a pool.
+ */
+public class StubPool
+{
+  private final Server server;
+  private final long submitDelay;
+  private final AtomicInteger submittedNonces = new AtomicInteger();
+
+  private volatile String miningInfo = "{\"errorCode\":\"5\",\"errorDescription\":\"no mining info yet\"}";
+
+  public StubPool(long submitDelay)
+  {
+    this.submitDelay = submitDelay;
+    server = new Server(0);
+    server.setHandler(new AbstractHandler()
+    {
+      @Override
+      public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+        throws IOException
+      {
+        response.setContentType("application/json");
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.getWriter().write(respond(request));
+        baseRequest.setHandled(true);
+      }
+    });
+  }
+
+  public void start()
+    throws Exception
+  {
+    server.start();
+  }
+
+  public void stop()
+    throws Exception
+  {
+    server.stop();
+  }
+
+  public String getUrl()
+  {
+    return "http://localhost:" + ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+  }
+
+  public void setMiningInfo(long blockNumber, byte[] generationSignature, long baseTarget, long targetDeadline)
+  {
+    miningInfo = "{\"height\":\"" + blockNumber + "\",\"generationSignature\":\"" + Convert.toHexString(generationSignature) + "\","
+                 + "\"baseTarget\":\"" + baseTarget + "\",\"targetDeadline\":" + targetDeadline + "}";
+  }
+
+  public int getSubmittedNonces()
+  {
+    return submittedNonces.get();
+  }
+
+  private String respond(HttpServletRequest request)
+  {
+    String requestType = request.getParameter("requestType");
+    if("getMiningInfo".equals(requestType))
+    {
+      return miningInfo;
+    }
+    if("submitNonce".equals(requestType))
+    {
+      submittedNonces.incrementAndGet();
+      if(submitDelay > 0)
+      {
+        try
+        {
+          Thread.sleep(submitDelay);
+        }
+        catch(InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return "{\"result\":\"success\",\"deadline\":" + request.getHeader("X-Deadline") + "}";
+    }
+    return "{\"errorCode\":\"1\",\"errorDescription\":\"requestType '" + requestType + "' not supported by stub pool\"}";
+  }
+}
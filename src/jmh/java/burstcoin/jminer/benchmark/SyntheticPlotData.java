@@ -0,0 +1,61 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic inputs for benchmarks, same seed gives same data on every run.
+ * Hashing cost does not depend on content, so scoops are random bytes instead of generated plots.
+ */
+public final class SyntheticPlotData
+{
+  public static final long ACCOUNT_ID = 1234567890123456789L;
+  public static final long BASE_TARGET = 70312L;
+
+  private SyntheticPlotData()
+  {
+    // no instances
+  }
+
+  public static byte[] generationSignature(long seed)
+  {
+    byte[] generationSignature = new byte[32];
+    new Random(seed).nextBytes(generationSignature);
+    return generationSignature;
+  }
+
+  /* direct buffer with scoops of given number of nonces, like a chunk part read by reader */
+  public static ByteBuffer scoops(int nonces, long seed)
+  {
+    return fill(ByteBuffer.allocateDirect(nonces * 64), seed);
+  }
+
+  public static ByteBuffer fill(ByteBuffer buffer, long seed)
+  {
+    byte[] bytes = new byte[buffer.remaining()];
+    new Random(seed).nextBytes(bytes);
+    buffer.duplicate().put(bytes);
+    return buffer;
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.benchmark;
+
+import pocminer.generate.MiningPlot;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.stream.IntStream;
+
+/**
+ * Writes small plot files with real MiningPlot contents, named 'accountId_startNonce_nonces[_stagger]' like the ones of plotters.
+ * Files are sparse if only some of their nonces are generated: they have full size, but the rest of the nonces are holes (zeros),
+ * which are read without disk access by most file systems, so use them to measure pipeline and checker, not disk throughput.
+ */
+public final class SyntheticPlotFarm
+{
+  // nonces generated at once, 16 MiB of plot data
+  private static final int BATCH_NONCES = 64;
+  private static final String PLOTTING_EXTENSION = ".plotting";
+
+  private SyntheticPlotFarm()
+  {
+    // no instances
+  }
+
+  /**
+   * Writes plot file, if it does not exist already with expected size.
+   *
+   * @param directory the directory of plot file
+   * @param accountId the numeric account id
+   * @param startNonce the first nonce
+   * @param nonces the number of nonces
+   * @param stagger the stagger of a poc1 plot file, 0 for poc2
+   * @param generatedNonces the number of nonces with content, others are left sparse
+   * @return the path of plot file
+   * @throws IOException on write errors
+   */
+  public static Path writePlotFile(Path directory, long accountId, long startNonce, long nonces, long stagger, long generatedNonces)
+    throws IOException
+  {
+    boolean poc2 = stagger <= 0;
+    long chunkNonces = poc2 ? nonces : stagger;
+    if(nonces % chunkNonces != 0)
+    {
+      throw new IllegalArgumentException("nonces '" + nonces + "' have to be a multiple of stagger '" + stagger + "'");
+    }
+
+    String filename = Long.toUnsignedString(accountId) + "_" + startNonce + "_" + nonces + (poc2 ? "" : "_" + stagger);
+    Path plotFile = directory.resolve(filename);
+    long size = nonces * MiningPlot.PLOT_SIZE;
+    if(Files.exists(plotFile) && Files.size(plotFile) == size)
+    {
+      return plotFile;
+    }
+
+    // renamed when complete, an aborted run never leaves a plot file that looks finished
+    Files.createDirectories(directory);
+    Path plottingFile = directory.resolve(filename + PLOTTING_EXTENSION);
+    try(RandomAccessFile file = new RandomAccessFile(plottingFile.toFile(), "rw"))
+    {
+      file.setLength(size);
+      FileChannel channel = file.getChannel();
+      long noncesToGenerate = Math.min(nonces, generatedNonces);
+      for(long nonce = 0; nonce < noncesToGenerate; )
+      {
+        // a batch never spans two chunks, so its scoops are in a row
+        int batchNonces = (int) Math.min(Math.min(BATCH_NONCES, noncesToGenerate - nonce), chunkNonces - nonce % chunkNonces);
+        writeBatch(channel, accountId, startNonce, nonce, batchNonces, chunkNonces, poc2);
+        nonce += batchNonces;
+      }
+      channel.force(false);
+    }
+    return Files.move(plottingFile, plotFile, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private static void writeBatch(FileChannel channel, long accountId, long startNonce, long firstNonce, int batchNonces, long chunkNonces,
+                                 boolean poc2)
+    throws IOException
+  {
+    MiningPlot[] plots = new MiningPlot[batchNonces];
+    IntStream.range(0, batchNonces).parallel().forEach(i -> plots[i] = new MiningPlot(accountId, startNonce + firstNonce + i));
+
+    long chunkPosition = firstNonce / chunkNonces * chunkNonces * MiningPlot.PLOT_SIZE;
+    long noncePosition = firstNonce % chunkNonces * MiningPlot.SCOOP_SIZE;
+    ByteBuffer scoops = ByteBuffer.allocate(batchNonces * MiningPlot.SCOOP_SIZE);
+    for(int scoopNumber = 0; scoopNumber < MiningPlot.SCOOPS_PER_PLOT; scoopNumber++)
+    {
+      // poc2 takes second hash from mirror scoop
+      int mirrorNumber = poc2 ? MiningPlot.SCOOPS_PER_PLOT - 1 - scoopNumber : scoopNumber;
+      scoops.clear();
+      for(MiningPlot plot : plots)
+      {
+        scoops.put(plot.data, scoopNumber * MiningPlot.SCOOP_SIZE, MiningPlot.HASH_SIZE);
+        scoops.put(plot.data, mirrorNumber * MiningPlot.SCOOP_SIZE + MiningPlot.HASH_SIZE, MiningPlot.HASH_SIZE);
+      }
+      scoops.flip();
+      long position = chunkPosition + scoopNumber * chunkNonces * MiningPlot.SCOOP_SIZE + noncePosition;
+      while(scoops.hasRemaining())
+      {
+        position += channel.write(scoops, position);
+      }
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.checker.util;
+
+import burstcoin.jminer.benchmark.SyntheticPlotData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Host side overhead of handing a chunk part to a device: scheduler picks a worker, callbacks are wrapped and called.
+ * Workers answer immediately, so no device (openCL) is needed and only jminer code is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class CheckerSchedulerBenchmark
+{
+  // e.g. multiple gpu
+  @Param({"1", "3"})
+  private int workers;
+
+  private CheckerScheduler scheduler;
+  private byte[] generationSignature;
+  private ByteBuffer scoops;
+
+  @Setup
+  public void setup()
+  {
+    List<CheckerWorker> checkerWorkers = new ArrayList<>();
+    for(int i = 0; i < workers; i++)
+    {
+      checkerWorkers.add(new ImmediateWorker("worker-" + i));
+    }
+    scheduler = new CheckerScheduler(checkerWorkers);
+    generationSignature = SyntheticPlotData.generationSignature(1);
+    scoops = SyntheticPlotData.scoops(4096, 2);
+  }
+
+  @Benchmark
+  public void findLowest(Blackhole blackhole)
+    throws InterruptedException
+  {
+    scheduler.findLowest(generationSignature, scoops.duplicate(), null, new CheckCallback()
+    {
+      @Override
+      public void onResult(int lowestNonce, long result)
+      {
+        blackhole.consume(result);
+      }
+
+      @Override
+      public void onError(String message)
+      {
+        throw new IllegalStateException(message);
+      }
+    });
+  }
+
+  private static class ImmediateWorker
+    implements CheckerWorker
+  {
+    private final String name;
+
+    ImmediateWorker(String name)
+    {
+      this.name = name;
+    }
+
+    @Override
+    public String getName()
+    {
+      return name;
+    }
+
+    @Override
+    public void findLowest(byte[] gensig, ByteBuffer data, ByteBuffer mirror, CheckCallback callback)
+    {
+      callback.onResult(0, data.getLong(0));
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.checker.util;
+
+import burstcoin.jminer.benchmark.SyntheticPlotData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pocminer.generate.MiningPlot;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checking one chunk part on CPU, poc2 and poc1 (second hashes from mirror scoops).
+ * 'mergeThenFindLowest' is the former way for poc1, merging mirror into scoops on reader before check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CpuCheckerBenchmark
+{
+  @Param({"NATIVE", "JAVA"})
+  private CpuEngine engine;
+
+  // 1 thread, or '0' for all cores (like 'cpuThreads')
+  @Param({"1", "0"})
+  private int threads;
+
+  // default chunkPartNonces for CPU mining
+  @Param({"96000"})
+  private int nonces;
+
+  private CpuChecker cpuChecker;
+  private byte[] generationSignature;
+  private ByteBuffer scoops;
+  private ByteBuffer mirrorScoops;
+  private ByteBuffer mergedScoops;
+
+  @Setup
+  public void setup()
+  {
+    CpuChecker engineChecker = CpuEngine.NATIVE.equals(engine) ? new ShaLibChecker() : new JavaChecker();
+    int cpuThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    cpuChecker = cpuThreads > 1 ? new ParallelCpuChecker(engineChecker, cpuThreads) : engineChecker;
+
+    generationSignature = SyntheticPlotData.generationSignature(1);
+    scoops = SyntheticPlotData.scoops(nonces, 2);
+    mirrorScoops = SyntheticPlotData.scoops(nonces, 3);
+    mergedScoops = ByteBuffer.allocateDirect(scoops.capacity());
+  }
+
+  @Benchmark
+  public LowestResult findLowest()
+  {
+    return cpuChecker.findLowest(generationSignature, scoops.duplicate());
+  }
+
+  @Benchmark
+  public LowestResult findLowestWithMirror()
+  {
+    return cpuChecker.findLowest(generationSignature, scoops.duplicate(), mirrorScoops.duplicate());
+  }
+
+  @Benchmark
+  public LowestResult mergeThenFindLowest()
+  {
+    mergedScoops.clear();
+    mergedScoops.put(scoops.duplicate()).clear();
+    // copy every other 32 bytes from mirror scoops
+    for(int pos = 0; pos < nonces; pos++)
+    {
+      int copyPosition = pos * MiningPlot.SCOOP_SIZE + MiningPlot.HASH_SIZE;
+      for(int offset = 0; offset < MiningPlot.HASH_SIZE; offset += 8)
+      {
+        mergedScoops.putLong(copyPosition + offset, mirrorScoops.getLong(copyPosition + offset));
+      }
+    }
+    return cpuChecker.findLowest(generationSignature, mergedScoops.duplicate());
+  }
+}
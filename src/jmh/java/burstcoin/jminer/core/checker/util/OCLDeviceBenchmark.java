@@ -0,0 +1,127 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.checker.util;
+
+import burstcoin.jminer.benchmark.SyntheticPlotData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Round trip of one chunk part on an openCL device: transfer from pinned host memory, kernels, result callback.
+ * Needs an openCL platform, select device by '-p platformId=0 -p deviceId=0', setup fails without.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OCLDeviceBenchmark
+{
+  @Param({"0"})
+  private int platformId;
+
+  @Param({"0"})
+  private int deviceId;
+
+  // default chunkPartNonces
+  @Param({"960000"})
+  private int nonces;
+
+  private OCLDevice device;
+  private byte[] generationSignature;
+  private ByteBuffer scoops;
+  private ByteBuffer mirrorScoops;
+
+  @Setup
+  public void setup()
+  {
+    device = new OCLDevice(platformId, deviceId, Runnable::run);
+    generationSignature = SyntheticPlotData.generationSignature(1);
+    // pinned memory, like part buffers of reader
+    scoops = SyntheticPlotData.fill(device.allocate(nonces * 64), 2);
+    mirrorScoops = SyntheticPlotData.fill(device.allocate(nonces * 64), 3);
+  }
+
+  @TearDown
+  public void tearDown()
+    throws InterruptedException
+  {
+    device.free(scoops);
+    device.free(mirrorScoops);
+    device.release();
+  }
+
+  @Benchmark
+  public long findLowest()
+    throws InterruptedException
+  {
+    return check(null);
+  }
+
+  @Benchmark
+  public long findLowestWithMirror()
+    throws InterruptedException
+  {
+    return check(mirrorScoops.duplicate());
+  }
+
+  private long check(ByteBuffer mirror)
+    throws InterruptedException
+  {
+    CountDownLatch done = new CountDownLatch(1);
+    AtomicLong lowest = new AtomicLong();
+    device.findLowest(generationSignature, scoops.duplicate(), mirror, new CheckCallback()
+    {
+      @Override
+      public void onResult(int lowestNonce, long result)
+      {
+        lowest.set(result);
+        done.countDown();
+      }
+
+      @Override
+      public void onError(String message)
+      {
+        done.countDown();
+        throw new IllegalStateException(message);
+      }
+    });
+    done.await();
+    return lowest.get();
+  }
+}
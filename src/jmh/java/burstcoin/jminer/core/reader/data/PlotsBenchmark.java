@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.reader.data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups done for every result (plot file of chunk part) and per plot scan (building the index).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlotsBenchmark
+{
+  @Param({"8"})
+  private int drives;
+
+  // 8 drives * 32 files of ~244GiB -> ~62TiB
+  @Param({"32"})
+  private int filesPerDrive;
+
+  @Param({"1000000"})
+  private long noncesPerFile;
+
+  @Param({"96000"})
+  private long chunkPartNonces;
+
+  private Collection<PlotDrive> plotDrives;
+  private Plots plots;
+  private long[] chunkPartStartNonces;
+  private long[] plotFileStartNonces;
+  private int next;
+
+  @Setup
+  public void setup()
+  {
+    plotDrives = SyntheticPlots.createDrives(drives, filesPerDrive, noncesPerFile, chunkPartNonces);
+    plots = new Plots(plotDrives);
+
+    ChunkPartIndex index = plots.getChunkPartIndex();
+    chunkPartStartNonces = new long[index.size()];
+    for(int i = 0; i < chunkPartStartNonces.length; i++)
+    {
+      chunkPartStartNonces[i] = index.getStartNonce(i);
+    }
+    plotFileStartNonces = new long[drives * filesPerDrive];
+    for(int i = 0; i < plotFileStartNonces.length; i++)
+    {
+      plotFileStartNonces[i] = i * noncesPerFile;
+    }
+  }
+
+  @Benchmark
+  public PlotFile getPlotFileByChunkPartStartNonce()
+  {
+    next = (next + 1) % chunkPartStartNonces.length;
+    return plots.getPlotFileByChunkPartStartNonce(chunkPartStartNonces[next]);
+  }
+
+  @Benchmark
+  public PlotFile getPlotFileByPlotFileStartNonce()
+  {
+    next = (next + 1) % plotFileStartNonces.length;
+    return plots.getPlotFileByPlotFileStartNonce(plotFileStartNonces[next]);
+  }
+
+  @Benchmark
+  public int indexOfNonce()
+  {
+    next = (next + 1) % chunkPartStartNonces.length;
+    return plots.getChunkPartIndex().indexOfNonce(chunkPartStartNonces[next] + 1);
+  }
+
+  @Benchmark
+  public ChunkPartIndex createChunkPartIndex()
+  {
+    return new ChunkPartIndex(plotDrives);
+  }
+}
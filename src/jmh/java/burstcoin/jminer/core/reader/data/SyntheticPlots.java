@@ -0,0 +1,65 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.reader.data;
+
+import burstcoin.jminer.benchmark.SyntheticPlotData;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Plots of synthetic poc2 plot files, named like real ones, files are never opened.
+ */
+public final class SyntheticPlots
+{
+  private SyntheticPlots()
+  {
+    // no instances
+  }
+
+  public static Plots create(int drives, int filesPerDrive, long noncesPerFile, long chunkPartNonces)
+  {
+    return new Plots(createDrives(drives, filesPerDrive, noncesPerFile, chunkPartNonces));
+  }
+
+  static Collection<PlotDrive> createDrives(int drives, int filesPerDrive, long noncesPerFile, long chunkPartNonces)
+  {
+    List<PlotDrive> plotDrives = new ArrayList<>();
+    long startNonce = 0;
+    for(int drive = 0; drive < drives; drive++)
+    {
+      String directory = "/synthetic/drive" + drive;
+      List<PlotFile> plotFiles = new ArrayList<>();
+      for(int file = 0; file < filesPerDrive; file++)
+      {
+        Path path = Paths.get(directory, SyntheticPlotData.ACCOUNT_ID + "_" + startNonce + "_" + noncesPerFile);
+        plotFiles.add(new PlotFile(path, chunkPartNonces));
+        startNonce += noncesPerFile;
+      }
+      plotDrives.add(new PlotDrive(directory, plotFiles));
+    }
+    return plotDrives;
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.round;
+
+import burstcoin.jminer.benchmark.SyntheticPlotData;
+import burstcoin.jminer.core.reader.data.ChunkPartIndex;
+import burstcoin.jminer.core.reader.data.Plots;
+import burstcoin.jminer.core.reader.data.SyntheticPlots;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per round work of Round: scoop number of new block and handling the result of every chunk part
+ * (deadline, lowest result, finished chunk parts), without network and events.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoundBenchmark
+{
+  private Plots plots;
+  private byte[] generationSignature;
+  private long[] chunkPartStartNonces;
+  private long[] results;
+  private long blockNumber = 500000;
+
+  @Setup
+  public void setup()
+  {
+    plots = SyntheticPlots.create(8, 32, 1000000, 96000);
+    generationSignature = SyntheticPlotData.generationSignature(1);
+
+    ChunkPartIndex index = plots.getChunkPartIndex();
+    chunkPartStartNonces = new long[index.size()];
+    results = new long[index.size()];
+    Random random = new Random(2);
+    for(int i = 0; i < chunkPartStartNonces.length; i++)
+    {
+      chunkPartStartNonces[i] = index.getStartNonce(i);
+      results[i] = random.nextLong();
+    }
+  }
+
+  @Benchmark
+  public int calcScoopNumber()
+  {
+    return Round.calcScoopNumber(blockNumber++, generationSignature);
+  }
+
+  /* results of all chunk parts of a round, like Round.handleMessage(CheckerResultEvent) */
+  @Benchmark
+  public long handleRoundResults()
+  {
+    RoundState roundState = new RoundState(blockNumber, generationSignature, SyntheticPlotData.BASE_TARGET, Long.MAX_VALUE, plots);
+    long bestDeadline = Long.MAX_VALUE;
+    for(int i = 0; i < chunkPartStartNonces.length; i++)
+    {
+      long deadline = Long.divideUnsigned(results[i], roundState.getBaseTarget());
+      if(roundState.updateLowest(results[i]) && deadline < bestDeadline)
+      {
+        bestDeadline = deadline;
+      }
+      roundState.finishChunkPart(chunkPartStartNonces[i]);
+    }
+    return roundState.getNumberOfRunningChunkParts() == 0 ? bestDeadline : -1;
+  }
+}
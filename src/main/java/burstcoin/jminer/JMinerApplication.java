@@ -23,6 +23,7 @@
 package burstcoin.jminer;
 
 import burstcoin.jminer.core.CoreProperties;
+import burstcoin.jminer.core.converter.PlotConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.Banner;
@@ -32,6 +33,9 @@ import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -40,6 +44,8 @@ public class JMinerApplication
 {
   private static final Logger LOG = LoggerFactory.getLogger(JMinerApplication.class);
 
+  private static final String CONVERT_COMMAND = "convert";
+
   private static double JAVA_VERSION;
 
   static
@@ -59,6 +65,10 @@ public class JMinerApplication
       LOG.error("java version '" + JAVA_VERSION + "' is not supported!");
       LOG.error("Uninstall your java '" + JAVA_VERSION + "' and install Java8!");
     }
+    else if(args.length > 0 && CONVERT_COMMAND.equals(args[0]))
+    {
+      convert(args);
+    }
     else
     {
       LOG.info("Starting the engines ... please wait!");
@@ -88,6 +98,33 @@ public class JMinerApplication
     }
   }
 
+  // 'convert <poc1PlotFile> [targetDirectory]' converts plot file to poc2, without starting the miner
+  private static void convert(String[] args)
+  {
+    if(args.length < 2 || args.length > 3)
+    {
+      LOG.error("usage: 'java -jar jminer.jar convert <poc1PlotFile> [targetDirectory]'");
+      LOG.error("without targetDirectory, plot file is converted in place.");
+      System.exit(1);
+    }
+    Path targetDirectory = args.length > 2 ? Paths.get(args[2]) : null;
+    try
+    {
+      new PlotConverter(Paths.get(args[1]), targetDirectory, Runtime.getRuntime().availableProcessors()).convert();
+    }
+    catch(IOException | RuntimeException e)
+    {
+      LOG.error("converting '" + args[1] + "' failed: " + e.getMessage());
+      LOG.error("run the same command again to continue from last checkpoint.");
+      System.exit(1);
+    }
+    catch(InterruptedException e)
+    {
+      LOG.error("converting '" + args[1] + "' interrupted.");
+      System.exit(1);
+    }
+  }
+
   @Bean
   public CommandLineRunner getCommandLineRunner(ConfigurableApplicationContext context)
   {
@@ -260,7 +260,7 @@ public class JMinerCommandLine
       public void onApplicationEvent(RoundSingleResultEvent event)
       {
         LOG.info(
-          "dl '" + event.getCalculatedDeadline() + "' send (" + (event.isPoolMining() ? "pool" : "solo") + ") [nonce '" + event.getNonce().toString() + "']");
+          "dl '" + event.getCalculatedDeadline() + "' send (" + (event.isPoolMining() ? "pool" : "solo") + ") [nonce '" + Long.toUnsignedString(event.getNonce()) + "']");
       }
     });
 
@@ -290,7 +290,7 @@ public class JMinerCommandLine
         LOG.info("dl '" + event.getCalculatedDeadline() + "' NOT confirmed!  [ " + getDeadlineTime(event.getCalculatedDeadline()) + " ]");
         LOG.debug("strange dl result '" + event.getStrangeDeadline() + "', "
                   + "calculated '" + (event.getCalculatedDeadline() > 0 ? event.getCalculatedDeadline() : "N/A") + "' "
-                  + "block '" + event.getBlockNumber() + "' nonce '" + event.getNonce() + "'");
+                  + "block '" + event.getBlockNumber() + "' nonce '" + Long.toUnsignedString(event.getNonce()) + "'");
       }
     });
 
@@ -32,6 +32,7 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 /**
  * The type Core config.
@@ -53,6 +54,32 @@ public class CoreConfig
     return pool;
   }
 
+  // reads mirror scoops of poc1 drives, while reader thread reads scoops, sized like readerPool by reader
+  @Bean(name = "mirrorReaderPool")
+  public ThreadPoolTaskExecutor mirrorReaderPool()
+  {
+    ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+    pool.setThreadPriority(Thread.MIN_PRIORITY);
+    pool.setThreadNamePrefix("mirrorReaderPool-");
+    pool.setWaitForTasksToCompleteOnShutdown(true);
+    pool.initialize();
+    return pool;
+  }
+
+  @Bean(name = "checkerPool")
+  public ThreadPoolTaskExecutor checkerPool()
+  {
+    ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+    int poolSize = Runtime.getRuntime().availableProcessors();
+    pool.setCorePoolSize(poolSize);
+    pool.setMaxPoolSize(poolSize);
+    pool.setThreadPriority(Thread.NORM_PRIORITY);
+    pool.setThreadNamePrefix("checkerPool-");
+    pool.setWaitForTasksToCompleteOnShutdown(true);
+    pool.initialize();
+    return pool;
+  }
+
   @Bean(name = "networkPool")
   public SimpleAsyncTaskExecutor networkPool()
   {
@@ -61,6 +88,18 @@ public class CoreConfig
     return pool;
   }
 
+  // polls mining info one after the other, next poll is scheduled when current one finished
+  @Bean(name = "miningInfoPollPool")
+  public ThreadPoolTaskScheduler miningInfoPollPool()
+  {
+    ThreadPoolTaskScheduler pool = new ThreadPoolTaskScheduler();
+    pool.setPoolSize(1);
+    pool.setThreadPriority(Thread.NORM_PRIORITY);
+    pool.setThreadNamePrefix("miningInfoPollPool-");
+    pool.initialize();
+    return pool;
+  }
+
   @Bean
   public HttpClient httpClient()
   {
@@ -22,6 +22,8 @@
 
 package burstcoin.jminer.core;
 
+import burstcoin.jminer.core.checker.util.CpuEngine;
+import burstcoin.jminer.core.reader.data.ReadMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.StringUtils;
@@ -44,26 +46,40 @@ public class CoreProperties
   private static final boolean DEFAULT_USE_OPEN_CL = true;
   private static final int DEFAULT_PLATFORM_ID = 0;
   private static final int DEFAULT_DEVICE_ID = 0;
+  private static final int DEFAULT_OPEN_CL_QUEUES = 2;
+  private static final boolean DEFAULT_CPU_WITH_OPEN_CL = false;
   private static final boolean DEFAULT_POOL_MINING = true;
   private static final boolean DEFAULT_FORCE_LOCAL_TARGET_DEADLINE = false;
   private static final boolean DEFAULT_DYNAMIC_TARGET_DEADLINE = false;
   private static final long DEFAULT_TARGET_DEADLINE = Long.MAX_VALUE;
   private static final String DEFAULT_SOLO_SERVER = "http://localhost:8125";
   private static final int DEFAULT_READ_PROGRESS_PER_ROUND = 9;
+  private static final long DEFAULT_READ_PROGRESS_INTERVAL = 100;
   private static final int DEFAULT_REFRESH_INTERVAL = 2000;
+  private static final boolean DEFAULT_ADAPTIVE_REFRESH = true;
+  private static final String DEFAULT_MINING_INFO_PUSH_URL = "";
   private static final int DEFAULT_CONNECTION_TIMEOUT = 18000;
   private static final int DEFAULT_WINNER_RETRIES_ON_ASYNC = 4;
   private static final int DEFAULT_WINNER_RETRY_INTERVAL_IN_MS = 4000;
   private static final boolean DEFAULT_SCAN_PATHS_EVERY_ROUND = true;
+  private static final long DEFAULT_SCAN_PATHS_INTERVAL = 60000;
   private static final boolean DEFAULT_BYTE_UNIT_DECIMAL = true;
   private static final boolean DEFAULT_LIST_PLOT_FILES = false;
   private static final boolean DEFAULT_SHOW_DRIVE_INFO = false;
   private static final boolean DEFAULT_SHOW_SKIPPED_DEADLINES = true;
   private static final int DEFAULT_READER_THREADS = 0;
+  private static final ReadMode DEFAULT_READ_MODE = ReadMode.BUFFERED;
+  private static final int DEFAULT_READER_QUEUE_DEPTH = 1;
+  private static final int DEFAULT_SSD_READER_THREADS = 4;
+  private static final CpuEngine DEFAULT_CPU_ENGINE = CpuEngine.NATIVE;
+  private static final int DEFAULT_CPU_THREADS = 0;
   private static final boolean DEFAULT_DEBUG = false;
   private static final boolean DEFAULT_WRITE_LOG_FILE = false;
   private static final boolean DEFAULT_UPDATE_MINING_INFO = true;
   private static final String DEFAULT_LOG_FILE_PATH = "log/jminer.log.txt";
+  private static final int DEFAULT_METRICS_PORT = 0;
+  private static final String DEFAULT_METRICS_HOST = "localhost";
+  private static final String DEFAULT_TRACE_FILE = "";
 
   static
   {
@@ -78,11 +94,15 @@ public class CoreProperties
   }
 
   private static Integer readProgressPerRound;
+  private static Long readProgressInterval;
   private static Long refreshInterval;
+  private static Boolean adaptiveRefresh;
+  private static String miningInfoPushUrl;
   private static Long connectionTimeout;
   private static Integer winnerRetriesOnAsync;
   private static Long winnerRetryIntervalInMs;
   private static Boolean scanPathsEveryRound;
+  private static Long scanPathsInterval;
   private static Boolean poolMining;
   private static Boolean forceLocalTargetDeadline;
   private static Boolean dynamicTargetDeadline;
@@ -91,6 +111,9 @@ public class CoreProperties
   private static Long chunkPartNonces;
   private static Boolean useOpenCl;
   private static Integer deviceId;
+  private static Integer openClQueues;
+  private static List<String> openClDevices;
+  private static Boolean cpuWithOpenCl;
   private static Integer platformId;
   private static String walletServer;
   private static String numericAccountId;
@@ -102,12 +125,20 @@ public class CoreProperties
   private static Boolean showDriveInfo;
   private static Boolean showSkippedDeadlines;
   private static Integer readerThreads;
+  private static ReadMode readMode;
+  private static Integer readerQueueDepth;
+  private static Integer ssdReaderThreads;
+  private static CpuEngine cpuEngine;
+  private static Integer cpuThreads;
   private static Boolean writeLogFile;
   private static Boolean debug;
   private static String logFilePath;
   private static String logPatternFile;
   private static String logPatternConsole;
   private static Boolean updateMiningInfo;
+  private static Integer metricsPort;
+  private static String metricsHost;
+  private static String traceFile;
 
   private CoreProperties()
   {
@@ -128,6 +159,20 @@ public class CoreProperties
     return readProgressPerRound;
   }
 
+  /**
+   * Gets min. interval in ms between read progress updates, '0' updates on every loaded chunk part.
+   *
+   * @return the read progress interval
+   */
+  public static long getReadProgressInterval()
+  {
+    if(readProgressInterval == null)
+    {
+      readProgressInterval = asLong("readProgressInterval", DEFAULT_READ_PROGRESS_INTERVAL);
+    }
+    return readProgressInterval;
+  }
+
   /**
    * Gets refresh interval.
    *
@@ -142,6 +187,34 @@ public class CoreProperties
     return refreshInterval;
   }
 
+  /**
+   * Is adaptive refresh, polls less often after new block and more often near expected block time.
+   *
+   * @return the boolean
+   */
+  public static boolean isAdaptiveRefresh()
+  {
+    if(adaptiveRefresh == null)
+    {
+      adaptiveRefresh = asBoolean("adaptiveRefresh", DEFAULT_ADAPTIVE_REFRESH);
+    }
+    return adaptiveRefresh;
+  }
+
+  /**
+   * Gets url of server pushing mining info (websocket, server-sent events or long-poll), empty for polling only.
+   *
+   * @return the mining info push url
+   */
+  public static String getMiningInfoPushUrl()
+  {
+    if(miningInfoPushUrl == null)
+    {
+      miningInfoPushUrl = asString("miningInfoPushUrl", DEFAULT_MINING_INFO_PUSH_URL);
+    }
+    return miningInfoPushUrl;
+  }
+
   /**
    * Gets connection timeout.
    *
@@ -199,6 +272,25 @@ public class CoreProperties
     return scanPathsEveryRound;
   }
 
+  /**
+   * Gets interval in ms to check all 'plotPaths' for changes, in case watching the directories missed a change.
+   *
+   * @return the scan paths interval
+   */
+  public static long getScanPathsInterval()
+  {
+    if(scanPathsInterval == null)
+    {
+      scanPathsInterval = asLong("scanPathsInterval", DEFAULT_SCAN_PATHS_INTERVAL);
+      if(scanPathsInterval < 1000)
+      {
+        LOG.error("property: 'scanPathsInterval' should be at least '1000' ms.");
+        scanPathsInterval = DEFAULT_SCAN_PATHS_INTERVAL;
+      }
+    }
+    return scanPathsInterval;
+  }
+
   /**
    * Is pool mining.
    *
@@ -384,6 +476,59 @@ public class CoreProperties
     }
     return deviceId;
   }
+  /**
+   * Gets number of openCL command queues, to upload next chunk part while previous is checked.
+   *
+   * @return the open cl queues
+   */
+  public static int getOpenClQueues()
+  {
+    if(openClQueues == null)
+    {
+      openClQueues = asInteger("openClQueues", DEFAULT_OPEN_CL_QUEUES);
+      if(openClQueues < 1)
+      {
+        LOG.error("property: 'openClQueues' should be at least '1'.");
+        openClQueues = DEFAULT_OPEN_CL_QUEUES;
+      }
+    }
+    return openClQueues;
+  }
+
+  /**
+   * Gets openCL devices used for mining as 'platformId:deviceId', defaults to 'platformId' and 'deviceId'.
+   *
+   * @return the open cl devices
+   */
+  public static List<String> getOpenClDevices()
+  {
+    if(openClDevices == null)
+    {
+      List<String> defaultDevices = new ArrayList<>();
+      defaultDevices.add(getPlatformId() + ":" + getDeviceId());
+      openClDevices = asStringList("openClDevices", defaultDevices);
+      if(openClDevices.isEmpty())
+      {
+        openClDevices = defaultDevices;
+      }
+    }
+    return openClDevices;
+  }
+
+  /**
+   * Gets if CPU should check chunk parts next to the openCL devices.
+   *
+   * @return true, if cpu is used with openCL
+   */
+  public static boolean isCpuWithOpenCl()
+  {
+    if(cpuWithOpenCl == null)
+    {
+      cpuWithOpenCl = asBoolean("cpuWithOpenCl", DEFAULT_CPU_WITH_OPEN_CL);
+    }
+    return cpuWithOpenCl;
+  }
+
 
   public static int getReaderThreads()
   {
@@ -394,6 +539,108 @@ public class CoreProperties
     return readerThreads;
   }
 
+  /**
+   * Gets number of parts per drive, read ahead while previous parts are checked, '0' reads and checks in sequence.
+   *
+   * @return the reader queue depth
+   */
+  public static int getReaderQueueDepth()
+  {
+    if(readerQueueDepth == null)
+    {
+      readerQueueDepth = asInteger("readerQueueDepth", DEFAULT_READER_QUEUE_DEPTH);
+      if(readerQueueDepth < 0)
+      {
+        LOG.error("property: 'readerQueueDepth' should not be negative.");
+        readerQueueDepth = DEFAULT_READER_QUEUE_DEPTH;
+      }
+    }
+    return readerQueueDepth;
+  }
+
+  /**
+   * Gets number of threads reading in parallel from one non-rotational device (SSD/NVMe), rotational disks are read by one thread.
+   *
+   * @return the ssd reader threads
+   */
+  public static int getSsdReaderThreads()
+  {
+    if(ssdReaderThreads == null)
+    {
+      ssdReaderThreads = asInteger("ssdReaderThreads", DEFAULT_SSD_READER_THREADS);
+      if(ssdReaderThreads < 1)
+      {
+        LOG.error("property: 'ssdReaderThreads' should be at least 1.");
+        ssdReaderThreads = DEFAULT_SSD_READER_THREADS;
+      }
+    }
+    return ssdReaderThreads;
+  }
+
+  /**
+   * Gets read mode, 'buffered', 'direct' (bypass os page cache) or 'mapped' (memory mapped).
+   *
+   * @return the read mode
+   */
+  public static ReadMode getReadMode()
+  {
+    if(readMode == null)
+    {
+      String readModeProperty = asString("readMode", DEFAULT_READ_MODE.name());
+      try
+      {
+        readMode = ReadMode.valueOf(readModeProperty.trim().toUpperCase());
+      }
+      catch(IllegalArgumentException e)
+      {
+        LOG.error("property: 'readMode' value should be one of " + Arrays.toString(ReadMode.values()) + " (case insensitive).");
+        readMode = DEFAULT_READ_MODE;
+      }
+    }
+    return readMode;
+  }
+  /**
+   * Gets cpu engine, 'native' (libshabal) or 'java', used if openCl is disabled.
+   *
+   * @return the cpu engine
+   */
+  public static CpuEngine getCpuEngine()
+  {
+    if(cpuEngine == null)
+    {
+      String cpuEngineProperty = asString("cpuEngine", DEFAULT_CPU_ENGINE.name());
+      try
+      {
+        cpuEngine = CpuEngine.valueOf(cpuEngineProperty.trim().toUpperCase());
+      }
+      catch(IllegalArgumentException e)
+      {
+        LOG.error("property: 'cpuEngine' value should be one of " + Arrays.toString(CpuEngine.values()) + " (case insensitive).");
+        cpuEngine = DEFAULT_CPU_ENGINE;
+      }
+    }
+    return cpuEngine;
+  }
+  /**
+   * Gets number of threads used to check chunk parts on CPU, '0' uses all available cores.
+   *
+   * @return the cpu threads
+   */
+  public static int getCpuThreads()
+  {
+    if(cpuThreads == null)
+    {
+      cpuThreads = asInteger("cpuThreads", DEFAULT_CPU_THREADS);
+      if(cpuThreads <= 0)
+      {
+        cpuThreads = Runtime.getRuntime().availableProcessors();
+      }
+    }
+    return cpuThreads;
+  }
+
+
+
   /**
    * Gets plot paths.
    *
@@ -517,6 +764,53 @@ public class CoreProperties
     return logPatternFile;
   }
 
+  /**
+   * Gets port of metrics endpoint '/metrics' (prometheus text format), 0 disables it.
+   *
+   * @return the metrics port
+   */
+  public static int getMetricsPort()
+  {
+    if(metricsPort == null)
+    {
+      metricsPort = asInteger("metricsPort", DEFAULT_METRICS_PORT);
+      if(metricsPort < 0 || metricsPort > 65535)
+      {
+        LOG.error("property: 'metricsPort' should be a port between 1 and 65535, or 0 to disable metrics.");
+        metricsPort = DEFAULT_METRICS_PORT;
+      }
+    }
+    return metricsPort;
+  }
+
+  /**
+   * Gets host/interface metrics endpoint is bound to, '0.0.0.0' for all interfaces.
+   *
+   * @return the metrics host
+   */
+  public static String getMetricsHost()
+  {
+    if(metricsHost == null)
+    {
+      metricsHost = asString("metricsHost", DEFAULT_METRICS_HOST);
+    }
+    return metricsHost;
+  }
+
+  /**
+   * Gets path of trace file (chrome trace-event format) for per chunk part timelines, empty disables tracing.
+   *
+   * @return the trace file path
+   */
+  public static String getTraceFile()
+  {
+    if(traceFile == null)
+    {
+      traceFile = asString("traceFile", DEFAULT_TRACE_FILE);
+    }
+    return traceFile;
+  }
+
   private static Boolean asBoolean(String key, boolean defaultValue)
   {
     String booleanProperty = PROPS.containsKey(key) ? String.valueOf(PROPS.getProperty(key)) : null;
@@ -24,21 +24,39 @@ package burstcoin.jminer.core.checker;
 
 import burstcoin.jminer.core.CoreProperties;
 import burstcoin.jminer.core.checker.event.CheckerResultEvent;
+import burstcoin.jminer.core.checker.util.CheckCallback;
+import burstcoin.jminer.core.checker.util.CheckerScheduler;
+import burstcoin.jminer.core.checker.util.CheckerWorker;
+import burstcoin.jminer.core.checker.util.CpuChecker;
+import burstcoin.jminer.core.checker.util.CpuEngine;
+import burstcoin.jminer.core.checker.util.JavaChecker;
+import burstcoin.jminer.core.checker.util.LowestResult;
+import burstcoin.jminer.core.checker.util.MeteredCheckerWorker;
 import burstcoin.jminer.core.checker.util.OCLChecker;
+import burstcoin.jminer.core.checker.util.CpuWorker;
+import burstcoin.jminer.core.checker.util.ParallelCpuChecker;
+import burstcoin.jminer.core.checker.util.RingBuffer;
+import burstcoin.jminer.core.checker.util.ShaLibChecker;
+import burstcoin.jminer.core.metrics.DeviceMetrics;
+import burstcoin.jminer.core.metrics.Metrics;
 import burstcoin.jminer.core.reader.event.ReaderLoadedPartEvent;
+import burstcoin.jminer.core.trace.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Scope;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
+import pocminer.generate.MiningPlot;
 
-import java.util.Arrays;
-import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The type Checker.
+ *
+ * Loaded parts and results bypass spring events: parts are queued for checker threads and results for round
+ * in bounded ring buffers, spring events are used for ui and notifications only.
  */
 @Component
 @Scope("singleton")
@@ -46,46 +64,144 @@ public class Checker
 {
   private static final Logger LOG = LoggerFactory.getLogger(Checker.class);
 
-  private final ApplicationEventPublisher publisher;
+  // parts in flight are limited by part buffers of drives, ring buffers just have to be big enough to not block them
+  private static final int RING_BUFFER_SIZE = 1024;
+
   private final OCLChecker oclChecker;
+  private final Metrics metrics;
+  private final Tracer tracer;
+  private CpuChecker cpuChecker;
+  // checks parts on cpu, if check on openCL device failed
+  private CpuChecker fallbackChecker;
+  private DeviceMetrics cpuMetrics;
+  private CheckerScheduler scheduler;
 
-  // data
-  private volatile AtomicLong blockNumber;
-  private volatile byte[] generationSignature;
+  // reader -> checker threads -> round
+  private final RingBuffer<ReaderLoadedPartEvent> loadedParts;
+  private final RingBuffer<CheckerResultEvent> results;
 
   @Autowired
-  public Checker(ApplicationEventPublisher publisher, OCLChecker oclChecker)
+  public Checker(OCLChecker oclChecker, Metrics metrics, Tracer tracer)
   {
-    this.publisher = publisher;
     this.oclChecker = oclChecker;
+    this.metrics = metrics;
+    this.tracer = tracer;
 
-    blockNumber = new AtomicLong();
+    loadedParts = new RingBuffer<>(RING_BUFFER_SIZE);
+    results = new RingBuffer<>(RING_BUFFER_SIZE);
   }
 
-  public void reconfigure(long blockNumber, byte[] generationSignature)
+  @PostConstruct
+  protected void postConstruct()
   {
-    this.blockNumber.set(blockNumber);
-    this.generationSignature = generationSignature;
+    if(!CoreProperties.isUseOpenCl() || CoreProperties.isCpuWithOpenCl())
+    {
+      cpuChecker = createCpuChecker();
+    }
+    cpuMetrics = metrics.device("cpu");
+    if(CoreProperties.isUseOpenCl())
+    {
+      fallbackChecker = cpuChecker != null ? cpuChecker : createCpuChecker();
+      List<CheckerWorker> workers = new ArrayList<>(oclChecker.getDevices());
+      if(cpuChecker != null)
+      {
+        workers.add(new CpuWorker(cpuChecker));
+      }
+      List<CheckerWorker> meteredWorkers = new ArrayList<>();
+      for(CheckerWorker worker : workers)
+      {
+        meteredWorkers.add(new MeteredCheckerWorker(worker, metrics.device(worker.getName())));
+      }
+      scheduler = new CheckerScheduler(meteredWorkers);
+      LOG.info("check chunk parts on: " + scheduler.getName());
+    }
+    metrics.gauge("jminer_checker_queue_depth", "Loaded chunk parts waiting for checker threads.", loadedParts::size);
+    metrics.gauge("jminer_round_result_queue_depth", "Checked results waiting for round.", results::size);
+
+    // without reader queue, parts are checked by reader threads
+    if(CoreProperties.getReaderQueueDepth() > 0)
+    {
+      int checkerThreads = Runtime.getRuntime().availableProcessors();
+      for(int i = 0; i < checkerThreads; i++)
+      {
+        Thread thread = new Thread(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            checkLoadedParts();
+          }
+        }, "checker-" + i);
+        thread.setDaemon(true);
+        thread.start();
+      }
+    }
   }
 
-  @EventListener
-  public void handleMessage(ReaderLoadedPartEvent event)
+  /* queues part for checker threads, part buffers are retained until checked, waits while queue is full */
+  public void enqueue(ReaderLoadedPartEvent event)
+    throws InterruptedException
   {
-    if(CoreProperties.isUseOpenCl() && blockNumber.get() == event.getBlockNumber() && Arrays.equals(generationSignature, event.getGenerationSignature()))
+    event.retain();
+    event.setTraceTime(tracer.now());
+    try
     {
-      int lowestNonce;
-      synchronized(oclChecker)
+      loadedParts.put(event);
+    }
+    catch(InterruptedException e)
+    {
+      event.release();
+      throw e;
+    }
+  }
+
+  /* next result of current or previous rounds, waits while there is none */
+  public CheckerResultEvent takeResult()
+    throws InterruptedException
+  {
+    return results.take();
+  }
+
+  private void checkLoadedParts()
+  {
+    while(!Thread.currentThread().isInterrupted())
+    {
+      try
+      {
+        ReaderLoadedPartEvent event = loadedParts.take();
+        tracer.part("queue", event.getBlockNumber(), event.getChunkPartStartNonce(), event.getTraceTime());
+        try
+        {
+          check(event);
+        }
+        finally
+        {
+          event.release();
+        }
+      }
+      catch(InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+      catch(RuntimeException e)
       {
-        lowestNonce = oclChecker.findLowest(event.getGenerationSignature(), event.getScoops());
+        LOG.error("check chunk part failed: " + e.getMessage(), e);
       }
-      if(blockNumber.get() == event.getBlockNumber() && Arrays.equals(generationSignature, event.getGenerationSignature()))
+    }
+  }
+
+  /* checks part on calling thread, or enqueues it on openCL devices */
+  public void check(ReaderLoadedPartEvent event)
+  {
+    if(!event.isCancelled())
+    {
+      if(CoreProperties.isUseOpenCl())
       {
-        publisher.publishEvent(new CheckerResultEvent(blockNumber.get(), generationSignature, event.getChunkPartStartNonce(), lowestNonce,
-                                                      event.getPlotFilePath(), event.getScoops()));
+        checkOnDevice(event);
       }
       else
       {
-        LOG.trace("skipped handle result ... outdated mining info...");
+        checkOnCpu(event, cpuChecker);
       }
     }
     else
@@ -93,4 +209,141 @@ public class Checker
       LOG.trace("skipped check scoop ... outdated mining info...");
     }
   }
+
+  // returns as soon as check is enqueued on a device, scoops are kept until result is back
+  private void checkOnDevice(ReaderLoadedPartEvent event)
+  {
+    event.retain();
+    long checkTime = tracer.now();
+    try
+    {
+      scheduler.findLowest(event.getGenerationSignature(), event.getScoops(), event.getMirrorScoops(), new CheckCallback()
+      {
+        @Override
+        public void onResult(int lowestNonce, long result)
+        {
+          tracer.part("check", event.getBlockNumber(), event.getChunkPartStartNonce(), checkTime);
+          try
+          {
+            publishResult(event, lowestNonce, result);
+          }
+          finally
+          {
+            event.release();
+          }
+        }
+
+        @Override
+        public void onError(String message)
+        {
+          LOG.error(message + " (" + event.getPlotFilePath() + "), check on cpu ...");
+          try
+          {
+            checkOnFallback(event);
+          }
+          finally
+          {
+            event.release();
+          }
+        }
+      });
+    }
+    catch(InterruptedException e)
+    {
+      event.release();
+      Thread.currentThread().interrupt();
+    }
+    catch(RuntimeException e)
+    {
+      LOG.error("enqueue check on openCL failed: " + e.getMessage() + " (" + event.getPlotFilePath() + "), check on cpu ...");
+      try
+      {
+        checkOnFallback(event);
+      }
+      finally
+      {
+        event.release();
+      }
+    }
+  }
+
+  // part has to be checked anyway, otherwise round would wait for it until next block
+  private void checkOnFallback(ReaderLoadedPartEvent event)
+  {
+    if(!event.isCancelled())
+    {
+      try
+      {
+        checkOnCpu(event, fallbackChecker);
+      }
+      catch(RuntimeException e)
+      {
+        LOG.error("check chunk part on cpu failed: " + e.getMessage(), e);
+      }
+    }
+  }
+
+  private void checkOnCpu(ReaderLoadedPartEvent event, CpuChecker checker)
+  {
+    long startTime = cpuMetrics.started();
+    LowestResult lowest;
+    try
+    {
+      lowest = checker.findLowest(event.getGenerationSignature(), event.getScoops(), event.getMirrorScoops());
+    }
+    catch(RuntimeException e)
+    {
+      cpuMetrics.failed();
+      throw e;
+    }
+    cpuMetrics.checked(startTime, event.getScoops().remaining() / MiningPlot.SCOOP_SIZE);
+    tracer.part("check", event.getBlockNumber(), event.getChunkPartStartNonce(), startTime);
+    publishResult(event, lowest.getLowestNonce(), lowest.getResult());
+  }
+
+  private void publishResult(ReaderLoadedPartEvent event, int lowestNonce, long result)
+  {
+    if(!event.isCancelled())
+    {
+      CheckerResultEvent resultEvent = new CheckerResultEvent(event.getBlockNumber(), event.getGenerationSignature(), event.getChunkPartStartNonce(), lowestNonce, result,
+                                                              event.getPlotFilePath());
+      resultEvent.setTraceTime(tracer.now());
+      try
+      {
+        results.put(resultEvent);
+      }
+      catch(InterruptedException e)
+      {
+        LOG.trace("result dropped on shutdown ...");
+        Thread.currentThread().interrupt();
+      }
+    }
+    else
+    {
+      LOG.trace("skipped handle result ... outdated mining info...");
+    }
+  }
+
+  private static CpuChecker createCpuChecker()
+  {
+    CpuChecker cpuChecker = createCpuChecker(CoreProperties.getCpuEngine());
+    int cpuThreads = CoreProperties.getCpuThreads();
+    return cpuThreads > 1 ? new ParallelCpuChecker(cpuChecker, cpuThreads) : cpuChecker;
+  }
+
+  private static CpuChecker createCpuChecker(CpuEngine cpuEngine)
+  {
+    if(CpuEngine.NATIVE.equals(cpuEngine))
+    {
+      try
+      {
+        return new ShaLibChecker();
+      }
+      catch(UnsatisfiedLinkError e)
+      {
+        LOG.warn("libshabal not available on this platform, fallback to cpuEngine 'java'. (" + e.getMessage() + ")");
+      }
+    }
+    return new JavaChecker();
+  }
 }
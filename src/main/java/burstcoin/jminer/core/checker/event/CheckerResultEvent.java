@@ -22,7 +22,6 @@
 
 package burstcoin.jminer.core.checker.event;
 
-import java.math.BigInteger;
 
 /**
  * fired if chunk-part checked
@@ -30,22 +29,23 @@ import java.math.BigInteger;
 public class CheckerResultEvent
 {
   private byte[] generationSignature;
-  private BigInteger chunkPartStartNonce;
+  private long chunkPartStartNonce;
 
   private long blockNumber;
-  private BigInteger result;
+  private long result;
   private String plotFilePath;
-  private byte[] scoops;
   private int lowestNonce;
+  // handed over to next stage, only set while tracing
+  private long traceTime;
 
-  public CheckerResultEvent(long blockNumber, byte[] generationSignature, BigInteger chunkPartStartNonce, int lowestNonce, String plotFilePath, byte[] scoops)
+  public CheckerResultEvent(long blockNumber, byte[] generationSignature, long chunkPartStartNonce, int lowestNonce, long result, String plotFilePath)
   {
     this.generationSignature = generationSignature;
     this.chunkPartStartNonce = chunkPartStartNonce;
     this.blockNumber = blockNumber;
     this.lowestNonce = lowestNonce;
+    this.result = result;
     this.plotFilePath = plotFilePath;
-    this.scoops = scoops;
   }
 
   public String getPlotFilePath()
@@ -58,33 +58,34 @@ public class CheckerResultEvent
     return blockNumber;
   }
 
-  public BigInteger getResult()
+  /* unsigned, first 8 bytes of hash */
+  public long getResult()
   {
     return result;
   }
 
-  public void setResult(BigInteger result)
+  public int getLowestNonce()
   {
-    this.result = result;
+    return lowestNonce;
   }
 
-  public byte[] getScoops()
+  public long getChunkPartStartNonce()
   {
-    return scoops;
+    return chunkPartStartNonce;
   }
 
-  public int getLowestNonce()
+  public byte[] getGenerationSignature()
   {
-    return lowestNonce;
+    return generationSignature;
   }
 
-  public BigInteger getChunkPartStartNonce()
+  public long getTraceTime()
   {
-    return chunkPartStartNonce;
+    return traceTime;
   }
 
-  public byte[] getGenerationSignature()
+  public void setTraceTime(long traceTime)
   {
-    return generationSignature;
+    this.traceTime = traceTime;
   }
 }
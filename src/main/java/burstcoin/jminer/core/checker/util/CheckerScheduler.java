@@ -0,0 +1,178 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.checker.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pocminer.generate.MiningPlot;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Distributes chunk parts over multiple checker workers (e.g. several GPUs and CPU).
+ *
+ * Each part goes to the worker expected to finish it first, based on nonces already pending
+ * on that worker and its measured throughput, so slower devices get a smaller share.
+ */
+public class CheckerScheduler
+  implements CheckerWorker
+{
+  private static final Logger LOG = LoggerFactory.getLogger(CheckerScheduler.class);
+
+  // older measurements are halved after that busy time, to follow changing speed of workers
+  private static final long MEASURE_DECAY_NANOS = 10_000_000_000L;
+
+  private final List<WorkerStats> workers;
+
+  public CheckerScheduler(List<? extends CheckerWorker> workers)
+  {
+    this.workers = new ArrayList<>();
+    for(CheckerWorker worker : workers)
+    {
+      this.workers.add(new WorkerStats(worker));
+    }
+  }
+
+  @Override
+  public String getName()
+  {
+    List<String> names = new ArrayList<>();
+    for(WorkerStats stats : workers)
+    {
+      names.add(stats.worker.getName());
+    }
+    return names.toString();
+  }
+
+  @Override
+  public void findLowest(byte[] gensig, ByteBuffer data, ByteBuffer mirror, CheckCallback callback)
+    throws InterruptedException
+  {
+    long nonces = data.remaining() / MiningPlot.SCOOP_SIZE;
+    WorkerStats stats = next(nonces);
+    stats.pendingNonces.addAndGet(nonces);
+    long enqueueTime = System.nanoTime();
+    try
+    {
+      stats.worker.findLowest(gensig, data, mirror, new CheckCallback()
+      {
+        @Override
+        public void onResult(int lowestNonce, long result)
+        {
+          stats.done(nonces, enqueueTime);
+          callback.onResult(lowestNonce, result);
+        }
+
+        @Override
+        public void onError(String message)
+        {
+          stats.pendingNonces.addAndGet(-nonces);
+          callback.onError(stats.worker.getName() + ": " + message);
+        }
+      });
+    }
+    catch(InterruptedException | RuntimeException e)
+    {
+      stats.pendingNonces.addAndGet(-nonces);
+      throw e;
+    }
+  }
+
+  /* worker with earliest expected completion, workers without measurement are tried first */
+  private synchronized WorkerStats next(long nonces)
+  {
+    WorkerStats next = null;
+    double nextCompletion = Double.MAX_VALUE;
+    for(WorkerStats stats : workers)
+    {
+      double throughput = stats.throughput;
+      if(throughput <= 0)
+      {
+        if(stats.pendingNonces.get() == 0)
+        {
+          return stats;
+        }
+        continue;
+      }
+      double completion = (stats.pendingNonces.get() + nonces) / throughput;
+      if(completion < nextCompletion)
+      {
+        nextCompletion = completion;
+        next = stats;
+      }
+    }
+    // all unmeasured workers busy and nothing measured yet
+    return next != null ? next : leastPending();
+  }
+
+  private WorkerStats leastPending()
+  {
+    WorkerStats next = workers.get(0);
+    for(WorkerStats stats : workers)
+    {
+      if(stats.pendingNonces.get() < next.pendingNonces.get())
+      {
+        next = stats;
+      }
+    }
+    return next;
+  }
+
+  private static class WorkerStats
+  {
+    private final CheckerWorker worker;
+    private final AtomicLong pendingNonces = new AtomicLong();
+
+    // nonces per nanosecond
+    private volatile double throughput;
+    private long lastDoneTime;
+    private double doneNonces;
+    private double busyNanos;
+
+    WorkerStats(CheckerWorker worker)
+    {
+      this.worker = worker;
+    }
+
+    // busy time starts on enqueue or when previous part was done, whatever is later
+    synchronized void done(long nonces, long enqueueTime)
+    {
+      long now = System.nanoTime();
+      long busyTime = now - Math.max(enqueueTime, lastDoneTime);
+      lastDoneTime = now;
+      pendingNonces.addAndGet(-nonces);
+      if(busyNanos > MEASURE_DECAY_NANOS)
+      {
+        doneNonces /= 2;
+        busyNanos /= 2;
+      }
+      // parts checked in parallel finish close together, so only the sum of busy time is meaningful
+      doneNonces += nonces;
+      busyNanos += Math.max(busyTime, 1);
+      throughput = doneNonces / busyNanos;
+      LOG.trace(worker.getName() + " throughput: " + Math.round(throughput * 1000000000L) + " nonces/s");
+    }
+  }
+}
@@ -0,0 +1,245 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.checker.util;
+
+import pocminer.generate.MiningPlot;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Pure java Shabal256 deadline calculation, same results as libshabal 'shabal_findBestDeadlineDirect'.
+ *
+ * Hashes LANES nonces per pass, every state word holds the values of all lanes (state[word][lane]),
+ * so every step is a simple loop over lanes the JIT can unroll and vectorize.
+ * Message is always gensig (32 bytes) + scoop (64 bytes), so hashing is specialized to two blocks.
+ */
+public class JavaChecker
+  implements CpuChecker
+{
+  private static final int LANES = 16;
+
+  // initial state of Shabal256
+  private static final int[] IV_A = new int[12];
+  private static final int[] IV_B = new int[16];
+  private static final int[] IV_C = new int[16];
+
+  static
+  {
+    // derived like defined by Shabal spec, by hashing two prefix blocks from zero state
+    Lanes lanes = new Lanes();
+    for(int i = 0; i < 16; i++)
+    {
+      Arrays.fill(lanes.m[i], 256 + i);
+    }
+    lanes.round(-1, -1, true);
+    for(int i = 0; i < 16; i++)
+    {
+      Arrays.fill(lanes.m[i], 272 + i);
+    }
+    lanes.round(0, 0, true);
+    for(int i = 0; i < 16; i++)
+    {
+      if(i < 12)
+      {
+        IV_A[i] = lanes.a[i][0];
+      }
+      IV_B[i] = lanes.b[i][0];
+      IV_C[i] = lanes.c[i][0];
+    }
+  }
+
+  // state is not thread safe, one per checker thread
+  private final ThreadLocal<Lanes> lanesLookup = ThreadLocal.withInitial(Lanes::new);
+
+  @Override
+  public LowestResult findLowest(byte[] gensig, ByteBuffer data, ByteBuffer mirror)
+  {
+    ByteBuffer scoops = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    // second hashes, from mirror on poc1
+    ByteBuffer secondHashes = mirror != null ? mirror.duplicate().order(ByteOrder.LITTLE_ENDIAN) : scoops;
+    int secondHashesOffset = mirror != null ? mirror.position() - data.position() : 0;
+    int numNonces = data.remaining() / MiningPlot.SCOOP_SIZE;
+
+    int[] gensigWords = new int[8];
+    ByteBuffer gensigBuffer = ByteBuffer.wrap(gensig).order(ByteOrder.LITTLE_ENDIAN);
+    for(int i = 0; i < gensigWords.length; i++)
+    {
+      gensigWords[i] = gensigBuffer.getInt(i * 4);
+    }
+
+    Lanes lanes = lanesLookup.get();
+    int lowestNonce = 0;
+    long lowestDeadline = -1L; // max unsigned
+    for(int startNonce = 0; startNonce < numNonces; startNonce += LANES)
+    {
+      int count = Math.min(LANES, numNonces - startNonce);
+      int offset = data.position() + startNonce * MiningPlot.SCOOP_SIZE;
+      lanes.calculateDeadlines(gensigWords, scoops, offset, secondHashes, offset + secondHashesOffset, count);
+      for(int lane = 0; lane < count; lane++)
+      {
+        if(Long.compareUnsigned(lanes.deadlines[lane], lowestDeadline) < 0)
+        {
+          lowestDeadline = lanes.deadlines[lane];
+          lowestNonce = startNonce + lane;
+        }
+      }
+    }
+    return new LowestResult(lowestNonce, lowestDeadline);
+  }
+
+  /* Shabal256 state of LANES nonces */
+  private static final class Lanes
+  {
+    private final int[][] a = new int[12][LANES];
+    private final int[][] m = new int[16][LANES];
+    private final long[] deadlines = new long[LANES];
+    private int[][] b = new int[16][LANES];
+    private int[][] c = new int[16][LANES];
+
+    /* deadline (first 8 bytes of hash, little endian) of count nonces, scoops starting at offset, second hashes of scoops at secondOffset */
+    private void calculateDeadlines(int[] gensigWords, ByteBuffer scoops, int offset, ByteBuffer secondHashes, int secondOffset, int count)
+    {
+      for(int word = 0; word < 16; word++)
+      {
+        if(word < 12)
+        {
+          Arrays.fill(a[word], IV_A[word]);
+        }
+        Arrays.fill(b[word], IV_B[word]);
+        Arrays.fill(c[word], IV_C[word]);
+      }
+
+      // block 1: gensig + first half of scoop
+      for(int lane = 0; lane < LANES; lane++)
+      {
+        // unused lanes hash the last nonce again
+        int scoopOffset = offset + Math.min(lane, count - 1) * MiningPlot.SCOOP_SIZE;
+        for(int word = 0; word < 8; word++)
+        {
+          m[word][lane] = gensigWords[word];
+          m[word + 8][lane] = scoops.getInt(scoopOffset + word * 4);
+        }
+      }
+      round(1, 0, true);
+
+      // block 2: second half of scoop + padding
+      for(int lane = 0; lane < LANES; lane++)
+      {
+        int scoopOffset = secondOffset + Math.min(lane, count - 1) * MiningPlot.SCOOP_SIZE + MiningPlot.HASH_SIZE;
+        for(int word = 0; word < 8; word++)
+        {
+          m[word][lane] = secondHashes.getInt(scoopOffset + word * 4);
+          m[word + 8][lane] = word == 0 ? 0x80 : 0;
+        }
+      }
+      round(2, 0, true);
+
+      // final rounds repeat last block without incrementing counter
+      round(2, 0, true);
+      round(2, 0, true);
+      round(2, 0, false);
+
+      // hash is in c[8..15] after last swap, deadline needs just first two words
+      for(int lane = 0; lane < LANES; lane++)
+      {
+        deadlines[lane] = ((long) c[9][lane] << 32) | (c[8][lane] & 0xFFFFFFFFL);
+      }
+    }
+
+    /* one Shabal round with message m and counter w, last round skips steps not needed for the deadline */
+    private void round(int wLow, int wHigh, boolean complete)
+    {
+      int[][] a = this.a;
+      int[][] b = this.b;
+      int[][] c = this.c;
+      int[][] m = this.m;
+
+      for(int i = 0; i < 16; i++)
+      {
+        int[] bi = b[i];
+        int[] mi = m[i];
+        for(int lane = 0; lane < LANES; lane++)
+        {
+          int x = bi[lane] + mi[lane];
+          bi[lane] = (x << 17) | (x >>> 15);
+        }
+      }
+      for(int lane = 0; lane < LANES; lane++)
+      {
+        a[0][lane] ^= wLow;
+        a[1][lane] ^= wHigh;
+      }
+
+      // permutation, last round just needs b[8] and b[9]
+      int steps = complete ? 48 : 42;
+      for(int step = 0; step < steps; step++)
+      {
+        int i = step & 15;
+        int[] a0 = a[step % 12];
+        int[] a1 = a[(step + 11) % 12];
+        int[] c0 = c[(8 - i) & 15];
+        int[] b0 = b[i];
+        int[] b6 = b[(i + 6) & 15];
+        int[] b9 = b[(i + 9) & 15];
+        int[] b13 = b[(i + 13) & 15];
+        int[] m0 = m[i];
+        for(int lane = 0; lane < LANES; lane++)
+        {
+          int previous = a1[lane];
+          int value = (a0[lane] ^ (((previous << 15) | (previous >>> 17)) * 5) ^ c0[lane]) * 3;
+          value ^= b13[lane] ^ (b9[lane] & ~b6[lane]) ^ m0[lane];
+          a0[lane] = value;
+          int x = b0[lane];
+          b0[lane] = ~((x << 1) | (x >>> 31)) ^ value;
+        }
+      }
+
+      if(complete)
+      {
+        for(int j = 0; j < 36; j++)
+        {
+          int[] aj = a[j % 12];
+          int[] cj = c[(j + 3) & 15];
+          for(int lane = 0; lane < LANES; lane++)
+          {
+            aj[lane] += cj[lane];
+          }
+        }
+        for(int i = 0; i < 16; i++)
+        {
+          int[] ci = c[i];
+          int[] mi = m[i];
+          for(int lane = 0; lane < LANES; lane++)
+          {
+            ci[lane] -= mi[lane];
+          }
+        }
+      }
+
+      // swap b and c
+      this.b = c;
+      this.c = b;
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.checker.util;
+
+import burstcoin.jminer.core.metrics.DeviceMetrics;
+import pocminer.generate.MiningPlot;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Records checks of a worker (pending parts, checked nonces, check time) in metrics of its device.
+ */
+public class MeteredCheckerWorker
+  implements CheckerWorker
+{
+  private final CheckerWorker worker;
+  private final DeviceMetrics deviceMetrics;
+
+  public MeteredCheckerWorker(CheckerWorker worker, DeviceMetrics deviceMetrics)
+  {
+    this.worker = worker;
+    this.deviceMetrics = deviceMetrics;
+  }
+
+  @Override
+  public String getName()
+  {
+    return worker.getName();
+  }
+
+  @Override
+  public void findLowest(byte[] gensig, ByteBuffer data, ByteBuffer mirror, CheckCallback callback)
+    throws InterruptedException
+  {
+    long nonces = data.remaining() / MiningPlot.SCOOP_SIZE;
+    long startTime = deviceMetrics.started();
+    try
+    {
+      worker.findLowest(gensig, data, mirror, new CheckCallback()
+      {
+        @Override
+        public void onResult(int lowestNonce, long result)
+        {
+          deviceMetrics.checked(startTime, nonces);
+          callback.onResult(lowestNonce, result);
+        }
+
+        @Override
+        public void onError(String message)
+        {
+          deviceMetrics.failed();
+          callback.onError(message);
+        }
+      });
+    }
+    catch(InterruptedException e)
+    {
+      deviceMetrics.aborted();
+      throw e;
+    }
+    catch(RuntimeException e)
+    {
+      deviceMetrics.failed();
+      throw e;
+    }
+  }
+}
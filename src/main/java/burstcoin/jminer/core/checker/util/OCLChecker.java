@@ -23,23 +23,19 @@
 package burstcoin.jminer.core.checker.util;
 
 import burstcoin.jminer.core.CoreProperties;
-import org.jocl.Pointer;
-import org.jocl.Sizeof;
-import org.jocl.cl_command_queue;
-import org.jocl.cl_context;
-import org.jocl.cl_context_properties;
+import burstcoin.jminer.core.reader.data.PartBufferAllocator;
+import burstcoin.jminer.core.trace.Tracer;
 import org.jocl.cl_device_id;
-import org.jocl.cl_kernel;
-import org.jocl.cl_mem;
 import org.jocl.cl_platform_id;
-import org.jocl.cl_program;
-import org.jocl.cl_queue_properties;
 import org.jocl.utils.DeviceInfos;
 import org.jocl.utils.Devices;
 import org.jocl.utils.PlatformInfos;
 import org.jocl.utils.Platforms;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
@@ -47,106 +43,87 @@ import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-import static org.jocl.CL.*;
-
 /**
  * Org. OCLChecker code and the used openCL kernels are provided by 'burst dev'. Please donate: BURST-QHCJ-9HB5-PTGC-5Q8J9
+ *
+ * Opens the configured openCL devices (openClDevices), part buffers are pinned memory of first device.
  */
 @Component
-public class OCLChecker {
+public class OCLChecker
+  implements PartBufferAllocator
+{
   private static final Logger LOG = LoggerFactory.getLogger(OCLChecker.class);
 
   private static final int SIZE_DIVISOR = CoreProperties.isByteUnitDecimal() ? 1000 : 1024;
   private static final String G_UNIT = CoreProperties.isByteUnitDecimal() ? "GB" : "GiB";
 
-  private cl_context context;
-  private cl_command_queue queue;
+  private final ThreadPoolTaskExecutor checkerPool;
+  private final Tracer tracer;
 
-  private cl_kernel kernel[] = new cl_kernel[2];
-  private long workgroupSize[] = new long[2];
+  // platformId:deviceId of used devices
+  private List<int[]> deviceIds = new ArrayList<>();
+  private List<OCLDevice> devices = new ArrayList<>();
 
-  private cl_mem gensigMem;
-  private cl_mem bestMem;
+  @Autowired
+  public OCLChecker(@Qualifier(value = "checkerPool") ThreadPoolTaskExecutor checkerPool, Tracer tracer)
+  {
+    this.checkerPool = checkerPool;
+    this.tracer = tracer;
+  }
 
   @PostConstruct
   protected void postConstruct()
   {
     if(CoreProperties.isUseOpenCl())
     {
-      initChecker(CoreProperties.getPlatformId(), CoreProperties.getDeviceId());
+      for(String openClDevice : CoreProperties.getOpenClDevices())
+      {
+        String[] ids = openClDevice.trim().split(":");
+        try
+        {
+          deviceIds.add(new int[]{Integer.parseInt(ids[0].trim()), Integer.parseInt(ids[1].trim())});
+        }
+        catch(NumberFormatException | ArrayIndexOutOfBoundsException e)
+        {
+          LOG.error("property: 'openClDevices' entry '" + openClDevice + "' should be 'platformId:deviceId'.");
+        }
+      }
+      initChecker();
     }
   }
 
-  public void initChecker(int platformId, int deviceId)
+  private void initChecker()
   {
     check();
 
-    setExceptionsEnabled(true);
-
-    int numPlatforms[] = new int[1];
-    clGetPlatformIDs(0, null, numPlatforms);
-
-    if(platformId >= numPlatforms[0])
-    {
-      throw new ArrayIndexOutOfBoundsException("Invalid platform id");
-    }
-
-    cl_platform_id platforms[] = new cl_platform_id[numPlatforms[0]];
-    clGetPlatformIDs(platforms.length, platforms, null);
-
-    int[] numDevices = new int[1];
-    clGetDeviceIDs(platforms[platformId], CL_DEVICE_TYPE_ALL, 0, null, numDevices);
-
-    if(deviceId >= numDevices[0])
-    {
-      throw new ArrayIndexOutOfBoundsException("Invalid device id");
-    }
-
-    cl_device_id devices[] = new cl_device_id[numDevices[0]];
-    clGetDeviceIDs(platforms[platformId], CL_DEVICE_TYPE_ALL, devices.length, devices, null);
-
-    cl_context_properties contextProperties = new cl_context_properties();
-    contextProperties.addProperty(CL_CONTEXT_PLATFORM, platforms[platformId]);
-
-    context = clCreateContext(contextProperties, 1, new cl_device_id[]{devices[deviceId]}, null, null, null);
-    queue = clCreateCommandQueueWithProperties(context, devices[deviceId], new cl_queue_properties(), null);
-
-    String kernelSource;
-    try
+    for(int[] ids : deviceIds)
     {
-      InputStream inputStream = OCLChecker.class.getResourceAsStream("calcdeadlines.cl");
-      kernelSource = readInputStreamAsString(inputStream);
-      inputStream.close();
+      devices.add(new OCLDevice(ids[0], ids[1], checkerPool, tracer));
     }
-    catch(IOException e)
-    {
-      throw new RuntimeException("Failed to read calcdeadlines.cl file", e);
-    }
-
-    cl_program program = clCreateProgramWithSource(context, 1, new String[]{kernelSource}, null, null);
-    clBuildProgram(program, 0, null, "-I kernel", null, null);
+    LOG.info("");
+    LOG.info("-------------------------------------------------------");
+  }
 
-    kernel[0] = clCreateKernel(program, "calculate_deadlines", null);
-    kernel[1] = clCreateKernel(program, "reduce_best", null);
+  public List<OCLDevice> getDevices()
+  {
+    return Collections.unmodifiableList(devices);
+  }
 
-    long[] maxWorkGroupSize = new long[1];
-    for(int i = 0; i < 2; i++)
+  private boolean isUsed(int platformId, Integer deviceId)
+  {
+    for(int[] ids : deviceIds)
     {
-      clGetKernelWorkGroupInfo(kernel[i], devices[deviceId], CL_KERNEL_WORK_GROUP_SIZE, 8, Pointer.to(maxWorkGroupSize), null);
-      workgroupSize[i] = maxWorkGroupSize[0];
+      if(ids[0] == platformId && (deviceId == null || ids[1] == deviceId))
+      {
+        return true;
+      }
     }
-
-    long[] maxComputeUnits = new long[1];
-    clGetDeviceInfo(devices[deviceId], CL_DEVICE_MAX_COMPUTE_UNITS, 8, Pointer.to(maxComputeUnits), null);
-
-    gensigMem = clCreateBuffer(context, CL_MEM_READ_ONLY, 32, null, null);
-    bestMem = clCreateBuffer(context, CL_MEM_WRITE_ONLY, 400, null, null);
-
-    LOG.info("");
-    LOG.info("(*) openCL context successfully started! (platformId: " + platformId + ", deviceId: " + deviceId + ")");
-    LOG.info("-------------------------------------------------------");
+    return false;
   }
 
   private void check()
@@ -158,11 +135,11 @@ public class OCLChecker {
     for(cl_platform_id cl_platform_id : platforms)
     {
       int currentPlatformId = platforms.indexOf(cl_platform_id);
-      if(currentPlatformId == CoreProperties.getPlatformId())
+      if(isUsed(currentPlatformId, null))
       {
 
         String selector = " * ";
-        String selectionPrefix = currentPlatformId == CoreProperties.getPlatformId() ? selector : "   ";
+        String selectionPrefix = selector;
         LOG.info(selectionPrefix + "PLATFORM-[" + currentPlatformId + "] " + PlatformInfos.getName(cl_platform_id) + " - "
                  + "(" + PlatformInfos.getVersion(cl_platform_id) + ")");
 
@@ -170,7 +147,7 @@ public class OCLChecker {
         for(cl_device_id cl_device_id : devices)
         {
           int currentDeviceId = devices.indexOf(cl_device_id);
-          selectionPrefix = currentDeviceId == CoreProperties.getDeviceId() ? selector : "   ";
+          selectionPrefix = isUsed(currentPlatformId, currentDeviceId) ? selector : "   ";
 
           LOG.info(selectionPrefix + "  DEVICE-[" + currentDeviceId + "] " + DeviceInfos.getName(cl_device_id) + " "
                    + "(" + bytesAsGigabyte(DeviceInfos.getGlobalMemSize(cl_device_id)) + ")"
@@ -185,48 +162,22 @@ public class OCLChecker {
     }
   }
 
-  public void reset(int platformId, int deviceId)
-  {
-    clReleaseContext(context);
-    initChecker(platformId, deviceId);
-  }
-
   private String bytesAsGigabyte(long bytes)
   {
     return bytes / SIZE_DIVISOR / SIZE_DIVISOR / SIZE_DIVISOR % SIZE_DIVISOR + "" + G_UNIT;
   }
 
-  public int findLowest(byte[] gensig, byte[] data)
+  /* pinned (page-locked) host memory of first device, mapped to be filled by reader, other devices read it like plain host memory */
+  @Override
+  public ByteBuffer allocate(int capacity)
   {
-    cl_mem dataMem, deadlineMem;
+    return devices.get(0).allocate(capacity);
+  }
 
-    long numNonces = data.length / 64;
-    long calcWorkgroups = numNonces / workgroupSize[0];
-    // thx blago
-    if(numNonces % workgroupSize[0] != 0) // if(numNonces % 64 != 0) // org.
-    {
-      calcWorkgroups++;
-    }
-    clEnqueueWriteBuffer(queue, gensigMem, false, 0, 32, Pointer.to(gensig), 0, null, null);
-    dataMem = clCreateBuffer(context, CL_MEM_READ_ONLY, calcWorkgroups * workgroupSize[0] * 64, null, null);
-    clEnqueueWriteBuffer(queue, dataMem, false, 0, data.length, Pointer.to(data), 0, null, null);
-    deadlineMem = clCreateBuffer(context, CL_MEM_READ_WRITE, calcWorkgroups * workgroupSize[0] * 8, null, null);
-    clSetKernelArg(kernel[0], 0, Sizeof.cl_mem, Pointer.to(gensigMem));
-    clSetKernelArg(kernel[0], 1, Sizeof.cl_mem, Pointer.to(dataMem));
-    clSetKernelArg(kernel[0], 2, Sizeof.cl_mem, Pointer.to(deadlineMem));
-    clEnqueueNDRangeKernel(queue, kernel[0], 1, null, new long[]{calcWorkgroups * workgroupSize[0]}, new long[]{workgroupSize[0]}, 0, null, null);
-    clSetKernelArg(kernel[1], 0, Sizeof.cl_mem, Pointer.to(deadlineMem));
-    long len[] = {data.length / 64};
-    clSetKernelArg(kernel[1], 1, Sizeof.cl_uint, Pointer.to(len));
-    clSetKernelArg(kernel[1], 2, Sizeof.cl_uint * workgroupSize[1], null);
-    clSetKernelArg(kernel[1], 3, Sizeof.cl_ulong * workgroupSize[1], null);
-    clSetKernelArg(kernel[1], 4, Sizeof.cl_mem, Pointer.to(bestMem));
-    clEnqueueNDRangeKernel(queue, kernel[1], 1, null, new long[]{workgroupSize[1]}, new long[]{workgroupSize[1]}, 0, null, null);
-    int best[] = new int[1];
-    clEnqueueReadBuffer(queue, bestMem, true, 0, 4, Pointer.to(best), 0, null, null);
-    clReleaseMemObject(dataMem);
-    clReleaseMemObject(deadlineMem);
-    return best[0];
+  @Override
+  public void free(ByteBuffer buffer)
+  {
+    devices.get(0).free(buffer);
   }
 
   public static String readInputStreamAsString(InputStream in)
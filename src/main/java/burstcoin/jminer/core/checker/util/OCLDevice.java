@@ -0,0 +1,470 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package burstcoin.jminer.core.checker.util;
+
+import burstcoin.jminer.core.CoreProperties;
+import burstcoin.jminer.core.reader.data.PartBufferAllocator;
+import burstcoin.jminer.core.reader.util.DirectIO;
+import burstcoin.jminer.core.trace.Tracer;
+import org.jocl.CLException;
+import org.jocl.EventCallbackFunction;
+import org.jocl.Pointer;
+import org.jocl.Sizeof;
+import org.jocl.cl_command_queue;
+import org.jocl.cl_context;
+import org.jocl.cl_context_properties;
+import org.jocl.cl_device_id;
+import org.jocl.cl_event;
+import org.jocl.cl_kernel;
+import org.jocl.cl_mem;
+import org.jocl.cl_platform_id;
+import org.jocl.cl_program;
+import org.jocl.cl_queue_properties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+
+import static org.jocl.CL.*;
+
+/**
+ * One openCL device used by OCLChecker, checks chunk parts asynchronously on multiple command queues.
+ */
+public class OCLDevice
+  implements CheckerWorker, PartBufferAllocator
+{
+  private static final Logger LOG = LoggerFactory.getLogger(OCLDevice.class);
+
+  private final int platformId;
+  private final int deviceId;
+  // results are handed over, to not block driver thread
+  private final Executor callbackExecutor;
+  // null or disabled: queues without profiling
+  private final Tracer tracer;
+  private final boolean profiling;
+
+  private cl_context context;
+  // used to map pinned memory, slots have their own queues
+  private cl_command_queue mapQueue;
+
+  private long workgroupSize[] = new long[2];
+
+  // command queues with own kernels and buffers, a part is checked by one free slot
+  private BlockingQueue<Slot> freeSlots;
+  private List<Slot> slots;
+
+  // pinned host memory handed out as part buffers, by aligned buffer
+  private Map<ByteBuffer, PinnedMem> pinnedMemLookup = new IdentityHashMap<>();
+  private boolean pinnedMemUnsupported;
+
+  public OCLDevice(int platformId, int deviceId, Executor callbackExecutor)
+  {
+    this(platformId, deviceId, callbackExecutor, null);
+  }
+
+  /* with enabled tracer, upload, kernel, reduce and download of every check are traced on a track per queue */
+  public OCLDevice(int platformId, int deviceId, Executor callbackExecutor, Tracer tracer)
+  {
+    this.platformId = platformId;
+    this.deviceId = deviceId;
+    this.callbackExecutor = callbackExecutor;
+    this.tracer = tracer;
+    profiling = tracer != null && tracer.isEnabled();
+
+    init();
+  }
+
+  private void init()
+  {
+    setExceptionsEnabled(true);
+
+    int numPlatforms[] = new int[1];
+    clGetPlatformIDs(0, null, numPlatforms);
+
+    if(platformId >= numPlatforms[0])
+    {
+      throw new ArrayIndexOutOfBoundsException("Invalid platform id");
+    }
+
+    cl_platform_id platforms[] = new cl_platform_id[numPlatforms[0]];
+    clGetPlatformIDs(platforms.length, platforms, null);
+
+    int[] numDevices = new int[1];
+    clGetDeviceIDs(platforms[platformId], CL_DEVICE_TYPE_ALL, 0, null, numDevices);
+
+    if(deviceId >= numDevices[0])
+    {
+      throw new ArrayIndexOutOfBoundsException("Invalid device id");
+    }
+
+    cl_device_id devices[] = new cl_device_id[numDevices[0]];
+    clGetDeviceIDs(platforms[platformId], CL_DEVICE_TYPE_ALL, devices.length, devices, null);
+
+    cl_context_properties contextProperties = new cl_context_properties();
+    contextProperties.addProperty(CL_CONTEXT_PLATFORM, platforms[platformId]);
+
+    context = clCreateContext(contextProperties, 1, new cl_device_id[]{devices[deviceId]}, null, null, null);
+    mapQueue = clCreateCommandQueueWithProperties(context, devices[deviceId], new cl_queue_properties(), null);
+
+    String kernelSource;
+    try
+    {
+      InputStream inputStream = OCLDevice.class.getResourceAsStream("calcdeadlines.cl");
+      kernelSource = OCLChecker.readInputStreamAsString(inputStream);
+      inputStream.close();
+    }
+    catch(IOException e)
+    {
+      throw new RuntimeException("Failed to read calcdeadlines.cl file", e);
+    }
+
+    cl_program program = clCreateProgramWithSource(context, 1, new String[]{kernelSource}, null, null);
+    clBuildProgram(program, 0, null, "-I kernel", null, null);
+
+    int numberOfSlots = CoreProperties.getOpenClQueues();
+    slots = new ArrayList<>();
+    freeSlots = new ArrayBlockingQueue<>(numberOfSlots);
+    for(int i = 0; i < numberOfSlots; i++)
+    {
+      Slot slot = new Slot(devices[deviceId], program, i);
+      slots.add(slot);
+      freeSlots.add(slot);
+    }
+
+    long[] maxWorkGroupSize = new long[1];
+    for(int i = 0; i < 2; i++)
+    {
+      clGetKernelWorkGroupInfo(slots.get(0).kernel[i], devices[deviceId], CL_KERNEL_WORK_GROUP_SIZE, 8, Pointer.to(maxWorkGroupSize), null);
+      workgroupSize[i] = maxWorkGroupSize[0];
+    }
+
+    LOG.info("(*) openCL context successfully started! (platformId: " + platformId + ", deviceId: " + deviceId + ", queues: " + numberOfSlots + ")");
+  }
+
+  @Override
+  public String getName()
+  {
+    return "openCL[" + platformId + ":" + deviceId + "]";
+  }
+
+  /**
+   * Enqueues check of data on next free command queue, waits only if all queues are busy.
+   * Data has to stay valid until callback is called, callback is executed by callbackExecutor.
+   */
+  @Override
+  public void findLowest(byte[] gensig, ByteBuffer data, ByteBuffer mirror, CheckCallback callback)
+    throws InterruptedException
+  {
+    Slot slot = freeSlots.take();
+    try
+    {
+      slot.enqueue(gensig, data, mirror, callback);
+    }
+    catch(CLException e)
+    {
+      freeSlots.offer(slot);
+      throw e;
+    }
+  }
+
+  /* waits for running checks and releases all resources of device */
+  public synchronized void release()
+    throws InterruptedException
+  {
+    for(int i = 0; i < slots.size(); i++)
+    {
+      freeSlots.take();
+    }
+    for(Slot slot : slots)
+    {
+      slot.release();
+    }
+    clReleaseCommandQueue(mapQueue);
+    clReleaseContext(context);
+  }
+
+  /* command queue with own kernels (args are not thread safe) and buffers */
+  private final class Slot
+    implements EventCallbackFunction
+  {
+    private final cl_command_queue queue;
+    private final cl_kernel kernel[] = new cl_kernel[2];
+    private final cl_mem gensigMem;
+    private final cl_mem bestMem;
+    // direct, so transfers can be non-blocking
+    private final ByteBuffer gensigBuffer = ByteBuffer.allocateDirect(32);
+    // position and deadline of best nonce
+    private final ByteBuffer bestBuffer = ByteBuffer.allocateDirect(16).order(ByteOrder.nativeOrder());
+
+    // device buffers, reused and grown to biggest part
+    private cl_mem dataMem;
+    private cl_mem deadlineMem;
+    private long memNonces;
+    // only allocated for poc1 parts
+    private cl_mem mirrorMem;
+    private long mirrorMemNonces;
+
+    private volatile CheckCallback callback;
+
+    // profiling only: track and events of first upload, last upload, kernel and reduce
+    private long track;
+    private cl_event[] stageEvents;
+
+    private Slot(cl_device_id device, cl_program program, int index)
+    {
+      cl_queue_properties queueProperties = new cl_queue_properties();
+      if(profiling)
+      {
+        queueProperties.addProperty(CL_QUEUE_PROPERTIES, CL_QUEUE_PROFILING_ENABLE);
+        track = tracer.track(getName() + " queue " + index);
+        stageEvents = new cl_event[4];
+      }
+      queue = clCreateCommandQueueWithProperties(context, device, queueProperties, null);
+      kernel[0] = clCreateKernel(program, "calculate_deadlines", null);
+      kernel[1] = clCreateKernel(program, "reduce_best", null);
+      gensigMem = clCreateBuffer(context, CL_MEM_READ_ONLY, 32, null, null);
+      bestMem = clCreateBuffer(context, CL_MEM_WRITE_ONLY, 400, null, null);
+    }
+
+    private void enqueue(byte[] gensig, ByteBuffer data, ByteBuffer mirror, CheckCallback callback)
+    {
+      this.callback = callback;
+
+      int dataLength = data.remaining();
+      long numNonces = dataLength / 64;
+      long calcWorkgroups = numNonces / workgroupSize[0];
+      // thx blago
+      if(numNonces % workgroupSize[0] != 0) // if(numNonces % 64 != 0) // org.
+      {
+        calcWorkgroups++;
+      }
+      ensureDeviceBuffers(calcWorkgroups * workgroupSize[0], mirror != null);
+
+      gensigBuffer.clear();
+      gensigBuffer.put(gensig);
+      gensigBuffer.flip();
+      clEnqueueWriteBuffer(queue, gensigMem, false, 0, 32, Pointer.to(gensigBuffer), 0, null, stageEvent(0));
+      // fast dma transfer, if data is pinned memory provided by allocate()
+      clEnqueueWriteBuffer(queue, dataMem, false, 0, dataLength, Pointer.to(data), 0, null, mirror == null ? stageEvent(1) : null);
+      // poc1: kernel takes second hash of scoops from mirror
+      if(mirror != null)
+      {
+        clEnqueueWriteBuffer(queue, mirrorMem, false, 0, dataLength, Pointer.to(mirror), 0, null, stageEvent(1));
+      }
+      clSetKernelArg(kernel[0], 0, Sizeof.cl_mem, Pointer.to(gensigMem));
+      clSetKernelArg(kernel[0], 1, Sizeof.cl_mem, Pointer.to(dataMem));
+      clSetKernelArg(kernel[0], 2, Sizeof.cl_mem, Pointer.to(mirror != null ? mirrorMem : dataMem));
+      clSetKernelArg(kernel[0], 3, Sizeof.cl_mem, Pointer.to(deadlineMem));
+      clEnqueueNDRangeKernel(queue, kernel[0], 1, null, new long[]{calcWorkgroups * workgroupSize[0]}, new long[]{workgroupSize[0]}, 0, null, stageEvent(2));
+      clSetKernelArg(kernel[1], 0, Sizeof.cl_mem, Pointer.to(deadlineMem));
+      long len[] = {numNonces};
+      clSetKernelArg(kernel[1], 1, Sizeof.cl_uint, Pointer.to(len));
+      clSetKernelArg(kernel[1], 2, Sizeof.cl_uint * workgroupSize[1], null);
+      clSetKernelArg(kernel[1], 3, Sizeof.cl_ulong * workgroupSize[1], null);
+      clSetKernelArg(kernel[1], 4, Sizeof.cl_mem, Pointer.to(bestMem));
+      clEnqueueNDRangeKernel(queue, kernel[1], 1, null, new long[]{workgroupSize[1]}, new long[]{workgroupSize[1]}, 0, null, stageEvent(3));
+
+      cl_event readEvent = new cl_event();
+      clEnqueueReadBuffer(queue, bestMem, false, 0, 16, Pointer.to(bestBuffer), 0, null, readEvent);
+      clSetEventCallback(readEvent, CL_COMPLETE, this, null);
+      clFlush(queue);
+    }
+
+    private cl_event stageEvent(int stage)
+    {
+      if(profiling)
+      {
+        stageEvents[stage] = new cl_event();
+        return stageEvents[stage];
+      }
+      return null;
+    }
+
+    // called by driver thread, as soon as result is read back
+    @Override
+    public void function(cl_event event, int commandExecCallbackType, Object userData)
+    {
+      if(profiling)
+      {
+        trace(event, commandExecCallbackType == CL_COMPLETE);
+      }
+      clReleaseEvent(event);
+      CheckCallback callback = this.callback;
+      this.callback = null;
+      int lowestNonce = (int) bestBuffer.getLong(0);
+      long result = bestBuffer.getLong(8);
+      freeSlots.offer(this);
+
+      callbackExecutor.execute(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          if(commandExecCallbackType == CL_COMPLETE)
+          {
+            callback.onResult(lowestNonce, result);
+          }
+          else
+          {
+            callback.onError("openCL check failed with status '" + commandExecCallbackType + "'");
+          }
+        }
+      });
+    }
+
+    // device clock is mapped to host clock by end of read, as callback follows right after it
+    private void trace(cl_event readEvent, boolean complete)
+    {
+      if(complete)
+      {
+        long readEnd = profilingInfo(readEvent, CL_PROFILING_COMMAND_END);
+        long offset = System.nanoTime() - readEnd;
+        tracer.span(track, "upload", "openCL", offset + profilingInfo(stageEvents[0], CL_PROFILING_COMMAND_START),
+                    offset + profilingInfo(stageEvents[1], CL_PROFILING_COMMAND_END));
+        tracer.span(track, "kernel", "openCL", offset + profilingInfo(stageEvents[2], CL_PROFILING_COMMAND_START),
+                    offset + profilingInfo(stageEvents[2], CL_PROFILING_COMMAND_END));
+        tracer.span(track, "reduce", "openCL", offset + profilingInfo(stageEvents[3], CL_PROFILING_COMMAND_START),
+                    offset + profilingInfo(stageEvents[3], CL_PROFILING_COMMAND_END));
+        tracer.span(track, "download", "openCL", offset + profilingInfo(readEvent, CL_PROFILING_COMMAND_START), offset + readEnd);
+      }
+      for(int i = 0; i < stageEvents.length; i++)
+      {
+        clReleaseEvent(stageEvents[i]);
+        stageEvents[i] = null;
+      }
+    }
+
+    private long profilingInfo(cl_event event, int name)
+    {
+      long[] value = new long[1];
+      clGetEventProfilingInfo(event, name, Sizeof.cl_ulong, Pointer.to(value), null);
+      return value[0];
+    }
+
+    private void ensureDeviceBuffers(long nonces, boolean withMirror)
+    {
+      if(memNonces < nonces)
+      {
+        releaseDeviceBuffers();
+        dataMem = clCreateBuffer(context, CL_MEM_READ_ONLY, nonces * 64, null, null);
+        deadlineMem = clCreateBuffer(context, CL_MEM_READ_WRITE, nonces * 8, null, null);
+        memNonces = nonces;
+      }
+      if(withMirror && mirrorMemNonces < nonces)
+      {
+        if(mirrorMem != null)
+        {
+          clReleaseMemObject(mirrorMem);
+        }
+        mirrorMem = clCreateBuffer(context, CL_MEM_READ_ONLY, nonces * 64, null, null);
+        mirrorMemNonces = nonces;
+      }
+    }
+
+    private void releaseDeviceBuffers()
+    {
+      if(mirrorMem != null)
+      {
+        clReleaseMemObject(mirrorMem);
+        mirrorMem = null;
+        mirrorMemNonces = 0;
+      }
+      if(dataMem != null)
+      {
+        clReleaseMemObject(dataMem);
+        clReleaseMemObject(deadlineMem);
+        dataMem = null;
+        deadlineMem = null;
+        memNonces = 0;
+      }
+    }
+
+    private void release()
+    {
+      releaseDeviceBuffers();
+      clReleaseMemObject(gensigMem);
+      clReleaseMemObject(bestMem);
+      clReleaseKernel(kernel[0]);
+      clReleaseKernel(kernel[1]);
+      clReleaseCommandQueue(queue);
+    }
+  }
+
+  /* pinned (page-locked) host memory, mapped to be filled by reader, falls back to plain direct memory */
+  @Override
+  public synchronized ByteBuffer allocate(int capacity)
+  {
+    if(!pinnedMemUnsupported)
+    {
+      // extra block to align address for direct i/o
+      long size = capacity + DirectIO.BLOCK_SIZE;
+      try
+      {
+        cl_mem pinnedMem = clCreateBuffer(context, CL_MEM_READ_ONLY | CL_MEM_ALLOC_HOST_PTR, size, null, null);
+        ByteBuffer mapped = clEnqueueMapBuffer(mapQueue, pinnedMem, true, CL_MAP_READ | CL_MAP_WRITE, 0, size, 0, null, null, null);
+        ByteBuffer buffer = DirectIO.alignedSlice(mapped, capacity);
+        pinnedMemLookup.put(buffer, new PinnedMem(pinnedMem, mapped));
+        return buffer;
+      }
+      catch(CLException e)
+      {
+        pinnedMemUnsupported = true;
+        LOG.warn("pinned host memory not available, fallback to direct memory. (" + e.getMessage() + ")");
+      }
+    }
+    return DirectIO.allocate(capacity);
+  }
+
+  @Override
+  public synchronized void free(ByteBuffer buffer)
+  {
+    PinnedMem pinnedMem = pinnedMemLookup.remove(buffer);
+    if(pinnedMem != null)
+    {
+      clEnqueueUnmapMemObject(mapQueue, pinnedMem.mem, pinnedMem.mapped, 0, null, null);
+      clReleaseMemObject(pinnedMem.mem);
+    }
+  }
+
+  private static final class PinnedMem
+  {
+    private final cl_mem mem;
+    private final ByteBuffer mapped;
+
+    private PinnedMem(cl_mem mem, ByteBuffer mapped)
+    {
+      this.mem = mem;
+      this.mapped = mapped;
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.checker.util;
+
+import pocminer.generate.MiningPlot;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Splits the scoops of a chunk part into nonce ranges, checked in parallel by its own work-stealing pool.
+ * The lowest deadlines of all ranges are reduced to one result, so hashing scales with cores, not with reader threads.
+ */
+public class ParallelCpuChecker
+  implements CpuChecker
+{
+  // smaller ranges do not pay off the task overhead
+  private static final int MIN_NONCES_PER_RANGE = 4096;
+  // more ranges than threads, to balance by work stealing
+  private static final int RANGES_PER_THREAD = 4;
+
+  private final CpuChecker cpuChecker;
+  private final ForkJoinPool pool;
+
+  public ParallelCpuChecker(CpuChecker cpuChecker, int threads)
+  {
+    this.cpuChecker = cpuChecker;
+    pool = new ForkJoinPool(threads);
+  }
+
+  @Override
+  public LowestResult findLowest(byte[] gensig, ByteBuffer data, ByteBuffer mirror)
+  {
+    int numNonces = data.remaining() / MiningPlot.SCOOP_SIZE;
+    if(numNonces == 0)
+    {
+      return new LowestResult(0, -1L);
+    }
+    int noncesPerRange = Math.max(MIN_NONCES_PER_RANGE, numNonces / (pool.getParallelism() * RANGES_PER_THREAD));
+    return pool.invoke(new FindLowestTask(gensig, data, mirror, 0, numNonces, noncesPerRange));
+  }
+
+  public int getThreads()
+  {
+    return pool.getParallelism();
+  }
+
+  private final class FindLowestTask
+    extends RecursiveTask<LowestResult>
+  {
+    private final byte[] gensig;
+    private final ByteBuffer data;
+    private final ByteBuffer mirror;
+    private final int fromNonce;
+    private final int toNonce;
+    private final int noncesPerRange;
+
+    private FindLowestTask(byte[] gensig, ByteBuffer data, ByteBuffer mirror, int fromNonce, int toNonce, int noncesPerRange)
+    {
+      this.gensig = gensig;
+      this.data = data;
+      this.mirror = mirror;
+      this.fromNonce = fromNonce;
+      this.toNonce = toNonce;
+      this.noncesPerRange = noncesPerRange;
+    }
+
+    @Override
+    protected LowestResult compute()
+    {
+      if(toNonce - fromNonce <= noncesPerRange)
+      {
+        LowestResult lowest = cpuChecker.findLowest(gensig, range(data), mirror != null ? range(mirror) : null);
+        return new LowestResult(fromNonce + lowest.getLowestNonce(), lowest.getResult());
+      }
+
+      int middleNonce = (fromNonce + toNonce) >>> 1;
+      FindLowestTask left = new FindLowestTask(gensig, data, mirror, fromNonce, middleNonce, noncesPerRange);
+      FindLowestTask right = new FindLowestTask(gensig, data, mirror, middleNonce, toNonce, noncesPerRange);
+      left.fork();
+      LowestResult rightLowest = right.compute();
+      LowestResult leftLowest = left.join();
+      // on equal deadline, first nonce wins like on sequential check
+      return Long.compareUnsigned(rightLowest.getResult(), leftLowest.getResult()) < 0 ? rightLowest : leftLowest;
+    }
+
+    private ByteBuffer range(ByteBuffer buffer)
+    {
+      ByteBuffer range = buffer.duplicate();
+      range.position(buffer.position() + fromNonce * MiningPlot.SCOOP_SIZE);
+      range.limit(buffer.position() + toNonce * MiningPlot.SCOOP_SIZE);
+      return range.slice();
+    }
+  }
+}
@@ -0,0 +1,260 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.checker.util;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded lock-free multi-producer multi-consumer queue on a preallocated array (D. Vyukov's bounded MPMC queue).
+ *
+ * Every slot has a sequence number, producers and consumers claim slots by CAS on tail/head and hand them over via
+ * the sequence, so neither side ever takes a lock or allocates. Blocking put/take spin, yield and then park while the
+ * buffer is full/empty, until the other side unparks them, so idle threads (e.g. between rounds) do not poll.
+ *
+ * @param <E> element type
+ */
+public class RingBuffer<E>
+{
+  private static final int SPINS = 100;
+  private static final int YIELDS = 100;
+  // waiting threads are unparked by the other side, this is just a safety net
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final int mask;
+  private final Object[] elements;
+  private final AtomicLongArray sequences;
+
+  // next position to offer/poll
+  private final AtomicLong tail;
+  private final AtomicLong head;
+
+  // parked in take while empty, in put while full
+  private final ConcurrentLinkedQueue<Thread> waitingConsumers;
+  private final ConcurrentLinkedQueue<Thread> waitingProducers;
+
+  /* capacity is rounded up to next power of two */
+  public RingBuffer(int capacity)
+  {
+    int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+    mask = size - 1;
+    elements = new Object[size];
+    sequences = new AtomicLongArray(size);
+    for(int i = 0; i < size; i++)
+    {
+      sequences.set(i, i);
+    }
+    tail = new AtomicLong();
+    head = new AtomicLong();
+    waitingConsumers = new ConcurrentLinkedQueue<>();
+    waitingProducers = new ConcurrentLinkedQueue<>();
+  }
+
+  public int getCapacity()
+  {
+    return elements.length;
+  }
+
+  /* number of elements, just a snapshot while producers and consumers are active */
+  public int size()
+  {
+    long size = tail.get() - head.get();
+    return (int) Math.max(0, Math.min(size, elements.length));
+  }
+
+  /* returns false if full */
+  public boolean offer(E element)
+  {
+    long position = tail.get();
+    while(true)
+    {
+      int index = (int) position & mask;
+      long difference = sequences.get(index) - position;
+      if(difference == 0)
+      {
+        if(tail.compareAndSet(position, position + 1))
+        {
+          elements[index] = element;
+          // publish element to consumer of this position, volatile so a consumer that registered before polling is seen below
+          sequences.set(index, position + 1);
+          wakeUp(waitingConsumers);
+          return true;
+        }
+      }
+      else if(difference < 0)
+      {
+        // slot still holds element of previous lap
+        return false;
+      }
+      position = tail.get();
+    }
+  }
+
+  /* returns null if empty */
+  @SuppressWarnings("unchecked")
+  public E poll()
+  {
+    long position = head.get();
+    while(true)
+    {
+      int index = (int) position & mask;
+      long difference = sequences.get(index) - (position + 1);
+      if(difference == 0)
+      {
+        if(head.compareAndSet(position, position + 1))
+        {
+          E element = (E) elements[index];
+          elements[index] = null;
+          // free slot for producer of next lap, volatile so a producer that registered before offering is seen below
+          sequences.set(index, position + mask + 1);
+          wakeUp(waitingProducers);
+          return element;
+        }
+      }
+      else if(difference < 0)
+      {
+        // slot not published yet
+        return null;
+      }
+      position = head.get();
+    }
+  }
+
+  /* waits while full */
+  public void put(E element)
+    throws InterruptedException
+  {
+    int idle = 0;
+    while(!offer(element))
+    {
+      if(idle < SPINS + YIELDS)
+      {
+        idle = spin(idle);
+      }
+      else
+      {
+        // registered before offering again, so a consumer freeing a slot meanwhile unparks this thread
+        Thread thread = Thread.currentThread();
+        waitingProducers.add(thread);
+        boolean offered = offer(element);
+        if(!offered)
+        {
+          LockSupport.parkNanos(this, MAX_PARK_NANOS);
+        }
+        waitingProducers.remove(thread);
+        if(offered)
+        {
+          return;
+        }
+        checkInterrupted();
+      }
+    }
+  }
+
+  /* waits while empty */
+  public E take()
+    throws InterruptedException
+  {
+    return await(0, false);
+  }
+
+  /* waits while empty, returns null after timeout */
+  public E poll(long timeout, TimeUnit unit)
+    throws InterruptedException
+  {
+    return await(unit.toNanos(timeout), true);
+  }
+
+  private E await(long timeoutNanos, boolean timed)
+    throws InterruptedException
+  {
+    long deadline = timed ? System.nanoTime() + timeoutNanos : 0;
+    int idle = 0;
+    E element;
+    while((element = poll()) == null)
+    {
+      long remaining = timed ? deadline - System.nanoTime() : MAX_PARK_NANOS;
+      if(remaining <= 0)
+      {
+        return null;
+      }
+      if(idle < SPINS + YIELDS)
+      {
+        idle = spin(idle);
+      }
+      else
+      {
+        // registered before polling again, so a producer offering meanwhile unparks this thread
+        Thread thread = Thread.currentThread();
+        waitingConsumers.add(thread);
+        element = poll();
+        if(element == null)
+        {
+          LockSupport.parkNanos(this, Math.min(remaining, MAX_PARK_NANOS));
+        }
+        waitingConsumers.remove(thread);
+        if(element != null)
+        {
+          return element;
+        }
+        checkInterrupted();
+      }
+    }
+    return element;
+  }
+
+  private static int spin(int idle)
+    throws InterruptedException
+  {
+    checkInterrupted();
+    if(idle >= SPINS)
+    {
+      Thread.yield();
+    }
+    return idle + 1;
+  }
+
+  private static void checkInterrupted()
+    throws InterruptedException
+  {
+    if(Thread.interrupted())
+    {
+      throw new InterruptedException();
+    }
+  }
+
+  /* unparks one waiting thread, if any */
+  private static void wakeUp(ConcurrentLinkedQueue<Thread> waitingThreads)
+  {
+    if(!waitingThreads.isEmpty())
+    {
+      Thread thread = waitingThreads.poll();
+      if(thread != null)
+      {
+        LockSupport.unpark(thread);
+      }
+    }
+  }
+}
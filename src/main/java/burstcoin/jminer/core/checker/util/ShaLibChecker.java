@@ -2,11 +2,19 @@ package burstcoin.jminer.core.checker.util;
 
 import com.sun.jna.Library;
 import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.LongByReference;
 import pocminer.generate.MiningPlot;
 
-public class ShaLibChecker {
+import java.nio.ByteBuffer;
+
+public class ShaLibChecker implements CpuChecker {
+
+    // 256KB, stays in cache while combined and hashed
+    private static final int BLOCK_NONCES = 4096;
 
     private final ShabalLibrary shabalLibrary;
+    private final ThreadLocal<ByteBuffer> blockLookup = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BLOCK_NONCES * MiningPlot.SCOOP_SIZE));
 
     public ShaLibChecker() {
         shabalLibrary = Native.loadLibrary("libshabal", ShabalLibrary.class);
@@ -14,11 +22,47 @@ public class ShaLibChecker {
     }
 
     private interface ShabalLibrary extends Library {
-        long shabal_findBestDeadline(byte[] scoops, long numScoops, byte[] gensig);
+        // bestDeadline has to be preset to max unsigned, it is only written if lower
+        void shabal_findBestDeadlineDirect(Pointer scoops, long numScoops, byte[] gensig, LongByReference bestDeadline, LongByReference bestOffset);
         void shabal_init();
     }
 
-    public int findLowest(byte[] gensig, byte[] data) {
-        return (int) shabalLibrary.shabal_findBestDeadline(data, data.length / MiningPlot.SCOOP_SIZE, gensig);
+    /* data has to be a direct buffer */
+    @Override
+    public LowestResult findLowest(byte[] gensig, ByteBuffer data, ByteBuffer mirror) {
+        int numNonces = data.remaining() / MiningPlot.SCOOP_SIZE;
+        if (mirror == null) {
+            return findLowest(gensig, data, 0, numNonces);
+        }
+
+        // libshabal only takes whole scoops, so poc1 halves are combined block by block in a cache sized buffer
+        ByteBuffer block = blockLookup.get();
+        int lowestNonce = 0;
+        long lowestResult = -1L;
+        for (int startNonce = 0; startNonce < numNonces; startNonce += BLOCK_NONCES) {
+            int count = Math.min(BLOCK_NONCES, numNonces - startNonce);
+            for (int nonce = 0; nonce < count; nonce++) {
+                int blockOffset = nonce * MiningPlot.SCOOP_SIZE;
+                int scoopOffset = (startNonce + nonce) * MiningPlot.SCOOP_SIZE;
+                for (int offset = 0; offset < MiningPlot.HASH_SIZE; offset += 8) {
+                    block.putLong(blockOffset + offset, data.getLong(data.position() + scoopOffset + offset));
+                    block.putLong(blockOffset + MiningPlot.HASH_SIZE + offset, mirror.getLong(mirror.position() + scoopOffset + MiningPlot.HASH_SIZE + offset));
+                }
+            }
+            LowestResult lowest = findLowest(gensig, block, 0, count);
+            if (Long.compareUnsigned(lowest.getResult(), lowestResult) < 0) {
+                lowestResult = lowest.getResult();
+                lowestNonce = startNonce + lowest.getLowestNonce();
+            }
+        }
+        return new LowestResult(lowestNonce, lowestResult);
+    }
+
+    private LowestResult findLowest(byte[] gensig, ByteBuffer data, int offset, int numNonces) {
+        Pointer scoops = Native.getDirectBufferPointer(data).share(data.position() + offset);
+        LongByReference bestDeadline = new LongByReference(-1L);
+        LongByReference bestOffset = new LongByReference(0);
+        shabalLibrary.shabal_findBestDeadlineDirect(scoops, numNonces, gensig, bestDeadline, bestOffset);
+        return new LowestResult((int) bestOffset.getValue(), bestDeadline.getValue());
     }
 }
@@ -372,7 +372,7 @@ __constant static const sph_u32 C_init_512[] = {
 #define HASH_CAP			4096
 #define GEN_SIZE			(PLOT_SIZE + 16)
 
-__kernel void calculate_deadlines(__global unsigned char* gen_sig, __global unsigned char* plot_data, __global unsigned long* deadlines) {
+__kernel void calculate_deadlines(__global unsigned char* gen_sig, __global unsigned char* plot_data, __global unsigned char* mirror_data, __global unsigned long* deadlines) {
 	int lid = get_local_id(0);
 	int lsize = get_local_size(0);
 	__local unsigned char* lgen_sig[HASH_SIZE];
@@ -427,14 +427,15 @@ __kernel void calculate_deadlines(__global unsigned char* gen_sig, __global unsi
 	SWAP_BC;
 	INCR_W;
 	
-	M0 = ((__global unsigned int*)plot_data)[gid * 16 + 8];
-	M1 = ((__global unsigned int*)plot_data)[gid * 16 + 9];
-	M2 = ((__global unsigned int*)plot_data)[gid * 16 + 10];
-	M3 = ((__global unsigned int*)plot_data)[gid * 16 + 11];
-	M4 = ((__global unsigned int*)plot_data)[gid * 16 + 12];
-	M5 = ((__global unsigned int*)plot_data)[gid * 16 + 13];
-	M6 = ((__global unsigned int*)plot_data)[gid * 16 + 14];
-	M7 = ((__global unsigned int*)plot_data)[gid * 16 + 15];
+	// second hash of scoop, mirror_data is plot_data for poc2
+	M0 = ((__global unsigned int*)mirror_data)[gid * 16 + 8];
+	M1 = ((__global unsigned int*)mirror_data)[gid * 16 + 9];
+	M2 = ((__global unsigned int*)mirror_data)[gid * 16 + 10];
+	M3 = ((__global unsigned int*)mirror_data)[gid * 16 + 11];
+	M4 = ((__global unsigned int*)mirror_data)[gid * 16 + 12];
+	M5 = ((__global unsigned int*)mirror_data)[gid * 16 + 13];
+	M6 = ((__global unsigned int*)mirror_data)[gid * 16 + 14];
+	M7 = ((__global unsigned int*)mirror_data)[gid * 16 + 15];
 	
 	M8 = 0x80;
 	M9 = MA = MB = MC = MD = ME = MF = 0;
@@ -454,7 +455,7 @@ __kernel void calculate_deadlines(__global unsigned char* gen_sig, __global unsi
 	deadlines[gid] = *((unsigned long*)out);
 }
 
-__kernel void reduce_best(__global unsigned long* deadlines, unsigned int length, __local unsigned int* best_pos, __local unsigned long* best_deadline, __global unsigned int* best) {
+__kernel void reduce_best(__global unsigned long* deadlines, unsigned int length, __local unsigned int* best_pos, __local unsigned long* best_deadline, __global unsigned long* best) {
 	int gid = get_global_id(0);
 	int gsize = get_global_size(0);
 	
@@ -499,7 +500,9 @@ __kernel void reduce_best(__global unsigned long* deadlines, unsigned int length
 		barrier(CLK_LOCAL_MEM_FENCE);
 	}
 	
+	// position and deadline of best, so host needs no rehash
 	if(lid == 0) {
-		best[get_group_id(0)] = best_pos[0];
+		best[get_group_id(0) * 2] = best_pos[0];
+		best[get_group_id(0) * 2 + 1] = best_deadline[0];
 	}
 }
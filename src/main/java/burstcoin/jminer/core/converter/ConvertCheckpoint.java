@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.converter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+/**
+ * Progress of a conversion, replaced atomically after every step.
+ * For conversions in place, it also journals the original scoops of a step before they get overwritten,
+ * so a step interrupted halfway can be rolled back and done again.
+ */
+final class ConvertCheckpoint
+{
+  private static final long MAGIC = 0x6A6D696E65724331L;
+  private static final int HEADER_SIZE = 8 + 8 + 8 + 4;
+
+  private final Path path;
+  private final long sourceSize;
+
+  ConvertCheckpoint(Path path, long sourceSize)
+  {
+    this.path = path;
+    this.sourceSize = sourceSize;
+  }
+
+  boolean exists()
+  {
+    return Files.exists(path);
+  }
+
+  /* rolls back journaled scoops of an interrupted step, returns index of next unit to convert */
+  long restore(FileChannel channel)
+    throws IOException
+  {
+    try (FileChannel checkpointChannel = FileChannel.open(path, StandardOpenOption.READ))
+    {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      ConvertUnit.readFully(checkpointChannel, header, 0);
+      if(header.getLong() != MAGIC || header.getLong() != sourceSize)
+      {
+        throw new IOException("checkpoint '" + path + "' does not belong to plot file.");
+      }
+      long nextUnit = header.getLong();
+      int journaled = header.getInt();
+
+      long position = HEADER_SIZE;
+      ByteBuffer regionHeader = ByteBuffer.allocate(8 + 4);
+      for(int i = 0; i < journaled; i++)
+      {
+        ConvertUnit.readFully(checkpointChannel, regionHeader, position);
+        long regionPosition = regionHeader.getLong();
+        ByteBuffer region = ByteBuffer.allocate(regionHeader.getInt());
+        ConvertUnit.readFully(checkpointChannel, region, position + regionHeader.capacity());
+        ConvertUnit.writeFully(channel, region, regionPosition);
+        position += regionHeader.capacity() + region.capacity();
+      }
+      if(journaled > 0)
+      {
+        channel.force(false);
+      }
+      return nextUnit;
+    }
+  }
+
+  /* next unit to convert, original scoops of journaled units are restored on resume */
+  void save(long nextUnit, Collection<ConvertUnit> journaled)
+    throws IOException
+  {
+    Path tempPath = Paths.get(path.toString() + ".tmp");
+    try (FileChannel checkpointChannel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                          StandardOpenOption.TRUNCATE_EXISTING))
+    {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putLong(MAGIC).putLong(sourceSize).putLong(nextUnit).putInt(2 * journaled.size()).flip();
+      long position = write(checkpointChannel, header, 0);
+      for(ConvertUnit unit : journaled)
+      {
+        position = writeRegion(checkpointChannel, unit.getLowPosition(), unit.getLow(), position);
+        position = writeRegion(checkpointChannel, unit.getHighPosition(), unit.getHigh(), position);
+      }
+      checkpointChannel.force(true);
+    }
+    Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  void delete()
+    throws IOException
+  {
+    Files.deleteIfExists(path);
+  }
+
+  private static long writeRegion(FileChannel channel, long regionPosition, ByteBuffer region, long position)
+    throws IOException
+  {
+    ByteBuffer regionHeader = ByteBuffer.allocate(8 + 4);
+    regionHeader.putLong(regionPosition).putInt(region.remaining()).flip();
+    return write(channel, region, write(channel, regionHeader, position));
+  }
+
+  private static long write(FileChannel channel, ByteBuffer buffer, long position)
+    throws IOException
+  {
+    int length = buffer.remaining();
+    ConvertUnit.writeFully(channel, buffer, position);
+    return position + length;
+  }
+}
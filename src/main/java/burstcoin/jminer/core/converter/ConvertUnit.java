@@ -0,0 +1,176 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.converter;
+
+import pocminer.generate.MiningPlot;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Scoop pairs (n, 4095-n) of a range of nonces in one chunk of a POC1 plot file.
+ * Low scoops n and high scoops 4095-n are each one contiguous region in source file.
+ */
+final class ConvertUnit
+{
+  private final ByteBuffer low;
+  private final ByteBuffer high;
+
+  private long chunk;
+  private int firstPair;
+  private int pairs;
+  private long firstNonce;
+  private int nonces;
+
+  private long lowPosition;
+  private long highPosition;
+
+  ConvertUnit(int capacity)
+  {
+    low = ByteBuffer.allocate(capacity);
+    high = ByteBuffer.allocate(capacity);
+  }
+
+  /* scoops [firstPair, firstPair + pairs) and their mirrors of chunk nonces [firstNonce, firstNonce + nonces) */
+  void init(long chunk, int firstPair, int pairs, long firstNonce, int nonces, long stagger)
+  {
+    this.chunk = chunk;
+    this.firstPair = firstPair;
+    this.pairs = pairs;
+    this.firstNonce = firstNonce;
+    this.nonces = nonces;
+
+    long chunkPosition = chunk * stagger * MiningPlot.PLOT_SIZE;
+    lowPosition = chunkPosition + (firstPair * stagger + firstNonce) * MiningPlot.SCOOP_SIZE;
+    highPosition = chunkPosition + ((MiningPlot.SCOOPS_PER_PLOT - firstPair - pairs) * stagger + firstNonce) * MiningPlot.SCOOP_SIZE;
+
+    int length = pairs * nonces * MiningPlot.SCOOP_SIZE;
+    low.clear().limit(length);
+    high.clear().limit(length);
+  }
+
+  void read(FileChannel channel)
+    throws IOException
+  {
+    readFully(channel, low, lowPosition);
+    readFully(channel, high, highPosition);
+  }
+
+  /* swaps second hash of every low scoop with the one of its mirror, poc1 -> poc2 (and back) */
+  void shuffle()
+  {
+    byte[] lowScoops = low.array();
+    byte[] highScoops = high.array();
+    byte[] hash = new byte[MiningPlot.HASH_SIZE];
+    for(int pair = 0; pair < pairs; pair++)
+    {
+      // high region holds mirrors in reverse scoop order
+      int lowOffset = pair * nonces * MiningPlot.SCOOP_SIZE + MiningPlot.HASH_SIZE;
+      int highOffset = (pairs - 1 - pair) * nonces * MiningPlot.SCOOP_SIZE + MiningPlot.HASH_SIZE;
+      for(int nonce = 0; nonce < nonces; nonce++)
+      {
+        System.arraycopy(lowScoops, lowOffset, hash, 0, MiningPlot.HASH_SIZE);
+        System.arraycopy(highScoops, highOffset, lowScoops, lowOffset, MiningPlot.HASH_SIZE);
+        System.arraycopy(hash, 0, highScoops, highOffset, MiningPlot.HASH_SIZE);
+        lowOffset += MiningPlot.SCOOP_SIZE;
+        highOffset += MiningPlot.SCOOP_SIZE;
+      }
+    }
+  }
+
+  /* writes scoops to their position in optimized (one chunk) plot file of plotNonces */
+  void write(FileChannel channel, long plotNonces, long stagger)
+    throws IOException
+  {
+    write(channel, low, firstPair, plotNonces, stagger);
+    write(channel, high, MiningPlot.SCOOPS_PER_PLOT - firstPair - pairs, plotNonces, stagger);
+  }
+
+  private void write(FileChannel channel, ByteBuffer scoops, int firstScoop, long plotNonces, long stagger)
+    throws IOException
+  {
+    long noncePosition = (chunk * stagger + firstNonce) * MiningPlot.SCOOP_SIZE;
+    if(nonces == plotNonces)
+    {
+      // scoops of all nonces, region is contiguous in target too
+      writeFully(channel, scoops.duplicate(), (long) firstScoop * plotNonces * MiningPlot.SCOOP_SIZE + noncePosition);
+    }
+    else
+    {
+      int length = nonces * MiningPlot.SCOOP_SIZE;
+      for(int scoop = 0; scoop < pairs; scoop++)
+      {
+        ByteBuffer slice = scoops.duplicate();
+        slice.position(scoop * length).limit((scoop + 1) * length);
+        writeFully(channel, slice, (firstScoop + scoop) * plotNonces * MiningPlot.SCOOP_SIZE + noncePosition);
+      }
+    }
+  }
+
+  long getLowPosition()
+  {
+    return lowPosition;
+  }
+
+  long getHighPosition()
+  {
+    return highPosition;
+  }
+
+  /* read scoop data, low scoops followed by high scoops */
+  ByteBuffer getLow()
+  {
+    return low.duplicate();
+  }
+
+  ByteBuffer getHigh()
+  {
+    return high.duplicate();
+  }
+
+  static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+    throws IOException
+  {
+    buffer.rewind();
+    while(buffer.hasRemaining())
+    {
+      int bytesRead = channel.read(buffer, position + buffer.position());
+      if(bytesRead < 0)
+      {
+        throw new EOFException("unexpected end of file at position " + (position + buffer.position()));
+      }
+    }
+    buffer.flip();
+  }
+
+  static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+    throws IOException
+  {
+    long writePosition = position;
+    while(buffer.hasRemaining())
+    {
+      writePosition += channel.write(buffer, writePosition);
+    }
+  }
+}
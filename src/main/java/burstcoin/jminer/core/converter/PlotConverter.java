@@ -0,0 +1,292 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.converter;
+
+import burstcoin.jminer.core.reader.data.PlotFile;
+import burstcoin.jminer.core.reader.data.PocVersion;
+import nxt.util.Convert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pocminer.generate.MiningPlot;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Converts a POC1 plot file (staggersize in filename) into an optimized POC2 plot file, without mining.
+ *
+ * Low scoops and their mirrors are read in large contiguous regions, one unit per thread, second hashes are swapped
+ * in parallel, and the units are written to their optimized position.
+ * Without target directory the file is converted in place: optimized POC1 files (one chunk) are rewritten within the
+ * file itself, others are written next to it and the POC1 file is deleted after verification.
+ * A checkpoint next to the target allows to continue an interrupted conversion by running it again.
+ */
+public class PlotConverter
+{
+  private static final Logger LOG = LoggerFactory.getLogger(PlotConverter.class);
+
+  public static final String CONVERTING_EXTENSION = ".converting";
+  public static final String CHECKPOINT_EXTENSION = ".checkpoint";
+
+  // max. bytes of low scoops (and of mirrors) read at once per unit
+  private static final int UNIT_SIZE = 4 * 1024 * 1024;
+  private static final int PAIRS = MiningPlot.SCOOPS_PER_PLOT / 2;
+  // nonces checked against MiningPlot before and after conversion
+  private static final int VERIFY_NONCES = 4;
+  private static final int PROGRESS_LOGS = 20;
+
+  private final PlotFile plotFile;
+  private final Path sourcePath;
+  private final Path targetPath;
+  private final Path workPath;
+  private final boolean inPlace;
+  private final boolean swapInPlace;
+  private final int threads;
+
+  private final long stagger;
+  private final long nonces;
+  private final int pairsPerUnit;
+  private final int noncesPerUnit;
+  private final long pairSteps;
+  private final long nonceSteps;
+
+  /**
+   * @param sourcePath POC1 plot file
+   * @param targetDirectory directory of POC2 plot file, null to convert in place
+   * @param threads number of threads shuffling scoops, also number of units read/written per step
+   */
+  public PlotConverter(Path sourcePath, Path targetDirectory, int threads)
+  {
+    this.sourcePath = sourcePath;
+    this.threads = Math.max(1, threads);
+    plotFile = new PlotFile(sourcePath, null);
+    stagger = plotFile.getStaggeramt();
+    nonces = plotFile.getNumberOfChunks() * stagger;
+
+    String poc2Filename = Convert.toUnsignedLong(plotFile.getAddress()) + "_" + Long.toUnsignedString(plotFile.getStartnonce()) + "_" + nonces;
+    inPlace = targetDirectory == null;
+    Path directory = inPlace ? sourcePath.toAbsolutePath().getParent() : targetDirectory;
+    targetPath = directory.resolve(poc2Filename);
+    // optimized poc1 files already have poc2 layout, except the swapped second hashes
+    swapInPlace = inPlace && plotFile.getNumberOfChunks() == 1;
+    workPath = swapInPlace ? sourcePath : directory.resolve(poc2Filename + CONVERTING_EXTENSION);
+
+    // a unit covers whole scoops of chunk, as many as fit, or parts of one scoop
+    long scoopSize = stagger * MiningPlot.SCOOP_SIZE;
+    if(scoopSize <= UNIT_SIZE)
+    {
+      noncesPerUnit = (int) stagger;
+      pairsPerUnit = (int) Math.min(PAIRS, UNIT_SIZE / scoopSize);
+    }
+    else
+    {
+      noncesPerUnit = UNIT_SIZE / MiningPlot.SCOOP_SIZE;
+      pairsPerUnit = 1;
+    }
+    pairSteps = (PAIRS + pairsPerUnit - 1) / pairsPerUnit;
+    nonceSteps = (stagger + noncesPerUnit - 1) / noncesPerUnit;
+  }
+
+  /* converts plot file, returns path of poc2 plot file */
+  public Path convert()
+    throws IOException, InterruptedException
+  {
+    if(!PocVersion.POC_1.equals(plotFile.getPocVersion()))
+    {
+      throw new IOException("'" + sourcePath + "' is not a POC1 plot file, filename has no staggersize.");
+    }
+    if(Files.size(sourcePath) < plotFile.getSize())
+    {
+      throw new IOException("'" + sourcePath + "' is incomplete, expected '" + plotFile.getSize() + "' bytes.");
+    }
+    if(Files.exists(targetPath))
+    {
+      throw new IOException("'" + targetPath + "' already exists.");
+    }
+
+    ConvertCheckpoint checkpoint = new ConvertCheckpoint(Paths.get(targetPath.toString() + CHECKPOINT_EXTENSION), plotFile.getSize());
+    boolean resume = checkpoint.exists();
+    PlotVerifier verifier = new PlotVerifier(plotFile.getAddress(), plotFile.getStartnonce(), nonces);
+
+    LOG.info((resume ? "continue" : "start") + " converting '" + sourcePath + "' to '" + targetPath + "'"
+             + (swapInPlace ? " in place" : "") + " ...");
+
+    ExecutorService shufflePool = Executors.newFixedThreadPool(threads, new ThreadFactory()
+    {
+      @Override
+      public Thread newThread(Runnable runnable)
+      {
+        Thread thread = new Thread(runnable, "convert-shuffle");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    try (FileChannel source = FileChannel.open(sourcePath, swapInPlace
+                                                           ? new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE}
+                                                           : new StandardOpenOption[]{StandardOpenOption.READ});
+         FileChannel target = swapInPlace ? null : FileChannel.open(workPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                                    StandardOpenOption.WRITE))
+    {
+      FileChannel work = swapInPlace ? source : target;
+      long nextUnit = 0;
+      if(resume)
+      {
+        nextUnit = checkpoint.restore(work);
+      }
+      // a partly converted file in place is no valid poc1 file anymore
+      if(!resume || !swapInPlace)
+      {
+        verify(verifier, source, stagger, false);
+      }
+
+      convert(source, work, nextUnit, checkpoint, shufflePool);
+
+      work.force(true);
+      verify(verifier, work, nonces, true);
+    }
+    finally
+    {
+      shufflePool.shutdownNow();
+    }
+
+    Files.move(workPath, targetPath);
+    if(inPlace && !swapInPlace)
+    {
+      Files.delete(sourcePath);
+    }
+    checkpoint.delete();
+    LOG.info("finished converting '" + sourcePath + "' to '" + targetPath + "'.");
+    return targetPath;
+  }
+
+  private void convert(FileChannel source, FileChannel work, long firstUnit, ConvertCheckpoint checkpoint, ExecutorService shufflePool)
+    throws IOException, InterruptedException
+  {
+    List<ConvertUnit> units = new ArrayList<>();
+    for(int i = 0; i < threads; i++)
+    {
+      units.add(new ConvertUnit(pairsPerUnit * noncesPerUnit * MiningPlot.SCOOP_SIZE));
+    }
+
+    long numberOfUnits = plotFile.getNumberOfChunks() * pairSteps * nonceSteps;
+    long startTime = System.currentTimeMillis();
+    int progressLogStep = (int) (firstUnit * PROGRESS_LOGS / numberOfUnits);
+    for(long unitIndex = firstUnit; unitIndex < numberOfUnits; unitIndex += units.size())
+    {
+      List<ConvertUnit> step = units.subList(0, (int) Math.min(units.size(), numberOfUnits - unitIndex));
+      for(int i = 0; i < step.size(); i++)
+      {
+        init(step.get(i), unitIndex + i);
+        step.get(i).read(source);
+      }
+      if(swapInPlace)
+      {
+        // keep original scoops, in case step gets interrupted while written
+        checkpoint.save(unitIndex, step);
+      }
+
+      shuffle(step, shufflePool);
+
+      for(ConvertUnit unit : step)
+      {
+        unit.write(work, nonces, stagger);
+      }
+      work.force(false);
+      checkpoint.save(unitIndex + step.size(), Collections.<ConvertUnit>emptyList());
+
+      long convertedUnits = unitIndex + step.size();
+      if(convertedUnits * PROGRESS_LOGS / numberOfUnits > progressLogStep)
+      {
+        progressLogStep = (int) (convertedUnits * PROGRESS_LOGS / numberOfUnits);
+        long elapsedTime = Math.max(1, System.currentTimeMillis() - startTime);
+        long convertedBytes = (convertedUnits - firstUnit) * plotFile.getSize() / numberOfUnits;
+        LOG.info(progressLogStep * 100 / PROGRESS_LOGS + "% converted, " + convertedBytes / 1000 / elapsedTime + " MB/s");
+      }
+    }
+  }
+
+  // units of a chunk: pair steps of nonce steps
+  private void init(ConvertUnit unit, long unitIndex)
+  {
+    long unitsPerChunk = pairSteps * nonceSteps;
+    long chunk = unitIndex / unitsPerChunk;
+    long pairStep = unitIndex % unitsPerChunk / nonceSteps;
+    long nonceStep = unitIndex % nonceSteps;
+
+    int firstPair = (int) (pairStep * pairsPerUnit);
+    long firstNonce = nonceStep * noncesPerUnit;
+    unit.init(chunk, firstPair, Math.min(pairsPerUnit, PAIRS - firstPair), firstNonce, (int) Math.min(noncesPerUnit, stagger - firstNonce), stagger);
+  }
+
+  private static void shuffle(List<ConvertUnit> units, ExecutorService shufflePool)
+    throws InterruptedException
+  {
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for(ConvertUnit unit : units)
+    {
+      tasks.add(new Callable<Void>()
+      {
+        @Override
+        public Void call()
+        {
+          unit.shuffle();
+          return null;
+        }
+      });
+    }
+    try
+    {
+      for(Future<Void> future : shufflePool.invokeAll(tasks))
+      {
+        future.get();
+      }
+    }
+    catch(ExecutionException e)
+    {
+      throw new IllegalStateException("shuffle scoops failed", e.getCause());
+    }
+  }
+
+  private void verify(PlotVerifier verifier, FileChannel channel, long layoutStagger, boolean poc2)
+    throws IOException
+  {
+    long nonce = verifier.verify(channel, layoutStagger, poc2, VERIFY_NONCES);
+    if(nonce >= 0)
+    {
+      throw new IOException((poc2 ? "converted" : "source") + " plot file does not match generated nonce '"
+                            + Long.toUnsignedString(plotFile.getStartnonce() + nonce) + "' of '" + sourcePath + "'.");
+    }
+  }
+}
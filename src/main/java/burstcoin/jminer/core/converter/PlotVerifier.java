@@ -0,0 +1,94 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.converter;
+
+import pocminer.generate.MiningPlot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares scoops of some nonces of a plot file with the ones generated by MiningPlot.
+ */
+final class PlotVerifier
+{
+  private final long address;
+  private final long startNonce;
+  private final long nonces;
+
+  PlotVerifier(long address, long startNonce, long nonces)
+  {
+    this.address = address;
+    this.startNonce = startNonce;
+    this.nonces = nonces;
+  }
+
+  /* checks first, last and some random nonces, returns the first one that does not match, -1 if all match */
+  long verify(FileChannel channel, long stagger, boolean poc2, int count)
+    throws IOException
+  {
+    long[] plotNonces = new long[Math.max(2, count)];
+    plotNonces[0] = 0;
+    plotNonces[1] = nonces - 1;
+    for(int i = 2; i < plotNonces.length; i++)
+    {
+      plotNonces[i] = ThreadLocalRandom.current().nextLong(nonces);
+    }
+
+    for(long nonce : plotNonces)
+    {
+      if(!verify(channel, stagger, poc2, nonce))
+      {
+        return nonce;
+      }
+    }
+    return -1;
+  }
+
+  private boolean verify(FileChannel channel, long stagger, boolean poc2, long nonce)
+    throws IOException
+  {
+    MiningPlot plot = new MiningPlot(address, startNonce + nonce);
+    long chunkPosition = nonce / stagger * stagger * MiningPlot.PLOT_SIZE;
+    long noncePosition = nonce % stagger * MiningPlot.SCOOP_SIZE;
+
+    ByteBuffer scoop = ByteBuffer.allocate(MiningPlot.SCOOP_SIZE);
+    byte[] expected = new byte[MiningPlot.SCOOP_SIZE];
+    for(int scoopNumber = 0; scoopNumber < MiningPlot.SCOOPS_PER_PLOT; scoopNumber++)
+    {
+      ConvertUnit.readFully(channel, scoop, chunkPosition + scoopNumber * stagger * MiningPlot.SCOOP_SIZE + noncePosition);
+
+      // poc2 takes second hash from mirror scoop
+      int mirrorNumber = poc2 ? MiningPlot.SCOOPS_PER_PLOT - 1 - scoopNumber : scoopNumber;
+      System.arraycopy(plot.data, scoopNumber * MiningPlot.SCOOP_SIZE, expected, 0, MiningPlot.HASH_SIZE);
+      System.arraycopy(plot.data, mirrorNumber * MiningPlot.SCOOP_SIZE + MiningPlot.HASH_SIZE, expected, MiningPlot.HASH_SIZE, MiningPlot.HASH_SIZE);
+      if(!Arrays.equals(expected, scoop.array()))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+}
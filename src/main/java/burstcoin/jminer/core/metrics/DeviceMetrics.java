@@ -0,0 +1,89 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Check metrics of one checker device, e.g. openCL device or cpu.
+ */
+public class DeviceMetrics
+{
+  // from enqueue until result is back, including time waiting for device
+  private static final double[] CHECK_BOUNDS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+  private final LongAdder checkedNonces = new LongAdder();
+  private final LongAdder pendingParts = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final Histogram checkLatency = new Histogram(CHECK_BOUNDS);
+
+  DeviceMetrics()
+  {
+  }
+
+  /* part is enqueued or started, returns start time for checked() */
+  public long started()
+  {
+    pendingParts.increment();
+    return System.nanoTime();
+  }
+
+  public void checked(long startTime, long nonces)
+  {
+    long nanos = System.nanoTime() - startTime;
+    pendingParts.decrement();
+    checkedNonces.add(nonces);
+    checkLatency.record(nanos);
+  }
+
+  public void failed()
+  {
+    pendingParts.decrement();
+    errors.increment();
+  }
+
+  /* part was not checked, e.g. on shutdown */
+  public void aborted()
+  {
+    pendingParts.decrement();
+  }
+
+  long getCheckedNonces()
+  {
+    return checkedNonces.sum();
+  }
+
+  long getPendingParts()
+  {
+    return pendingParts.sum();
+  }
+
+  long getErrors()
+  {
+    return errors.sum();
+  }
+
+  Histogram getCheckLatency()
+  {
+    return checkLatency;
+  }
+}
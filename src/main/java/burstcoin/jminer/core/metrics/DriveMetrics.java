@@ -0,0 +1,97 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read metrics of one plot drive (directory).
+ */
+public class DriveMetrics
+{
+  // single chunk part reads, from page cache hits to slow disks
+  private static final double[] READ_BOUNDS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+  private final LongAdder readBytes = new LongAdder();
+  private final Histogram readLatency = new Histogram(READ_BOUNDS);
+  private final AtomicReference<RoundRead> lastRoundRead = new AtomicReference<>();
+
+  DriveMetrics()
+  {
+  }
+
+  /* chunk part of given size was read in given time */
+  public void read(long bytes, long nanos)
+  {
+    readBytes.add(bytes);
+    readLatency.record(nanos);
+  }
+
+  /* drive (or a part of it, read in parallel) was read completely in given time */
+  public void finished(byte[] generationSignature, long bytes, long nanos)
+  {
+    lastRoundRead.accumulateAndGet(new RoundRead(generationSignature, bytes, nanos), RoundRead::merge);
+  }
+
+  long getReadBytes()
+  {
+    return readBytes.sum();
+  }
+
+  Histogram getReadLatency()
+  {
+    return readLatency;
+  }
+
+  /* throughput of last round, parts of drive read in parallel are summed up */
+  double getLastRoundMegabytesPerSecond()
+  {
+    RoundRead roundRead = lastRoundRead.get();
+    return roundRead != null && roundRead.nanos > 0 ? roundRead.bytes * 1000d / roundRead.nanos : 0;
+  }
+
+  private static final class RoundRead
+  {
+    private final byte[] generationSignature;
+    private final long bytes;
+    private final long nanos;
+
+    private RoundRead(byte[] generationSignature, long bytes, long nanos)
+    {
+      this.generationSignature = generationSignature;
+      this.bytes = bytes;
+      this.nanos = nanos;
+    }
+
+    // previous round is replaced, parts of same round are read in parallel, so the slowest one counts
+    private static RoundRead merge(RoundRead previous, RoundRead next)
+    {
+      if(previous == null || !Arrays.equals(previous.generationSignature, next.generationSignature))
+      {
+        return next;
+      }
+      return new RoundRead(next.generationSignature, previous.bytes + next.bytes, Math.max(previous.nanos, next.nanos));
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.metrics;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations with fixed bucket bounds (seconds), like prometheus histograms.
+ * Recording is lock-free, a bucket search and two adder updates, so it can be used on hot paths.
+ */
+public class Histogram
+{
+  private final double[] bounds;
+  // not cumulative, last bucket is '+Inf'
+  private final LongAdder[] buckets;
+  private final DoubleAdder sum;
+
+  public Histogram(double... bounds)
+  {
+    this.bounds = bounds.clone();
+    buckets = new LongAdder[bounds.length + 1];
+    for(int i = 0; i < buckets.length; i++)
+    {
+      buckets[i] = new LongAdder();
+    }
+    sum = new DoubleAdder();
+  }
+
+  public void record(long nanos)
+  {
+    double seconds = nanos / 1000000000d;
+    int bucket = 0;
+    while(bucket < bounds.length && seconds > bounds[bucket])
+    {
+      bucket++;
+    }
+    buckets[bucket].increment();
+    sum.add(seconds);
+  }
+
+  void write(StringBuilder out, String name, String labels)
+  {
+    String separator = labels.isEmpty() ? "" : ",";
+    long count = 0;
+    for(int i = 0; i < buckets.length; i++)
+    {
+      count += buckets[i].sum();
+      String le = i < bounds.length ? String.valueOf(bounds[i]) : "+Inf";
+      TextFormat.sample(out, name + "_bucket", labels + separator + "le=\"" + le + "\"", count);
+    }
+    TextFormat.sample(out, name + "_sum", labels, sum.sum());
+    TextFormat.sample(out, name + "_count", labels, count);
+  }
+}
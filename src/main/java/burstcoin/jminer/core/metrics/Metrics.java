@@ -0,0 +1,248 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.metrics;
+
+import burstcoin.jminer.core.reader.event.ReaderProgressChangedEvent;
+import burstcoin.jminer.core.round.event.RoundFinishedEvent;
+import burstcoin.jminer.core.round.event.RoundStartedEvent;
+import burstcoin.jminer.core.round.event.RoundStoppedEvent;
+import org.springframework.context.annotation.Scope;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of miner internals, exported by metrics server.
+ *
+ * Recorders (drive, device, submit) are looked up once per task and only update adders, so recording is lock-free.
+ * Round durations are split into read (until last part is read), check (until last result of round is checked)
+ * and submit (until last result is confirmed and round is finished).
+ */
+@Component
+@Scope("singleton")
+public class Metrics
+{
+  // rounds take up to a few minutes on big farms
+  private static final double[] ROUND_BOUNDS = {0.1, 0.25, 0.5, 1, 2.5, 5, 10, 20, 30, 45, 60, 90, 120, 240};
+
+  private final Map<String, DriveMetrics> drives = new ConcurrentSkipListMap<>();
+  private final Map<String, DeviceMetrics> devices = new ConcurrentSkipListMap<>();
+  private final Map<String, SubmitMetrics> submits = new ConcurrentSkipListMap<>();
+  private final Map<String, Gauge> gauges = new ConcurrentSkipListMap<>();
+
+  private final Histogram roundRead = new Histogram(ROUND_BOUNDS);
+  private final Histogram roundCheck = new Histogram(ROUND_BOUNDS);
+  private final Histogram roundSubmit = new Histogram(ROUND_BOUNDS);
+  private final Histogram roundTotal = new Histogram(ROUND_BOUNDS);
+  private final LongAdder finishedRounds = new LongAdder();
+  private final LongAdder stoppedRounds = new LongAdder();
+  private volatile int networkQuality = -1;
+
+  // timing of current round
+  private volatile RoundTimer roundTimer;
+
+  public DriveMetrics drive(String directory)
+  {
+    return drives.computeIfAbsent(directory, key -> new DriveMetrics());
+  }
+
+  public DeviceMetrics device(String name)
+  {
+    return devices.computeIfAbsent(name, key -> new DeviceMetrics());
+  }
+
+  /* 'pool' or 'solo' */
+  public SubmitMetrics submit(String mode)
+  {
+    return submits.computeIfAbsent(mode, key -> new SubmitMetrics());
+  }
+
+  /* value is read on every scrape, e.g. queue sizes */
+  public void gauge(String name, String help, LongSupplier value)
+  {
+    gauges.put(name, new Gauge(help, value));
+  }
+
+  /* result of current round was checked */
+  public void resultChecked()
+  {
+    RoundTimer timer = roundTimer;
+    if(timer != null)
+    {
+      timer.lastCheckTime = System.nanoTime();
+    }
+  }
+
+  @EventListener
+  public void handleMessage(RoundStartedEvent event)
+  {
+    roundTimer = new RoundTimer(event.getBlockNumber(), System.nanoTime());
+  }
+
+  @EventListener
+  public void handleMessage(ReaderProgressChangedEvent event)
+  {
+    RoundTimer timer = roundTimer;
+    if(timer != null && event.getBlockNumber() == timer.blockNumber && event.getRemainingCapacity() <= 0)
+    {
+      timer.readTime = System.nanoTime();
+    }
+  }
+
+  @EventListener
+  public void handleMessage(RoundStoppedEvent event)
+  {
+    stoppedRounds.increment();
+  }
+
+  @EventListener
+  public void handleMessage(RoundFinishedEvent event)
+  {
+    networkQuality = event.getNetworkQuality();
+    RoundTimer timer = roundTimer;
+    if(timer != null && event.getBlockNumber() == timer.blockNumber)
+    {
+      roundTimer = null;
+      long finishTime = System.nanoTime();
+      // without any part (e.g. no plots), read and check end with round
+      long readTime = timer.readTime > 0 ? timer.readTime : finishTime;
+      long checkTime = Math.max(readTime, timer.lastCheckTime);
+      roundRead.record(readTime - timer.startTime);
+      roundCheck.record(checkTime - readTime);
+      roundSubmit.record(finishTime - checkTime);
+      roundTotal.record(finishTime - timer.startTime);
+      finishedRounds.increment();
+    }
+  }
+
+  /* all metrics in prometheus text format */
+  public String write()
+  {
+    StringBuilder out = new StringBuilder();
+
+    TextFormat.header(out, "jminer_drive_read_bytes_total", "counter", "Bytes of scoops read from plot files of drive.");
+    for(Map.Entry<String, DriveMetrics> entry : drives.entrySet())
+    {
+      TextFormat.sample(out, "jminer_drive_read_bytes_total", TextFormat.labels("drive", entry.getKey()), entry.getValue().getReadBytes());
+    }
+    TextFormat.header(out, "jminer_drive_read_megabytes_per_second", "gauge", "Read throughput of drive in last round.");
+    for(Map.Entry<String, DriveMetrics> entry : drives.entrySet())
+    {
+      TextFormat.sample(out, "jminer_drive_read_megabytes_per_second", TextFormat.labels("drive", entry.getKey()),
+                        entry.getValue().getLastRoundMegabytesPerSecond());
+    }
+    TextFormat.header(out, "jminer_drive_read_seconds", "histogram", "Read time of single chunk parts.");
+    for(Map.Entry<String, DriveMetrics> entry : drives.entrySet())
+    {
+      entry.getValue().getReadLatency().write(out, "jminer_drive_read_seconds", TextFormat.labels("drive", entry.getKey()));
+    }
+
+    TextFormat.header(out, "jminer_checker_nonces_total", "counter", "Nonces checked by device.");
+    for(Map.Entry<String, DeviceMetrics> entry : devices.entrySet())
+    {
+      TextFormat.sample(out, "jminer_checker_nonces_total", TextFormat.labels("device", entry.getKey()), entry.getValue().getCheckedNonces());
+    }
+    TextFormat.header(out, "jminer_checker_pending_parts", "gauge", "Chunk parts enqueued on or checked by device.");
+    for(Map.Entry<String, DeviceMetrics> entry : devices.entrySet())
+    {
+      TextFormat.sample(out, "jminer_checker_pending_parts", TextFormat.labels("device", entry.getKey()), entry.getValue().getPendingParts());
+    }
+    TextFormat.header(out, "jminer_checker_errors_total", "counter", "Failed checks of device.");
+    for(Map.Entry<String, DeviceMetrics> entry : devices.entrySet())
+    {
+      TextFormat.sample(out, "jminer_checker_errors_total", TextFormat.labels("device", entry.getKey()), entry.getValue().getErrors());
+    }
+    TextFormat.header(out, "jminer_checker_check_seconds", "histogram", "Time from enqueue until result of chunk part is back.");
+    for(Map.Entry<String, DeviceMetrics> entry : devices.entrySet())
+    {
+      entry.getValue().getCheckLatency().write(out, "jminer_checker_check_seconds", TextFormat.labels("device", entry.getKey()));
+    }
+
+    TextFormat.header(out, "jminer_round_seconds", "histogram", "Duration of finished rounds, by phase read, check, submit and total.");
+    roundRead.write(out, "jminer_round_seconds", TextFormat.labels("phase", "read"));
+    roundCheck.write(out, "jminer_round_seconds", TextFormat.labels("phase", "check"));
+    roundSubmit.write(out, "jminer_round_seconds", TextFormat.labels("phase", "submit"));
+    roundTotal.write(out, "jminer_round_seconds", TextFormat.labels("phase", "total"));
+    TextFormat.header(out, "jminer_rounds_finished_total", "counter", "Rounds finished.");
+    TextFormat.sample(out, "jminer_rounds_finished_total", "", finishedRounds.sum());
+    TextFormat.header(out, "jminer_rounds_stopped_total", "counter", "Rounds stopped by next block before finished.");
+    TextFormat.sample(out, "jminer_rounds_stopped_total", "", stoppedRounds.sum());
+    TextFormat.header(out, "jminer_network_quality", "gauge", "Network quality of last finished round in percent, -1 before first round.");
+    TextFormat.sample(out, "jminer_network_quality", "", networkQuality);
+
+    TextFormat.header(out, "jminer_submit_accepted_total", "counter", "Submitted nonces accepted by pool or wallet.");
+    for(Map.Entry<String, SubmitMetrics> entry : submits.entrySet())
+    {
+      TextFormat.sample(out, "jminer_submit_accepted_total", TextFormat.labels("mode", entry.getKey()), entry.getValue().getAccepted());
+    }
+    TextFormat.header(out, "jminer_submit_errors_total", "counter", "Submitted nonces failed, by reason.");
+    for(Map.Entry<String, SubmitMetrics> entry : submits.entrySet())
+    {
+      for(Map.Entry<String, LongAdder> error : entry.getValue().getErrors().entrySet())
+      {
+        TextFormat.sample(out, "jminer_submit_errors_total", TextFormat.labels("mode", entry.getKey(), "reason", error.getKey()), error.getValue().sum());
+      }
+    }
+    TextFormat.header(out, "jminer_submit_seconds", "histogram", "Time until response of submit request.");
+    for(Map.Entry<String, SubmitMetrics> entry : submits.entrySet())
+    {
+      entry.getValue().getSubmitLatency().write(out, "jminer_submit_seconds", TextFormat.labels("mode", entry.getKey()));
+    }
+
+    for(Map.Entry<String, Gauge> entry : gauges.entrySet())
+    {
+      TextFormat.header(out, entry.getKey(), "gauge", entry.getValue().help);
+      TextFormat.sample(out, entry.getKey(), "", entry.getValue().value.getAsLong());
+    }
+    return out.toString();
+  }
+
+  private static final class RoundTimer
+  {
+    private final long blockNumber;
+    private final long startTime;
+    private volatile long readTime;
+    private volatile long lastCheckTime;
+
+    private RoundTimer(long blockNumber, long startTime)
+    {
+      this.blockNumber = blockNumber;
+      this.startTime = startTime;
+    }
+  }
+
+  private static final class Gauge
+  {
+    private final String help;
+    private final LongSupplier value;
+
+    private Gauge(String help, LongSupplier value)
+    {
+      this.help = help;
+      this.value = value;
+    }
+  }
+}
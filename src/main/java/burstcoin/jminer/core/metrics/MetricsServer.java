@@ -0,0 +1,127 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.metrics;
+
+import burstcoin.jminer.core.CoreProperties;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Serves metrics on 'http://metricsHost:metricsPort/metrics' for prometheus, if 'metricsPort' is set.
+ */
+@Component
+@Scope("singleton")
+public class MetricsServer
+{
+  private static final Logger LOG = LoggerFactory.getLogger(MetricsServer.class);
+
+  private static final String METRICS_PATH = "/metrics";
+  // acceptor and selector need a thread each, scrapes are rare
+  private static final int MAX_THREADS = 4;
+
+  private final Metrics metrics;
+  private Server server;
+
+  @Autowired
+  public MetricsServer(Metrics metrics)
+  {
+    this.metrics = metrics;
+  }
+
+  @PostConstruct
+  protected void postConstruct()
+  {
+    int port = CoreProperties.getMetricsPort();
+    if(port > 0)
+    {
+      QueuedThreadPool threadPool = new QueuedThreadPool(MAX_THREADS, 1);
+      threadPool.setName("metrics");
+      threadPool.setDaemon(true);
+      server = new Server(threadPool);
+
+      ServerConnector connector = new ServerConnector(server, 1, 1);
+      connector.setHost(CoreProperties.getMetricsHost());
+      connector.setPort(port);
+      server.addConnector(connector);
+      server.setHandler(new AbstractHandler()
+      {
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+          throws IOException
+        {
+          if(METRICS_PATH.equals(target))
+          {
+            response.setContentType(TextFormat.CONTENT_TYPE);
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.getWriter().write(metrics.write());
+          }
+          else
+          {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+          }
+          baseRequest.setHandled(true);
+        }
+      });
+
+      try
+      {
+        server.start();
+        LOG.info("metrics on 'http://" + CoreProperties.getMetricsHost() + ":" + port + METRICS_PATH + "'");
+      }
+      catch(Exception e)
+      {
+        LOG.error("metrics server could not be started on port '" + port + "': " + e.getMessage());
+        server = null;
+      }
+    }
+  }
+
+  @PreDestroy
+  protected void preDestroy()
+  {
+    if(server != null)
+    {
+      try
+      {
+        server.stop();
+      }
+      catch(Exception e)
+      {
+        LOG.debug("metrics server stop failed: " + e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Submit metrics of pool or solo nonce submission.
+ */
+public class SubmitMetrics
+{
+  // network round trips, up to connection timeout
+  private static final double[] SUBMIT_BOUNDS = {0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 20, 30};
+
+  private final LongAdder accepted = new LongAdder();
+  private final Map<String, LongAdder> errors = new ConcurrentSkipListMap<>();
+  private final Histogram submitLatency = new Histogram(SUBMIT_BOUNDS);
+
+  SubmitMetrics()
+  {
+  }
+
+  /* response received, for start time taken before request was sent */
+  public void responded(long startTime)
+  {
+    submitLatency.record(System.nanoTime() - startTime);
+  }
+
+  public void accepted()
+  {
+    accepted.increment();
+  }
+
+  /* reason of failure, e.g. 'rejected' or 'timeout' */
+  public void failed(String reason)
+  {
+    errors.computeIfAbsent(reason, key -> new LongAdder()).increment();
+  }
+
+  long getAccepted()
+  {
+    return accepted.sum();
+  }
+
+  Map<String, LongAdder> getErrors()
+  {
+    return errors;
+  }
+
+  Histogram getSubmitLatency()
+  {
+    return submitLatency;
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.metrics;
+
+/**
+ * Prometheus text exposition format (version 0.0.4), also accepted by openMetrics scrapers.
+ */
+final class TextFormat
+{
+  static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private TextFormat()
+  {
+    // no instances
+  }
+
+  static void header(StringBuilder out, String name, String type, String help)
+  {
+    out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  static void sample(StringBuilder out, String name, String labels, double value)
+  {
+    out.append(name);
+    if(!labels.isEmpty())
+    {
+      out.append('{').append(labels).append('}');
+    }
+    out.append(' ');
+    if(value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < Long.MAX_VALUE)
+    {
+      out.append((long) value);
+    }
+    else
+    {
+      out.append(value);
+    }
+    out.append('\n');
+  }
+
+  /* label pairs 'name="value"' of alternating names and values */
+  static String labels(String... namesAndValues)
+  {
+    StringBuilder labels = new StringBuilder();
+    for(int i = 0; i + 1 < namesAndValues.length; i += 2)
+    {
+      if(labels.length() > 0)
+      {
+        labels.append(',');
+      }
+      labels.append(namesAndValues[i]).append("=\"").append(escape(namesAndValues[i + 1])).append('"');
+    }
+    return labels.toString();
+  }
+
+  private static String escape(String value)
+  {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+}
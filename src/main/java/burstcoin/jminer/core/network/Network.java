@@ -24,6 +24,7 @@ package burstcoin.jminer.core.network;
 
 import burstcoin.jminer.core.CoreProperties;
 import burstcoin.jminer.core.network.event.NetworkStateChangeEvent;
+import burstcoin.jminer.core.network.task.NetworkMiningInfoPushTask;
 import burstcoin.jminer.core.network.task.NetworkRequestLastWinnerTask;
 import burstcoin.jminer.core.network.task.NetworkRequestMiningInfoTask;
 import burstcoin.jminer.core.network.task.NetworkRequestPoolInfoTask;
@@ -39,15 +40,15 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Scope;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
 import javax.annotation.PostConstruct;
-import java.math.BigInteger;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 @Component
 @Scope("singleton")
@@ -55,20 +56,31 @@ public class Network
 {
   private static final Logger LOG = LoggerFactory.getLogger(Network.class);
 
+  // expected time between blocks
+  private static final long BLOCK_TIME = TimeUnit.MINUTES.toMillis(4);
+
   private final ApplicationContext context;
   private final SimpleAsyncTaskExecutor networkPool;
-
-  private long blockNumber;
-  private Timer timer;
-  private byte[] generationSignature;
+  private final ThreadPoolTaskScheduler miningInfoPollPool;
+
+  // updated by event and push threads, read by poll thread
+  private volatile long blockNumber;
+  // time block height changed, 0 before first block
+  private volatile long blockTime;
+  private volatile byte[] generationSignature;
+  // polls one after the other on miningInfoPollPool, so keep-alive connection is reused
+  private NetworkRequestMiningInfoTask networkRequestMiningInfoTask;
+  private NetworkMiningInfoPushTask networkMiningInfoPushTask;
   private String mac; // unique system id
   private Plots plots;
 
   @Autowired
-  public Network(ApplicationContext context, @Qualifier(value = "networkPool") SimpleAsyncTaskExecutor networkPool)
+  public Network(ApplicationContext context, @Qualifier(value = "networkPool") SimpleAsyncTaskExecutor networkPool,
+                 @Qualifier(value = "miningInfoPollPool") ThreadPoolTaskScheduler miningInfoPollPool)
   {
     this.context = context;
     this.networkPool = networkPool;
+    this.miningInfoPollPool = miningInfoPollPool;
   }
 
   @PostConstruct
@@ -79,7 +91,7 @@ public class Network
     plots = reader.getPlots();
 
     mac = getMac();
-    timer = new Timer();
+    networkRequestMiningInfoTask = context.getBean(NetworkRequestMiningInfoTask.class);
 
     if(CoreProperties.isPoolMining() && (StringUtils.isEmpty(CoreProperties.getPoolServer()) || StringUtils.isEmpty(CoreProperties.getNumericAccountId())))
     {
@@ -118,6 +130,10 @@ public class Network
   @EventListener
   public void handleMessage(NetworkStateChangeEvent event)
   {
+    if(event.getBlockNumber() > blockNumber)
+    {
+      blockTime = System.currentTimeMillis();
+    }
     blockNumber = event.getBlockNumber();
     generationSignature = event.getGenerationSignature();
   }
@@ -125,12 +141,50 @@ public class Network
   private void checkNetworkState()
   {
     String server = CoreProperties.isPoolMining() ? CoreProperties.getPoolServer() : CoreProperties.getSoloServer();
-    if(!StringUtils.isEmpty(server))
+    boolean pushed = networkMiningInfoPushTask != null && networkMiningInfoPushTask.isConnected();
+    if(!StringUtils.isEmpty(server) && !pushed)
     {
-      NetworkRequestMiningInfoTask networkRequestMiningInfoTask = context.getBean(NetworkRequestMiningInfoTask.class);
+      // runs on poll thread, until response or connectionTimeout
       networkRequestMiningInfoTask.init(server, blockNumber, generationSignature, plots.getSize());
-      networkPool.execute(networkRequestMiningInfoTask);
+      networkRequestMiningInfoTask.run();
+    }
+  }
+
+  /* refreshInterval, scaled from 2x after new block down to 1/2 from 3/4 of expected block time on, if adaptive */
+  private long getRefreshDelay()
+  {
+    long refreshInterval = CoreProperties.getRefreshInterval();
+    if(!CoreProperties.isAdaptiveRefresh() || blockTime == 0)
+    {
+      return refreshInterval;
     }
+    long remaining = Math.max(0, BLOCK_TIME - (System.currentTimeMillis() - blockTime));
+    long delay = 2 * refreshInterval * remaining / BLOCK_TIME;
+    return Math.max(refreshInterval / 2, delay);
+  }
+
+  /* next check is scheduled after current one finished, so polls never overlap */
+  private void scheduleNetworkStateCheck(long delay)
+  {
+    miningInfoPollPool.schedule(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        try
+        {
+          checkNetworkState();
+        }
+        catch(RuntimeException e)
+        {
+          LOG.debug("check network state failed: " + e.getMessage(), e);
+        }
+        finally
+        {
+          scheduleNetworkStateCheck(getRefreshDelay());
+        }
+      }
+    }, new Date(System.currentTimeMillis() + delay));
   }
 
   public void checkLastWinner(long blockNumber)
@@ -153,8 +207,8 @@ public class Network
     }
   }
 
-  public void commitResult(long blockNumber, long calculatedDeadline, BigInteger nonce, BigInteger chunkPartStartNonce, long totalCapacity,
-                           BigInteger result, String plotFilePath)
+  public void commitResult(long blockNumber, long calculatedDeadline, long nonce, long chunkPartStartNonce, long totalCapacity,
+                           long result, String plotFilePath)
   {
     if(CoreProperties.isPoolMining())
     {
@@ -173,13 +227,15 @@ public class Network
 
   public void startMining()
   {
-    timer.schedule(new TimerTask()
+    String pushUrl = CoreProperties.getMiningInfoPushUrl();
+    if(!StringUtils.isEmpty(pushUrl))
     {
-      @Override
-      public void run()
-      {
-        checkNetworkState();
-      }
-    }, 1000, CoreProperties.getRefreshInterval());
+      networkMiningInfoPushTask = context.getBean(NetworkMiningInfoPushTask.class);
+      networkMiningInfoPushTask.init(pushUrl, plots.getSize());
+      Thread thread = new Thread(networkMiningInfoPushTask, "mining-info-push");
+      thread.setDaemon(true);
+      thread.start();
+    }
+    scheduleNetworkStateCheck(1000);
   }
 }
@@ -25,7 +25,6 @@ package burstcoin.jminer.core.network.event;
 
 import org.springframework.context.ApplicationEvent;
 
-import java.math.BigInteger;
 
 /**
  * fired if calculatedDeadline was confirmed by server
@@ -36,10 +35,10 @@ public class NetworkResultConfirmedEvent
   private long blockNumber;
   private byte[] generationSignature;
   private long deadline;
-  private BigInteger nonce;
+  private long nonce;
 
-  private BigInteger chunkPartStartNonce;
-  private BigInteger result;
+  private long chunkPartStartNonce;
+  private long result;
 
   /**
    * Instantiates a new Network result confirmed event.
@@ -49,7 +48,7 @@ public class NetworkResultConfirmedEvent
    * @param nonce the nonce
    * @param chunkPartStartNonce the chunk part start nonce
    */
-  public NetworkResultConfirmedEvent(long blockNumber, byte[] generationSignature, long deadline, BigInteger nonce, BigInteger chunkPartStartNonce, BigInteger result)
+  public NetworkResultConfirmedEvent(long blockNumber, byte[] generationSignature, long deadline, long nonce, long chunkPartStartNonce, long result)
   {
     super(blockNumber);
 
@@ -67,7 +66,7 @@ public class NetworkResultConfirmedEvent
    *
    * @return the chunk part start nonce
    */
-  public BigInteger getChunkPartStartNonce()
+  public long getChunkPartStartNonce()
   {
     return chunkPartStartNonce;
   }
@@ -97,12 +96,12 @@ public class NetworkResultConfirmedEvent
    *
    * @return the nonce
    */
-  public BigInteger getNonce()
+  public long getNonce()
   {
     return nonce;
   }
 
-  public BigInteger getResult()
+  public long getResult()
   {
     return result;
   }
@@ -24,7 +24,6 @@ package burstcoin.jminer.core.network.event;
 
 import org.springframework.context.ApplicationEvent;
 
-import java.math.BigInteger;
 
 /**
  * fired if server response deadline does not match calculated deadline.
@@ -34,13 +33,13 @@ public class NetworkResultErrorEvent
 {
   private long blockNumber;
   private byte[] generationSignature;
-  private BigInteger nonce;
+  private long nonce;
 
   private long calculatedDeadline;
   private long strangeDeadline;
 
-  private BigInteger chunkPartStartNonce;
-  private BigInteger result;
+  private long chunkPartStartNonce;
+  private long result;
 
   /**
    * Instantiates a new Network result error event.
@@ -51,7 +50,7 @@ public class NetworkResultErrorEvent
    * @param strangeDeadline the strange deadline
    * @param chunkPartStartNonce the chunk part start nonce
    */
-  public NetworkResultErrorEvent(long blockNumber, byte[] generationSignature, BigInteger nonce, long calculatedDeadline, long strangeDeadline, BigInteger chunkPartStartNonce, BigInteger result)
+  public NetworkResultErrorEvent(long blockNumber, byte[] generationSignature, long nonce, long calculatedDeadline, long strangeDeadline, long chunkPartStartNonce, long result)
   {
     super(blockNumber);
 
@@ -70,7 +69,7 @@ public class NetworkResultErrorEvent
    *
    * @return the chunk part start nonce
    */
-  public BigInteger getChunkPartStartNonce()
+  public long getChunkPartStartNonce()
   {
     return chunkPartStartNonce;
   }
@@ -90,7 +89,7 @@ public class NetworkResultErrorEvent
    *
    * @return the nonce
    */
-  public BigInteger getNonce()
+  public long getNonce()
   {
     return nonce;
   }
@@ -115,7 +114,7 @@ public class NetworkResultErrorEvent
     return strangeDeadline;
   }
 
-  public BigInteger getResult()
+  public long getResult()
   {
     return result;
   }
@@ -0,0 +1,321 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.network.task;
+
+import burstcoin.jminer.core.CoreProperties;
+import burstcoin.jminer.core.network.event.NetworkQualityChangeEvent;
+import burstcoin.jminer.core.network.model.MiningInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.util.InputStreamResponseListener;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Receives mining info pushed by server on 'miningInfoPushUrl', as long as the miner runs.
+ *
+ * 'ws://' and 'wss://' urls are websockets, every text message is a mining info.
+ * Other urls are requested by http: 'text/event-stream' responses are server-sent events, every event is a mining info.
+ * Any other response is a long-poll, the body is a mining info and the url is requested again right away,
+ * a long-poll without answer for 2 minutes is requested again too.
+ * Servers answering instantly without change are requested not more often than 'refreshInterval'.
+ */
+@Component
+@Scope("prototype")
+public class NetworkMiningInfoPushTask
+  implements Runnable
+{
+  private static final Logger LOG = LoggerFactory.getLogger(NetworkMiningInfoPushTask.class);
+
+  private static final long RECONNECT_DELAY = TimeUnit.SECONDS.toMillis(10);
+  // push servers are expected to send keep-alive (e.g. sse comments, ping) or answer long-poll within
+  private static final long IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(2);
+  private static final String EVENT_STREAM = "text/event-stream";
+
+  private final HttpClient httpClient;
+  private final ObjectMapper objectMapper;
+  private final ApplicationEventPublisher publisher;
+
+  private String url;
+  private long plotSizeInByte;
+  private byte[] generationSignature;
+  private WebSocketClient webSocketClient;
+
+  private volatile boolean connected;
+
+  @Autowired
+  public NetworkMiningInfoPushTask(HttpClient httpClient, ObjectMapper objectMapper, ApplicationEventPublisher publisher)
+  {
+    this.httpClient = httpClient;
+    this.objectMapper = objectMapper;
+    this.publisher = publisher;
+  }
+
+  public void init(String url, long plotSizeInByte)
+  {
+    this.url = url;
+    this.plotSizeInByte = plotSizeInByte;
+  }
+
+  /* true while mining info is pushed, polling is not needed meanwhile */
+  public boolean isConnected()
+  {
+    return connected;
+  }
+
+  @Override
+  public void run()
+  {
+    while(!Thread.currentThread().isInterrupted())
+    {
+      long delay = RECONNECT_DELAY;
+      try
+      {
+        if(url.startsWith("ws://") || url.startsWith("wss://"))
+        {
+          receiveWebSocket();
+        }
+        else
+        {
+          receiveHttp();
+        }
+        // closed by server
+        delay = CoreProperties.getRefreshInterval();
+      }
+      catch(InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+      catch(Exception e)
+      {
+        LOG.debug("Unable to receive mining info from '" + url + "': " + e.getMessage());
+        LOG.trace("Unable to receive mining info: " + e.getMessage(), e);
+        publisher.publishEvent(new NetworkQualityChangeEvent(false));
+      }
+      finally
+      {
+        if(connected)
+        {
+          connected = false;
+          LOG.info("mining info push from '" + url + "' disconnected, fallback to polling ...");
+        }
+      }
+
+      try
+      {
+        Thread.sleep(delay);
+      }
+      catch(InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void receiveWebSocket()
+    throws Exception
+  {
+    if(webSocketClient == null)
+    {
+      // shares connector and ssl settings of httpClient
+      webSocketClient = new WebSocketClient(httpClient);
+      webSocketClient.setMaxIdleTimeout(IDLE_TIMEOUT);
+      webSocketClient.start();
+    }
+
+    CountDownLatch closed = new CountDownLatch(1);
+    Session session = webSocketClient.connect(new WebSocketAdapter()
+    {
+      @Override
+      public void onWebSocketText(String message)
+      {
+        try
+        {
+          handle(message);
+        }
+        catch(IOException e)
+        {
+          LOG.debug("Unable to parse pushed mining info: " + message);
+        }
+      }
+
+      @Override
+      public void onWebSocketClose(int statusCode, String reason)
+      {
+        super.onWebSocketClose(statusCode, reason);
+        closed.countDown();
+      }
+
+      @Override
+      public void onWebSocketError(Throwable cause)
+      {
+        LOG.debug("websocket '" + url + "' failed: " + cause.getMessage());
+        closed.countDown();
+      }
+    }, URI.create(url)).get(CoreProperties.getConnectionTimeout(), TimeUnit.MILLISECONDS);
+
+    onConnected("websocket");
+    try
+    {
+      closed.await();
+    }
+    finally
+    {
+      session.close();
+    }
+  }
+
+  // server-sent events or long-poll, depending on response
+  private void receiveHttp()
+    throws Exception
+  {
+    while(!Thread.currentThread().isInterrupted())
+    {
+      long startTime = System.currentTimeMillis();
+      InputStreamResponseListener listener = new InputStreamResponseListener();
+      Request request = httpClient.newRequest(url)
+        .header(HttpHeader.ACCEPT, EVENT_STREAM + ", application/json")
+        .idleTimeout(IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+      request.send(listener);
+
+      // long-poll is answered on next block only, so wait as long as for keep-alive
+      Response response;
+      try
+      {
+        response = listener.get(IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+      }
+      catch(TimeoutException | ExecutionException e)
+      {
+        if(!(e instanceof TimeoutException) && !(e.getCause() instanceof TimeoutException))
+        {
+          throw e;
+        }
+        // long-poll without new mining info, no network failure
+        request.abort(e);
+        LOG.trace("long-poll '" + url + "' timed out, request again ...");
+        continue;
+      }
+
+      try(InputStream inputStream = listener.getInputStream())
+      {
+        if(response.getStatus() >= 400)
+        {
+          throw new IOException("received http status code " + response.getStatus());
+        }
+
+        String contentType = response.getHeaders().get(HttpHeader.CONTENT_TYPE);
+        if(contentType != null && contentType.startsWith(EVENT_STREAM))
+        {
+          onConnected("server-sent events");
+          receiveEvents(inputStream);
+          return;
+        }
+
+        boolean changed = handle(StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8));
+        onConnected("long-poll");
+        long elapsed = System.currentTimeMillis() - startTime;
+        if(!changed && elapsed < CoreProperties.getRefreshInterval())
+        {
+          Thread.sleep(CoreProperties.getRefreshInterval() - elapsed);
+        }
+      }
+    }
+  }
+
+  // 'data:' lines of an event are joined, empty line dispatches it
+  private void receiveEvents(InputStream inputStream)
+    throws IOException
+  {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    StringBuilder data = new StringBuilder();
+    String line;
+    while((line = reader.readLine()) != null)
+    {
+      if(line.isEmpty())
+      {
+        if(data.length() > 0)
+        {
+          handle(data.toString());
+          data.setLength(0);
+        }
+      }
+      else if(line.startsWith("data:"))
+      {
+        if(data.length() > 0)
+        {
+          data.append('\n');
+        }
+        data.append(line.startsWith("data: ") ? line.substring(6) : line.substring(5));
+      }
+      // comments (keep-alive), 'event:', 'id:' and 'retry:' are not needed
+    }
+  }
+
+  private void onConnected(String mode)
+  {
+    if(!connected)
+    {
+      connected = true;
+      LOG.info("mining info pushed by '" + url + "' (" + mode + ")");
+    }
+  }
+
+  /* returns true, if mining info changed */
+  private synchronized boolean handle(String content)
+    throws IOException
+  {
+    MiningInfo result = objectMapper.readValue(content, MiningInfo.class);
+    if(result.getGenerationSignature() == null || result.getHeight() == null || result.getBaseTarget() == null)
+    {
+      LOG.debug("Unable to parse pushed mining info: " + content);
+      return false;
+    }
+    publisher.publishEvent(new NetworkQualityChangeEvent(true));
+
+    byte[] previousGenerationSignature = generationSignature;
+    generationSignature = NetworkRequestMiningInfoTask.publishIfChanged(publisher, result, previousGenerationSignature, plotSizeInByte);
+    return !Arrays.equals(previousGenerationSignature, generationSignature);
+  }
+}
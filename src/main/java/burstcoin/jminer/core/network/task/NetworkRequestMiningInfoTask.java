@@ -108,20 +108,7 @@ public class NetworkRequestMiningInfoTask
       if(result != null)
       {
         success = true;
-        long newBlockNumber = Convert.parseUnsignedLong(result.getHeight());
-        byte[] newGenerationSignature = Convert.parseHexString(result.getGenerationSignature());
-
-        // higher block 'or' same block with other generationSignature
-        if(!Arrays.equals(newGenerationSignature, generationSignature))
-        {
-          long baseTarget = Convert.parseUnsignedLong(result.getBaseTarget());
-          long targetDeadline = getTargetDeadline(result.getTargetDeadline(), baseTarget);
-          publisher.publishEvent(new NetworkStateChangeEvent(newBlockNumber, baseTarget, newGenerationSignature, targetDeadline));
-        }
-        else
-        {
-          LOG.trace("not publish NetworkStateChangeEvent ... '" + newBlockNumber + " <= " + blockNumber + "'");
-        }
+        publishIfChanged(publisher, result, generationSignature, plotSizeInByte);
       }
       else
       {
@@ -154,7 +141,27 @@ public class NetworkRequestMiningInfoTask
     publisher.publishEvent(new NetworkQualityChangeEvent(success));
   }
 
-  private long getTargetDeadline(long deadlineProvidedByPool, long baseTarget)
+  /* publishes NetworkStateChangeEvent, if generationSignature changed, returns generationSignature of mining info */
+  static byte[] publishIfChanged(ApplicationEventPublisher publisher, MiningInfo result, byte[] generationSignature, long plotSizeInByte)
+  {
+    long newBlockNumber = Convert.parseUnsignedLong(result.getHeight());
+    byte[] newGenerationSignature = Convert.parseHexString(result.getGenerationSignature());
+
+    // higher block 'or' same block with other generationSignature
+    if(!Arrays.equals(newGenerationSignature, generationSignature))
+    {
+      long baseTarget = Convert.parseUnsignedLong(result.getBaseTarget());
+      long targetDeadline = getTargetDeadline(result.getTargetDeadline(), baseTarget, plotSizeInByte);
+      publisher.publishEvent(new NetworkStateChangeEvent(newBlockNumber, baseTarget, newGenerationSignature, targetDeadline));
+    }
+    else
+    {
+      LOG.trace("not publish NetworkStateChangeEvent ... same generationSignature on block '" + newBlockNumber + "'");
+    }
+    return newGenerationSignature;
+  }
+
+  private static long getTargetDeadline(long deadlineProvidedByPool, long baseTarget, long plotSizeInByte)
   {
     long targetDeadline;
     long defaultTargetDeadline = CoreProperties.getTargetDeadline();
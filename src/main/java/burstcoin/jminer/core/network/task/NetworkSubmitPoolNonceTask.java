@@ -24,10 +24,13 @@ package burstcoin.jminer.core.network.task;
 
 
 import burstcoin.jminer.core.CoreProperties;
+import burstcoin.jminer.core.metrics.Metrics;
+import burstcoin.jminer.core.metrics.SubmitMetrics;
 import burstcoin.jminer.core.network.event.NetworkResultConfirmedEvent;
 import burstcoin.jminer.core.network.event.NetworkResultErrorEvent;
 import burstcoin.jminer.core.network.model.ResponseError;
 import burstcoin.jminer.core.network.model.SubmitResult;
+import burstcoin.jminer.core.trace.Tracer;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.eclipse.jetty.client.HttpClient;
@@ -43,7 +46,6 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
 import java.io.EOFException;
-import java.math.BigInteger;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -62,28 +64,32 @@ public class NetworkSubmitPoolNonceTask
   private final ApplicationEventPublisher publisher;
   private final HttpClient httpClient;
   private final ObjectMapper objectMapper;
+  private final SubmitMetrics submitMetrics;
+  private final Tracer tracer;
 
   private byte[] generationSignature;
-  private BigInteger nonce;
+  private long nonce;
 
   private long blockNumber;
-  private BigInteger chunkPartStartNonce;
+  private long chunkPartStartNonce;
   private long calculatedDeadline;
   private long totalCapacity;
-  private BigInteger result;
+  private long result;
   private String plotFilePath;
   private String mac;
 
   @Autowired
-  public NetworkSubmitPoolNonceTask(ApplicationEventPublisher publisher, HttpClient httpClient, ObjectMapper objectMapper)
+  public NetworkSubmitPoolNonceTask(ApplicationEventPublisher publisher, HttpClient httpClient, ObjectMapper objectMapper, Metrics metrics, Tracer tracer)
   {
     this.publisher = publisher;
     this.httpClient = httpClient;
     this.objectMapper = objectMapper;
+    submitMetrics = metrics.submit("pool");
+    this.tracer = tracer;
   }
 
-  public void init(long blockNumber, byte[] generationSignature, BigInteger nonce, BigInteger chunkPartStartNonce, long calculatedDeadline, long totalCapacity,
-                   BigInteger result, String plotFilePath, String mac)
+  public void init(long blockNumber, byte[] generationSignature, long nonce, long chunkPartStartNonce, long calculatedDeadline, long totalCapacity,
+                   long result, String plotFilePath, String mac)
   {
     this.generationSignature = generationSignature;
     this.nonce = nonce;
@@ -99,15 +105,17 @@ public class NetworkSubmitPoolNonceTask
   @Override
   public void run()
   {
+    long submitTime = tracer.now();
     String responseContentAsString = "N/A";
     try
     {
       long gb = totalCapacity / 1000 / 1000 / 1000;
+      long startTime = System.nanoTime();
 
       ContentResponse response = httpClient.POST(CoreProperties.getPoolServer() + "/burst")
         .param("requestType", "submitNonce")
         .param("accountId", CoreProperties.getNumericAccountId())
-        .param("nonce", nonce.toString())
+        .param("nonce", Long.toUnsignedString(nonce))
         .param("blockheight", String.valueOf(blockNumber))
         .header("X-Miner", HEADER_MINER_NAME)
         .header("X-Capacity", String.valueOf(gb))
@@ -119,6 +127,7 @@ public class NetworkSubmitPoolNonceTask
 
         .timeout(CoreProperties.getConnectionTimeout(), TimeUnit.MILLISECONDS)
         .send();
+      submitMetrics.responded(startTime);
 
       responseContentAsString = response.getContentAsString();
 
@@ -128,6 +137,7 @@ public class NetworkSubmitPoolNonceTask
         LOG.info("dl '" + calculatedDeadline + "' not accepted by pool!");
         LOG.debug("Error code: '" + error.getErrorCode() + "'.");
         LOG.debug("Error description: '" + error.getErrorDescription() + "'.");
+        submitMetrics.failed("rejected");
         publisher.publishEvent(new NetworkResultErrorEvent(blockNumber, generationSignature, nonce, calculatedDeadline, -1L /*not delivered*/,
                                                            chunkPartStartNonce, result));
       }
@@ -139,12 +149,14 @@ public class NetworkSubmitPoolNonceTask
         {
           if(calculatedDeadline == result.getDeadline())
           {
+            submitMetrics.accepted();
             publisher.publishEvent(new NetworkResultConfirmedEvent(blockNumber, generationSignature, result.getDeadline(), nonce, chunkPartStartNonce,
                                                                    this.result));
           }
           else
           {
             // in general if deadlines do not match, we end up in errorCode above
+            submitMetrics.failed("deadline_mismatch");
             publisher.publishEvent(new NetworkResultErrorEvent(blockNumber, generationSignature, nonce, calculatedDeadline, result.getDeadline(),
                                                                chunkPartStartNonce, this.result));
           }
@@ -152,6 +164,7 @@ public class NetworkSubmitPoolNonceTask
         else
         {
           LOG.warn("Error: Submit nonce to pool not successful: " + response.getContentAsString());
+          submitMetrics.failed("rejected");
           publisher.publishEvent(new NetworkResultErrorEvent(blockNumber, generationSignature, nonce, calculatedDeadline, -1L /*not delivered*/,
                                                              chunkPartStartNonce, this.result));
         }
@@ -161,6 +174,7 @@ public class NetworkSubmitPoolNonceTask
     {
       LOG.warn("Nonce was committed to pool, but not confirmed ... caused by connectionTimeout,"
                + " currently '" + (CoreProperties.getConnectionTimeout() / 1000) + " sec.' try increasing it!");
+      submitMetrics.failed("timeout");
       publisher.publishEvent(new NetworkResultErrorEvent(blockNumber, generationSignature, nonce, calculatedDeadline, -1L /*not delivered*/,
                                                          chunkPartStartNonce, this.result));
     }
@@ -181,6 +195,7 @@ public class NetworkSubmitPoolNonceTask
         LOG.warn("Error: Failed to submit nonce to pool due ExecutionException.");
         LOG.debug("ExecutionException: " + e.getMessage(), e);
       }
+      submitMetrics.failed("connection");
       publisher.publishEvent(new NetworkResultErrorEvent(blockNumber, generationSignature, nonce, calculatedDeadline, -1L /*not delivered*/,
                                                          chunkPartStartNonce, this.result));
     }
@@ -188,6 +203,7 @@ public class NetworkSubmitPoolNonceTask
     {
       LOG.warn("Error: Failed to submit nonce to pool due EOFException.");
       LOG.debug("EOFException: " + e.getMessage(), e);
+      submitMetrics.failed("connection");
       publisher.publishEvent(new NetworkResultErrorEvent(blockNumber, generationSignature, nonce, calculatedDeadline, -1L /*not delivered*/,
                                                          chunkPartStartNonce, this.result));
     }
@@ -195,6 +211,7 @@ public class NetworkSubmitPoolNonceTask
     {
       LOG.warn("Error: On submit nonce to pool, could not parse response: '" + responseContentAsString + "'");
       LOG.debug("JSONMappingException: " + e.getMessage(), e);
+      submitMetrics.failed("invalid_response");
       publisher.publishEvent(new NetworkResultErrorEvent(blockNumber, generationSignature, nonce, calculatedDeadline, -1L /*not delivered*/,
                                                          chunkPartStartNonce, this.result));
     }
@@ -202,8 +219,13 @@ public class NetworkSubmitPoolNonceTask
     {
       LOG.warn("Error: Failed to submit nonce to pool due Exception.");
       LOG.debug("Exception: " + e.getMessage(), e);
+      submitMetrics.failed("other");
       publisher.publishEvent(new NetworkResultErrorEvent(blockNumber, generationSignature, nonce, calculatedDeadline, -1L /*not delivered*/,
                                                          chunkPartStartNonce, this.result));
     }
+    finally
+    {
+      tracer.part("submit", blockNumber, chunkPartStartNonce, submitTime);
+    }
   }
 }
@@ -23,9 +23,12 @@
 package burstcoin.jminer.core.network.task;
 
 import burstcoin.jminer.core.CoreProperties;
+import burstcoin.jminer.core.metrics.Metrics;
+import burstcoin.jminer.core.metrics.SubmitMetrics;
 import burstcoin.jminer.core.network.event.NetworkResultConfirmedEvent;
 import burstcoin.jminer.core.network.event.NetworkResultErrorEvent;
 import burstcoin.jminer.core.network.model.SubmitResult;
+import burstcoin.jminer.core.trace.Tracer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.api.ContentResponse;
@@ -36,7 +39,6 @@ import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
-import java.math.BigInteger;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -53,23 +55,27 @@ public class NetworkSubmitSoloNonceTask
   private final ApplicationEventPublisher publisher;
   private final HttpClient httpClient;
   private final ObjectMapper objectMapper;
+  private final SubmitMetrics submitMetrics;
+  private final Tracer tracer;
 
-  private BigInteger nonce;
+  private long nonce;
   private long blockNumber;
-  private BigInteger chunkPartStartNonce;
+  private long chunkPartStartNonce;
   private long calculatedDeadline;
-  private BigInteger result;
+  private long result;
   private byte[] generationSignature;
 
   @Autowired
-  public NetworkSubmitSoloNonceTask(ApplicationEventPublisher publisher, HttpClient httpClient, ObjectMapper objectMapper)
+  public NetworkSubmitSoloNonceTask(ApplicationEventPublisher publisher, HttpClient httpClient, ObjectMapper objectMapper, Metrics metrics, Tracer tracer)
   {
     this.publisher = publisher;
     this.httpClient = httpClient;
     this.objectMapper = objectMapper;
+    submitMetrics = metrics.submit("solo");
+    this.tracer = tracer;
   }
 
-  public void init(long blockNumber, byte[] generationSignature, BigInteger nonce, BigInteger chunkPartStartNonce, long calculatedDeadline, BigInteger result)
+  public void init(long blockNumber, byte[] generationSignature, long nonce, long chunkPartStartNonce, long calculatedDeadline, long result)
   {
     this.generationSignature = generationSignature;
     this.nonce = nonce;
@@ -82,14 +88,17 @@ public class NetworkSubmitSoloNonceTask
   @Override
   public void run()
   {
+    long submitTime = tracer.now();
     try
     {
+      long startTime = System.nanoTime();
       ContentResponse response = httpClient.POST(CoreProperties.getSoloServer() + "/burst")
         .param("requestType", "submitNonce")
         .param("secretPhrase", CoreProperties.getPassPhrase())
-        .param("nonce", nonce.toString())
+        .param("nonce", Long.toUnsignedString(nonce))
         .timeout(CoreProperties.getConnectionTimeout(), TimeUnit.MILLISECONDS)
         .send();
+      submitMetrics.responded(startTime);
 
       SubmitResult result = objectMapper.readValue(response.getContentAsString(), SubmitResult.class);
 
@@ -97,11 +106,13 @@ public class NetworkSubmitSoloNonceTask
       {
         if(calculatedDeadline == result.getDeadline())
         {
+          submitMetrics.accepted();
           publisher
             .publishEvent(new NetworkResultConfirmedEvent(blockNumber, generationSignature, result.getDeadline(), nonce, chunkPartStartNonce, this.result));
         }
         else
         {
+          submitMetrics.failed("deadline_mismatch");
           publisher.publishEvent(
             new NetworkResultErrorEvent(blockNumber, generationSignature, nonce, calculatedDeadline, result.getDeadline(), chunkPartStartNonce, this.result));
         }
@@ -109,16 +120,23 @@ public class NetworkSubmitSoloNonceTask
       else
       {
         LOG.warn("Error: Submit solo nonce not successful: " + response.getContentAsString());
+        submitMetrics.failed("rejected");
       }
     }
     catch(TimeoutException timeoutException)
     {
       LOG.warn("Unable to commit solo nonce, caused by connectionTimeout, currently '"
                + (CoreProperties.getConnectionTimeout() / 1000) + " sec.' try increasing it!");
+      submitMetrics.failed("timeout");
     }
     catch(Exception e)
     {
       LOG.warn("Error: Failed to submit solo nonce: " + e.getMessage());
+      submitMetrics.failed("other");
+    }
+    finally
+    {
+      tracer.part("submit", blockNumber, chunkPartStartNonce, submitTime);
     }
   }
 }
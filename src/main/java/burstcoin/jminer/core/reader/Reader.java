@@ -24,12 +24,16 @@ package burstcoin.jminer.core.reader;
 
 
 import burstcoin.jminer.core.CoreProperties;
+import burstcoin.jminer.core.checker.util.OCLChecker;
 import burstcoin.jminer.core.network.event.NetworkBlocksEvent;
 import burstcoin.jminer.core.network.event.NetworkResultErrorEvent;
 import burstcoin.jminer.core.network.model.Block;
 import burstcoin.jminer.core.network.task.NetworkRequestAccountBlocksTask;
+import burstcoin.jminer.core.reader.data.CancellationToken;
+import burstcoin.jminer.core.reader.data.PartBufferPool;
 import burstcoin.jminer.core.reader.data.PlotDrive;
 import burstcoin.jminer.core.reader.data.PlotFile;
+import burstcoin.jminer.core.reader.data.PlotInventory;
 import burstcoin.jminer.core.reader.data.Plots;
 import burstcoin.jminer.core.reader.data.PocVersion;
 import burstcoin.jminer.core.reader.event.ReaderCorruptFileEvent;
@@ -37,6 +41,7 @@ import burstcoin.jminer.core.reader.event.ReaderLoadedPartEvent;
 import burstcoin.jminer.core.reader.event.ReaderProgressChangedEvent;
 import burstcoin.jminer.core.reader.task.ReaderConvertLoadDriveTask;
 import burstcoin.jminer.core.reader.task.ReaderLoadDriveTask;
+import burstcoin.jminer.core.reader.util.BlockDevice;
 import burstcoin.jminer.core.round.event.RoundStoppedEvent;
 import nxt.crypto.Crypto;
 import nxt.util.Convert;
@@ -53,7 +58,6 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
 import javax.annotation.PostConstruct;
-import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -61,10 +65,17 @@ import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
 /**
  * The type Reader.
@@ -75,9 +86,12 @@ public class Reader
 {
   private static final Logger LOG = LoggerFactory.getLogger(Reader.class);
 
+
   private final ApplicationContext context;
   private final ThreadPoolTaskExecutor readerPool;
+  private final ThreadPoolTaskExecutor mirrorReaderPool;
   private final SimpleAsyncTaskExecutor networkPool;
+  private final OCLChecker oclChecker;
 
   // config
   private String numericAccountId;
@@ -86,28 +100,40 @@ public class Reader
   public static volatile AtomicLong blockNumber;
   public static volatile byte[] generationSignature;
 
-  private Plots plots;
+  // snapshot of current round
+  private volatile Plots roundPlots;
+  private PlotInventory plotInventory;
 
-  private Map<BigInteger, Long> realCapacityLookup;
-  private long realRemainingCapacity;
-  private long realCapacity;
+  // cancelled on next round
+  private CancellationToken cancellationToken;
 
-  private Map<BigInteger, Long> capacityLookup;
-  private long remainingCapacity;
-  private long capacity;
+  // progress of current round, replaced on every round
+  private volatile ReadProgress readProgress;
+  private long readProgressInterval;
 
-  private long readerStartTime;
   private int readerThreads;
+  private int ssdReaderThreads;
+
+  // reused part buffers by drive directory
+  private Map<String, PartBufferPool> partBufferPools;
+
+  // devices by drive directory, looked up again only if plots changed
+  private Map<String, BlockDevice> blockDevicesByDirectory;
+  private Plots blockDevicesPlots;
 
   @Autowired
   public Reader(ApplicationContext context, @Qualifier(value = "readerPool") ThreadPoolTaskExecutor readerPool,
-                @Qualifier(value = "networkPool") SimpleAsyncTaskExecutor networkPool)
+                @Qualifier(value = "mirrorReaderPool") ThreadPoolTaskExecutor mirrorReaderPool,
+                @Qualifier(value = "networkPool") SimpleAsyncTaskExecutor networkPool, OCLChecker oclChecker)
   {
     this.context = context;
     this.readerPool = readerPool;
+    this.mirrorReaderPool = mirrorReaderPool;
     this.networkPool = networkPool;
+    this.oclChecker = oclChecker;
 
     blockNumber = new AtomicLong();
+    partBufferPools = new ConcurrentHashMap<>();
   }
 
   @PostConstruct
@@ -137,8 +163,8 @@ public class Reader
     }
 
     readerThreads = CoreProperties.getReaderThreads();
-    capacityLookup = new HashMap<>();
-    realCapacityLookup = new HashMap<>();
+    ssdReaderThreads = CoreProperties.getSsdReaderThreads();
+    readProgressInterval = CoreProperties.getReadProgressInterval();
 
     if(CoreProperties.isListPlotFiles())
     {
@@ -156,49 +182,38 @@ public class Reader
     }
   }
 
-  /* starts reader (once per block) */
-  public void read(long previousBlockNumber, long blockNumber, byte[] generationSignature, int scoopNumber, long lastBestCommittedDeadline, int networkQuality)
+  /* starts reader (once per block), on given plots snapshot, the one of round state */
+  public void read(long previousBlockNumber, long blockNumber, byte[] generationSignature, int scoopNumber, Plots plots, long lastBestCommittedDeadline,
+                   int networkQuality)
   {
+    // stop reader and checker threads of previous round
+    if(cancellationToken != null)
+    {
+      cancellationToken.cancel();
+    }
+    cancellationToken = new CancellationToken();
+    // drop not started tasks of previous round, so tasks of new round start first
+    readerPool.getThreadPoolExecutor().getQueue().clear();
+
+    roundPlots = plots;
     Reader.blockNumber.set(blockNumber);
     Reader.generationSignature = generationSignature;
 
-    // ensure plots are initialized
-    plots = plots == null ? getPlots() : plots;
-
-    if(readerPool.getActiveCount() > 0)
+    ReadProgress previousReadProgress = readProgress;
+    if(readerPool.getActiveCount() > 0 && previousReadProgress != null)
     {
-      long elapsedTime = new Date().getTime() - readerStartTime;
-      context.publishEvent(new RoundStoppedEvent(previousBlockNumber, lastBestCommittedDeadline, capacity, remainingCapacity, elapsedTime, networkQuality));
+      long elapsedTime = new Date().getTime() - previousReadProgress.startTime;
+      context.publishEvent(new RoundStoppedEvent(previousBlockNumber, lastBestCommittedDeadline, previousReadProgress.capacity,
+                                                 previousReadProgress.getRemainingCapacity(), elapsedTime, networkQuality));
     }
 
-    // update reader thread count
-    int poolSize = readerThreads <= 0 ? CoreProperties.getPlotPaths().size() : readerThreads;
-    readerPool.setCorePoolSize(poolSize);
-    readerPool.setMaxPoolSize(poolSize);
-
-    // we use the startnonce of loaded (startnonce+chunk+part) as unique job identifier
-    capacityLookup.clear();
-    capacityLookup.putAll(plots.getChunkPartStartNonces());
-
-    realCapacityLookup.clear();
-    realCapacity = 0;
-
-    Map<BigInteger, Long> capacityLookupCopy = new HashMap<>(capacityLookup);
-    for(BigInteger chunkPartNonces : capacityLookupCopy.keySet())
+    // poc1 drives are read twice, to convert them
+    long realCapacity = 0;
+    for(PlotDrive plotDrive : plots.getPlotDrives())
     {
-      PlotFile plotFile = plots.getPlotFileByChunkPartStartNonce(chunkPartNonces);
-      long realChunkPartNoncesCapacity = isCompatibleWithCurrentPoc(plotFile.getPocVersion())
-                                         ? capacityLookupCopy.get(chunkPartNonces)
-                                         : 2 * capacityLookupCopy.get(chunkPartNonces);
-      realCapacityLookup.put(chunkPartNonces, realChunkPartNoncesCapacity);
-      realCapacity += realChunkPartNoncesCapacity;
+      realCapacity += isCompatibleWithCurrentPoc(plotDrive.getDrivePocVersion()) ? plotDrive.getSize() : 2 * plotDrive.getSize();
     }
-
-    remainingCapacity = plots.getSize();
-    capacity = plots.getSize();
-
-    realRemainingCapacity = realCapacity;
-    readerStartTime = new Date().getTime();
+    readProgress = new ReadProgress(blockNumber, plots.getSize(), realCapacity);
 
     // order by slowest and biggest drives first
     List<PlotDrive> orderedPlotDrives = new ArrayList<>(plots.getPlotDrives());
@@ -206,6 +221,10 @@ public class Reader
     orderedPlotDrives.sort((o1, o2) -> Long.compare(o2.getSize(), o1.getSize())); // order by size
     orderedPlotDrives.sort(Comparator.comparing(o -> isCompatibleWithCurrentPoc(o.getDrivePocVersion()))); // order by poc version
 
+    // tasks by physical device, rotational disks are read by one thread, ssd by multiple
+    Map<String, BlockDevice> blockDevices = getBlockDevices(plots);
+    Map<BlockDevice, Queue<Runnable>> deviceTasks = new LinkedHashMap<>();
+    Set<String> usedPartBufferPools = new HashSet<>();
     for(PlotDrive plotDrive : orderedPlotDrives)
     {
       PocVersion drivePocVersion = plotDrive.getDrivePocVersion();
@@ -216,20 +235,116 @@ public class Reader
       }
       else
       {
-        if(isCompatibleWithCurrentPoc(drivePocVersion))
+        BlockDevice blockDevice = blockDevices.get(plotDrive.getDirectory());
+        List<PlotDrive> drives = blockDevice.isRotational() ? Collections.singletonList(plotDrive) : plotDrive.split(ssdReaderThreads);
+        for(int i = 0; i < drives.size(); i++)
         {
-          ReaderLoadDriveTask readerLoadDriveTask = context.getBean(ReaderLoadDriveTask.class);
-          readerLoadDriveTask.init(scoopNumber, blockNumber, generationSignature, plotDrive);
-          readerPool.execute(readerLoadDriveTask);
+          // own buffers per parallel read
+          String partBufferPoolKey = i == 0 ? plotDrive.getDirectory() : plotDrive.getDirectory() + "#" + i;
+          usedPartBufferPools.add(partBufferPoolKey);
+          PartBufferPool partBufferPool = partBufferPools.computeIfAbsent(partBufferPoolKey, key -> createPartBufferPool(drivePocVersion));
+          Runnable task;
+          if(isCompatibleWithCurrentPoc(drivePocVersion))
+          {
+            ReaderLoadDriveTask readerLoadDriveTask = context.getBean(ReaderLoadDriveTask.class);
+            readerLoadDriveTask.init(scoopNumber, blockNumber, generationSignature, drives.get(i), partBufferPool, cancellationToken);
+            task = readerLoadDriveTask;
+          }
+          else
+          {
+            ReaderConvertLoadDriveTask readerConvertLoadDriveTask = context.getBean(ReaderConvertLoadDriveTask.class);
+            readerConvertLoadDriveTask.init(scoopNumber, blockNumber, generationSignature, drives.get(i), partBufferPool, mirrorReaderPool,
+                                            cancellationToken);
+            task = readerConvertLoadDriveTask;
+          }
+          deviceTasks.computeIfAbsent(blockDevice, device -> new ConcurrentLinkedQueue<>()).add(task);
         }
-        else
+      }
+    }
+
+    // drop buffers of removed drives
+    for(String partBufferPoolKey : new ArrayList<>(partBufferPools.keySet()))
+    {
+      if(!usedPartBufferPools.contains(partBufferPoolKey))
+      {
+        partBufferPools.remove(partBufferPoolKey).dispose();
+      }
+    }
+
+    // update reader thread count
+    int deviceThreads = 0;
+    for(Map.Entry<BlockDevice, Queue<Runnable>> entry : deviceTasks.entrySet())
+    {
+      deviceThreads += entry.getKey().isRotational() ? 1 : Math.min(ssdReaderThreads, entry.getValue().size());
+    }
+    int poolSize = Math.max(1, readerThreads <= 0 ? deviceThreads : readerThreads);
+    setPoolSize(readerPool, poolSize);
+    // one mirror read per reader thread at most
+    setPoolSize(mirrorReaderPool, poolSize);
+
+    for(Map.Entry<BlockDevice, Queue<Runnable>> entry : deviceTasks.entrySet())
+    {
+      LOG.debug("device '" + entry.getKey() + "': " + entry.getValue().size() + " read tasks");
+      int threads = entry.getKey().isRotational() ? 1 : Math.min(ssdReaderThreads, entry.getValue().size());
+      for(int i = 0; i < threads; i++)
+      {
+        readerPool.execute(createDeviceReader(entry.getValue(), cancellationToken));
+      }
+    }
+  }
+
+  /* core pool size must not exceed max pool size, in between */
+  private static void setPoolSize(ThreadPoolTaskExecutor pool, int poolSize)
+  {
+    if(poolSize > pool.getMaxPoolSize())
+    {
+      pool.setMaxPoolSize(poolSize);
+      pool.setCorePoolSize(poolSize);
+    }
+    else
+    {
+      pool.setCorePoolSize(poolSize);
+      pool.setMaxPoolSize(poolSize);
+    }
+  }
+
+  /* disk layout does not change between blocks, so mount points and sysfs are only read for new plots snapshots */
+  private Map<String, BlockDevice> getBlockDevices(Plots plots)
+  {
+    if(blockDevicesByDirectory == null || blockDevicesPlots != plots)
+    {
+      blockDevicesByDirectory = BlockDevice.of(plots.getPlotDrives().stream().map(PlotDrive::getDirectory).collect(Collectors.toList()));
+      blockDevicesPlots = plots;
+    }
+    return blockDevicesByDirectory;
+  }
+
+  /* reads tasks of one device one after the other */
+  private static Runnable createDeviceReader(Queue<Runnable> tasks, CancellationToken cancellationToken)
+  {
+    return new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        Runnable task;
+        while(!cancellationToken.isCancelled() && (task = tasks.poll()) != null)
         {
-          ReaderConvertLoadDriveTask readerConvertLoadDriveTask = context.getBean(ReaderConvertLoadDriveTask.class);
-          readerConvertLoadDriveTask.init(scoopNumber, blockNumber, generationSignature, plotDrive);
-          readerPool.execute(readerConvertLoadDriveTask);
+          task.run();
         }
       }
-    }
+    };
+  }
+
+  private PartBufferPool createPartBufferPool(PocVersion drivePocVersion)
+  {
+    // one buffer to read into, plus the ones queued for checking
+    int readerQueueDepth = CoreProperties.getReaderQueueDepth();
+    // poc1 parts are scoops plus mirror scoops, both kept until checked
+    int maxBuffers = isCompatibleWithCurrentPoc(drivePocVersion) ? readerQueueDepth + 1 : 2 * (readerQueueDepth + 1);
+
+    // gpu mining reads into pinned memory, for fast transfer to device
+    return CoreProperties.isUseOpenCl() ? new PartBufferPool(maxBuffers, oclChecker) : new PartBufferPool(maxBuffers);
   }
 
   private Boolean isCompatibleWithCurrentPoc(PocVersion drivePocVersion)
@@ -237,13 +352,18 @@ public class Reader
     return PocVersion.POC_2.equals(drivePocVersion);
   }
 
-  public Plots getPlots()
+  /* snapshot of plots, kept up to date in background if 'scanPathsEveryRound' */
+  public synchronized Plots getPlots()
   {
-    if(CoreProperties.isScanPathsEveryRound() || plots == null)
+    if(plotInventory == null)
     {
-      plots = new Plots(numericAccountId);
+      plotInventory = new PlotInventory(numericAccountId);
+      if(CoreProperties.isScanPathsEveryRound())
+      {
+        plotInventory.start();
+      }
     }
-    return plots;
+    return plotInventory.getPlots();
   }
 
   public boolean cleanupReaderPool()
@@ -251,8 +371,8 @@ public class Reader
     // if no read thread running, pool will be increased on next round
     if(readerPool.getActiveCount() == 0)
     {
-      readerPool.setCorePoolSize(1);
-      readerPool.setMaxPoolSize(1);
+      setPoolSize(readerPool, 1);
+      setPoolSize(mirrorReaderPool, 1);
       LOG.trace("cleanup was successful ...");
       return true;
     }
@@ -260,26 +380,30 @@ public class Reader
     return false;
   }
 
-  @EventListener
-  public void handleMessage(ReaderLoadedPartEvent event)
+  /* called by reader threads for every loaded part */
+  public void updateProgress(ReaderLoadedPartEvent event)
   {
     if(blockNumber.get() == event.getBlockNumber() && Arrays.equals(event.getGenerationSignature(), generationSignature))
     {
-      // update progress
-      Long removedCapacity = capacityLookup.remove(event.getChunkPartStartNonce());
-      Long realRemovedCapacity = realCapacityLookup.remove(event.getChunkPartStartNonce());
-      if(removedCapacity != null && realRemovedCapacity != null)
+      // update progress, parts may be checked by multiple threads
+      ReadProgress progress = readProgress;
+      if(progress != null && progress.blockNumber == event.getBlockNumber())
       {
-        remainingCapacity -= removedCapacity;
-        realRemainingCapacity -= realRemovedCapacity;
-        long elapsedTime = new Date().getTime() - readerStartTime;
-        context.publishEvent(new ReaderProgressChangedEvent(this, event.getBlockNumber(), capacity, remainingCapacity,
-                                                            realCapacity, realRemainingCapacity, elapsedTime));
-      }
-      else
-      {
-        // just on debug, update progress is not 'mission' critical.
-        LOG.debug("Error on update progress: ReaderPartLoadedEvent for unknown chunkPartStartNonce: '" + event.getChunkPartStartNonce() + "'!");
+        progress.loadedCapacity.add(event.getChunkPartSize());
+        progress.realLoadedCapacity.add(event.getRealChunkPartSize());
+
+        // throttled, last part is always published
+        long now = new Date().getTime();
+        long remainingCapacity = progress.getRemainingCapacity();
+        long lastPublishTime = progress.lastPublishTime.get();
+        boolean publish = remainingCapacity <= 0
+                          ? progress.finished.compareAndSet(false, true)
+                          : now - lastPublishTime >= readProgressInterval && progress.lastPublishTime.compareAndSet(lastPublishTime, now);
+        if(publish)
+        {
+          context.publishEvent(new ReaderProgressChangedEvent(this, event.getBlockNumber(), progress.capacity, remainingCapacity,
+                                                              progress.realCapacity, progress.getRealRemainingCapacity(), now - progress.startTime));
+        }
       }
     }
     else
@@ -294,7 +418,7 @@ public class Reader
     if(blockNumber.get() == event.getBlockNumber() && Arrays.equals(event.getGenerationSignature(), generationSignature))
     {
       // find maybe corrupt plot-file
-      PlotFile plotFile = plots.getPlotFileByChunkPartStartNonce(event.getChunkPartStartNonce());
+      PlotFile plotFile = roundPlots.getPlotFileByChunkPartStartNonce(event.getChunkPartStartNonce());
       if(plotFile != null)
       {
         // plotFile.toString is just objId
@@ -325,10 +449,10 @@ public class Reader
           Set<Block> assignedBlocks = new HashSet<>();
           for(Block unassignedBlock : unassignedBlocks)
           {
-            BigInteger nonce = new BigInteger(unassignedBlock.getNonce());
-            BigInteger end = plotFile.getStartnonce().add(BigInteger.valueOf(plotFile.getPlots()));
+            long nonce = Long.parseUnsignedLong(unassignedBlock.getNonce());
+            long end = plotFile.getStartnonce() + plotFile.getPlots();
             // check if nonce is within plotfile
-            if(plotFile.getStartnonce().compareTo(nonce) < 0 && end.compareTo(nonce) >= 0)
+            if(Long.compareUnsigned(plotFile.getStartnonce(), nonce) < 0 && Long.compareUnsigned(end, nonce) >= 0)
             {
               foundBlocksLookup.get(plotFile.getFilePath().toString()).add(unassignedBlock);
               assignedBlocks.add(unassignedBlock);
@@ -363,4 +487,36 @@ public class Reader
       getPlots().printPlotFiles();
     }
   }
+
+  /* read progress of one round, updated without lock by reader and checker threads */
+  private static final class ReadProgress
+  {
+    private final long blockNumber;
+    private final long capacity;
+    private final long realCapacity;
+    private final long startTime;
+
+    private final LongAdder loadedCapacity = new LongAdder();
+    private final LongAdder realLoadedCapacity = new LongAdder();
+    private final AtomicLong lastPublishTime = new AtomicLong();
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    private ReadProgress(long blockNumber, long capacity, long realCapacity)
+    {
+      this.blockNumber = blockNumber;
+      this.capacity = capacity;
+      this.realCapacity = realCapacity;
+      startTime = new Date().getTime();
+    }
+
+    private long getRemainingCapacity()
+    {
+      return capacity - loadedCapacity.sum();
+    }
+
+    private long getRealRemainingCapacity()
+    {
+      return realCapacity - realLoadedCapacity.sum();
+    }
+  }
 }
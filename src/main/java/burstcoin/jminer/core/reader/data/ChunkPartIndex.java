@@ -0,0 +1,196 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.reader.data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable index of all chunk parts, built once per plot scan.
+ *
+ * Chunk parts are sorted by start nonce (unsigned) in primitive arrays, lookups by binary search.
+ * The position of a chunk part within the index can be used to track its state, e.g. in a BitSet.
+ * Chunk parts of duplicate plot files share their start nonce, they are adjacent in the index.
+ */
+public final class ChunkPartIndex
+{
+  private static final Logger LOG = LoggerFactory.getLogger(ChunkPartIndex.class);
+
+  private final long[] startNonces;
+  private final long[] nonces;
+  // number of bytes of chunk part in plot file
+  private final long[] sizes;
+  private final PlotFile[] plotFiles;
+  private final int[] chunkNumbers;
+  private final int[] partNumbers;
+
+  ChunkPartIndex(Collection<PlotDrive> plotDrives)
+  {
+    int count = 0;
+    for(PlotDrive plotDrive : plotDrives)
+    {
+      for(PlotFile plotFile : plotDrive.getPlotFiles())
+      {
+        count += plotFile.getNumberOfChunks() * plotFile.getNumberOfParts();
+      }
+    }
+
+    // collect unsorted, positions get sorted by start nonce afterwards
+    long[] unsortedStartNonces = new long[count];
+    PlotFile[] unsortedPlotFiles = new PlotFile[count];
+    int[] unsortedChunkNumbers = new int[count];
+    int[] unsortedPartNumbers = new int[count];
+    Integer[] order = new Integer[count];
+    int position = 0;
+    for(PlotDrive plotDrive : plotDrives)
+    {
+      for(PlotFile plotFile : plotDrive.getPlotFiles())
+      {
+        for(int chunkNumber = 0; chunkNumber < plotFile.getNumberOfChunks(); chunkNumber++)
+        {
+          for(int partNumber = 0; partNumber < plotFile.getNumberOfParts(); partNumber++)
+          {
+            unsortedStartNonces[position] = plotFile.getChunkPartStartNonce(chunkNumber, partNumber);
+            unsortedPlotFiles[position] = plotFile;
+            unsortedChunkNumbers[position] = chunkNumber;
+            unsortedPartNumbers[position] = partNumber;
+            order[position] = position;
+            position++;
+          }
+        }
+      }
+    }
+    Arrays.sort(order, (o1, o2) -> Long.compareUnsigned(unsortedStartNonces[o1], unsortedStartNonces[o2]));
+
+    startNonces = new long[count];
+    nonces = new long[count];
+    sizes = new long[count];
+    plotFiles = new PlotFile[count];
+    chunkNumbers = new int[count];
+    partNumbers = new int[count];
+    PlotFile reportedPlotFile = null;
+    for(int index = 0; index < count; index++)
+    {
+      int from = order[index];
+      PlotFile plotFile = unsortedPlotFiles[from];
+      startNonces[index] = unsortedStartNonces[from];
+      nonces[index] = plotFile.getChunkPartNonces();
+      sizes[index] = plotFile.getChunkPartSize();
+      plotFiles[index] = plotFile;
+      chunkNumbers[index] = unsortedChunkNumbers[from];
+      partNumbers[index] = unsortedPartNumbers[from];
+
+      if(index > 0 && plotFile != reportedPlotFile && Long.compareUnsigned(startNonces[index - 1] + nonces[index - 1], startNonces[index]) > 0)
+      {
+        reportedPlotFile = plotFile;
+        LOG.error("possible duplicate/overlapping plot-file '" + plotFiles[index - 1].getFilePath() + "' and '" + plotFile.getFilePath()
+                  + "' please check your plots.");
+      }
+    }
+  }
+
+  /* number of chunk parts */
+  public int size()
+  {
+    return startNonces.length;
+  }
+
+  /* first position of chunk parts with given start nonce, -1 if unknown */
+  public int indexOf(long chunkPartStartNonce)
+  {
+    int index = floorIndex(chunkPartStartNonce);
+    if(index < 0 || startNonces[index] != chunkPartStartNonce)
+    {
+      return -1;
+    }
+    while(index > 0 && startNonces[index - 1] == chunkPartStartNonce)
+    {
+      index--;
+    }
+    return index;
+  }
+
+  /* position of chunk part containing given nonce, -1 if not within plots */
+  public int indexOfNonce(long nonce)
+  {
+    int index = floorIndex(nonce);
+    return index >= 0 && Long.compareUnsigned(nonce - startNonces[index], nonces[index]) < 0 ? index : -1;
+  }
+
+  // last position with start nonce lower or equal to given nonce (unsigned)
+  private int floorIndex(long nonce)
+  {
+    int low = 0;
+    int high = startNonces.length - 1;
+    while(low <= high)
+    {
+      int middle = (low + high) >>> 1;
+      int compare = Long.compareUnsigned(startNonces[middle], nonce);
+      if(compare < 0)
+      {
+        low = middle + 1;
+      }
+      else if(compare > 0)
+      {
+        high = middle - 1;
+      }
+      else
+      {
+        return middle;
+      }
+    }
+    return high;
+  }
+
+  public long getStartNonce(int index)
+  {
+    return startNonces[index];
+  }
+
+  public long getNonces(int index)
+  {
+    return nonces[index];
+  }
+
+  public long getSize(int index)
+  {
+    return sizes[index];
+  }
+
+  public PlotFile getPlotFile(int index)
+  {
+    return plotFiles[index];
+  }
+
+  public int getChunkNumber(int index)
+  {
+    return chunkNumbers[index];
+  }
+
+  public int getPartNumber(int index)
+  {
+    return partNumbers[index];
+  }
+}
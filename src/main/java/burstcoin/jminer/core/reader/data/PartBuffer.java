@@ -0,0 +1,106 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package burstcoin.jminer.core.reader.data;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reusable buffer holding the scoops of one chunk part, owned by a PartBufferPool.
+ * Every holder of a reference has to release it, after the last release the buffer goes back to its pool.
+ */
+public class PartBuffer
+{
+  private final PartBufferPool pool;
+  private final AtomicInteger references;
+
+  private ByteBuffer buffer;
+  private ByteBuffer scoops;
+  // called on last release, e.g. to release mapped window scoops are a slice of
+  private Runnable scoopsRelease;
+
+  PartBuffer(PartBufferPool pool, ByteBuffer buffer)
+  {
+    this.pool = pool;
+    this.buffer = buffer;
+    references = new AtomicInteger();
+  }
+
+  /* whole underlying buffer, to be filled by reader */
+  public ByteBuffer getBuffer()
+  {
+    return buffer;
+  }
+
+  /* scoops of chunk part, a window of the underlying buffer, or of the mapped plot file (ReadMode.MAPPED) */
+  public ByteBuffer getScoops()
+  {
+    return scoops;
+  }
+
+  public void setScoops(ByteBuffer scoops)
+  {
+    setScoops(scoops, null);
+  }
+
+  /* scoopsRelease is called, as soon as scoops are not used anymore */
+  public void setScoops(ByteBuffer scoops, Runnable scoopsRelease)
+  {
+    this.scoops = scoops;
+    this.scoopsRelease = scoopsRelease;
+  }
+
+  /* add a reference, e.g. before handing buffer to other thread */
+  public PartBuffer retain()
+  {
+    references.incrementAndGet();
+    return this;
+  }
+
+  public void release()
+  {
+    int remaining = references.decrementAndGet();
+    if(remaining == 0)
+    {
+      if(scoopsRelease != null)
+      {
+        scoopsRelease.run();
+      }
+      setScoops(null);
+      pool.release(this);
+    }
+    else if(remaining < 0)
+    {
+      throw new IllegalStateException("PartBuffer released more often than retained!");
+    }
+  }
+
+  void ensureCapacity(int capacity)
+  {
+    if(buffer.capacity() < capacity)
+    {
+      pool.free(buffer);
+      buffer = pool.allocate(capacity);
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package burstcoin.jminer.core.reader.data;
+
+import burstcoin.jminer.core.reader.util.DirectIO;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of PartBuffers for one drive, buffers are created on demand and reused for every round.
+ * Buffers are direct and block aligned, so they can be used for direct i/o, too.
+ */
+public class PartBufferPool
+{
+  // off-heap, aligned for direct i/o
+  private static final PartBufferAllocator DIRECT_ALLOCATOR = new PartBufferAllocator()
+  {
+    @Override
+    public ByteBuffer allocate(int capacity)
+    {
+      return DirectIO.allocate(capacity);
+    }
+
+    @Override
+    public void free(ByteBuffer buffer)
+    {
+      // garbage collected
+    }
+  };
+
+  private final int maxBuffers;
+  private final PartBufferAllocator allocator;
+  private final BlockingQueue<PartBuffer> freeBuffers;
+  private final AtomicInteger numberOfBuffers;
+  private volatile boolean disposed;
+
+  public PartBufferPool(int maxBuffers)
+  {
+    this(maxBuffers, DIRECT_ALLOCATOR);
+  }
+
+  public PartBufferPool(int maxBuffers, PartBufferAllocator allocator)
+  {
+    this.maxBuffers = maxBuffers;
+    this.allocator = allocator;
+    freeBuffers = new ArrayBlockingQueue<>(maxBuffers);
+    numberOfBuffers = new AtomicInteger();
+  }
+
+  /* waits up to timeout for a free buffer if max. number of buffers are in use, returns null if none got free */
+  public PartBuffer acquire(int capacity, long timeout, TimeUnit unit)
+    throws InterruptedException
+  {
+    // extra space to align direct reads
+    int bufferCapacity = capacity + 2 * DirectIO.BLOCK_SIZE;
+
+    PartBuffer partBuffer = freeBuffers.poll();
+    if(partBuffer == null)
+    {
+      if(numberOfBuffers.incrementAndGet() <= maxBuffers)
+      {
+        partBuffer = new PartBuffer(this, allocate(bufferCapacity));
+      }
+      else
+      {
+        numberOfBuffers.decrementAndGet();
+        partBuffer = freeBuffers.poll(timeout, unit);
+        if(partBuffer == null)
+        {
+          return null;
+        }
+      }
+    }
+    partBuffer.ensureCapacity(bufferCapacity);
+    return partBuffer.retain();
+  }
+
+  public int getMaxBuffers()
+  {
+    return maxBuffers;
+  }
+
+  /* frees all buffers, buffers in use are freed on release */
+  public void dispose()
+  {
+    disposed = true;
+    PartBuffer partBuffer;
+    while((partBuffer = freeBuffers.poll()) != null)
+    {
+      allocator.free(partBuffer.getBuffer());
+    }
+  }
+
+  void release(PartBuffer partBuffer)
+  {
+    if(disposed)
+    {
+      allocator.free(partBuffer.getBuffer());
+    }
+    else
+    {
+      freeBuffers.offer(partBuffer);
+    }
+  }
+
+  ByteBuffer allocate(int capacity)
+  {
+    return allocator.allocate(capacity);
+  }
+
+  void free(ByteBuffer buffer)
+  {
+    allocator.free(buffer);
+  }
+}
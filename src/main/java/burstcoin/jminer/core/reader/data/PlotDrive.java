@@ -26,12 +26,12 @@ package burstcoin.jminer.core.reader.data;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.math.BigInteger;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.List;
 
 /**
  * The type Plot drive.
@@ -50,14 +50,25 @@ public class PlotDrive
     plotFiles = new HashSet<>();
     for(Path path : plotFilePaths)
     {
-      PlotFile plotFile = new PlotFile(path, chunkPartNonces);
-      plotFiles.add(plotFile);
+      plotFiles.add(createPlotFile(path, chunkPartNonces));
+    }
+  }
 
-      if(plotFile.getStaggeramt() % plotFile.getNumberOfParts() != 0)
-      {
-        LOG.error("could not calculate valid numberOfParts: " + plotFile.getFilePath());
-      }
+  /* drive with already parsed plot files, used for incremental updates */
+  PlotDrive(String directory, Collection<PlotFile> plotFiles)
+  {
+    this.directory = directory;
+    this.plotFiles = new HashSet<>(plotFiles);
+  }
+
+  static PlotFile createPlotFile(Path path, Long chunkPartNonces)
+  {
+    PlotFile plotFile = new PlotFile(path, chunkPartNonces);
+    if(plotFile.getStaggeramt() % plotFile.getNumberOfParts() != 0)
+    {
+      LOG.error("could not calculate valid numberOfParts: " + plotFile.getFilePath());
     }
+    return plotFile;
   }
 
   public Collection<PlotFile> getPlotFiles()
@@ -70,20 +81,36 @@ public class PlotDrive
     return directory;
   }
 
-  /* Collects chunk part start nonces.*/
-  Map<BigInteger, Long> collectChunkPartStartNonces()
+  /* splits plot files into drives of same directory, balanced by size, to read them in parallel */
+  public List<PlotDrive> split(int numberOfDrives)
   {
-    Map<BigInteger, Long> chunkPartStartNonces = new HashMap<>();
-    for(PlotFile plotFile : plotFiles)
+    List<List<PlotFile>> parts = new ArrayList<>();
+    long[] partSizes = new long[Math.max(1, Math.min(numberOfDrives, plotFiles.size()))];
+    for(int i = 0; i < partSizes.length; i++)
+    {
+      parts.add(new ArrayList<>());
+    }
+
+    // biggest files first, each to the smallest part
+    List<PlotFile> orderedPlotFiles = new ArrayList<>(plotFiles);
+    orderedPlotFiles.sort(Comparator.comparingLong(PlotFile::getSize).reversed());
+    for(PlotFile plotFile : orderedPlotFiles)
     {
-      int expectedSize = chunkPartStartNonces.size() + plotFile.getChunkPartStartNonces().size();
-      chunkPartStartNonces.putAll(plotFile.getChunkPartStartNonces());
-      if(expectedSize != chunkPartStartNonces.size())
+      int smallest = 0;
+      for(int i = 1; i < partSizes.length; i++)
       {
-        LOG.warn("possible overlapping plot-file '" + plotFile.getFilePath() + "', please check your plots.");
+        smallest = partSizes[i] < partSizes[smallest] ? i : smallest;
       }
+      parts.get(smallest).add(plotFile);
+      partSizes[smallest] += plotFile.getSize();
+    }
+
+    List<PlotDrive> drives = new ArrayList<>();
+    for(List<PlotFile> part : parts)
+    {
+      drives.add(new PlotDrive(directory, part));
     }
-    return chunkPartStartNonces;
+    return drives;
   }
 
   /* returns total number of bytes of all plotFiles */
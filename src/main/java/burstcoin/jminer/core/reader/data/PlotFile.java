@@ -28,18 +28,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pocminer.generate.MiningPlot;
 
-import java.math.BigInteger;
 import java.nio.file.Path;
-import java.util.HashMap;
-import java.util.Map;
 
 public class PlotFile
 {
   private static final Logger LOG = LoggerFactory.getLogger(PlotFile.class);
 
-  // key -> size
-  private Map<BigInteger, Long> chunkPartStartNonces;
-
   private Path filePath;
   private Long chunkPartNonces;
   private int numberOfParts;
@@ -47,7 +41,8 @@ public class PlotFile
 
   private String filename;
   private long address;
-  private BigInteger startnonce;
+  // unsigned
+  private long startnonce;
   private long plots;
   private long staggeramt;
 
@@ -55,14 +50,14 @@ public class PlotFile
 
   private PocVersion pocVersion;
 
-  PlotFile(Path filePath, Long chunkPartNonces)
+  public PlotFile(Path filePath, Long chunkPartNonces)
   {
     this.filePath = filePath;
     this.chunkPartNonces = chunkPartNonces;
     this.filename = getFilename(filePath);
     String[] parts = filename.split("_");
     this.address = Convert.parseUnsignedLong(parts[0]);
-    this.startnonce = new BigInteger(parts[1]);
+    this.startnonce = Long.parseUnsignedLong(parts[1]);
     this.plots = Long.valueOf(parts[2]);
 
     // todo this may be weak, requires that poc2 file names do not have staggersize
@@ -81,8 +76,6 @@ public class PlotFile
       this.numberOfChunks = 1;
     }
 
-    chunkPartStartNonces = new HashMap<>();
-
     size = numberOfChunks * staggeramt * MiningPlot.PLOT_SIZE;
 
     if(LOG.isDebugEnabled())
@@ -93,21 +86,6 @@ public class PlotFile
         LOG.debug("incomplete plotFile: " + filePath.toString() + " specified size '" + size + " bytes', size '" + fileSize + " bytes'.");
       }
     }
-
-    long chunkPartSize = this.size / numberOfChunks / numberOfParts;
-    for(int chunkNumber = 0; chunkNumber < numberOfChunks; chunkNumber++)
-    {
-      for(int partNumber = 0; partNumber < numberOfParts; partNumber++)
-      {
-        // register a unique key for identification
-        BigInteger chunkPartStartNonce = startnonce.add(BigInteger.valueOf(chunkNumber * staggeramt + partNumber * (staggeramt / numberOfParts)));
-        Long key = chunkPartStartNonces.put(chunkPartStartNonce, chunkPartSize);
-        if(key != null)
-        {
-          LOG.warn("possible overlapping plot-file '" + filePath + "', please check your plots.");
-        }
-      }
-    }
   }
 
   private String getFilename(Path filePath)
@@ -147,7 +125,7 @@ public class PlotFile
     return address;
   }
 
-  public BigInteger getStartnonce()
+  public long getStartnonce()
   {
     return startnonce;
   }
@@ -177,9 +155,22 @@ public class PlotFile
     this.numberOfParts = numberOfParts;
   }
 
-  Map<BigInteger, Long> getChunkPartStartNonces()
+  /* start nonce (unsigned) of chunk part, used as unique key for identification */
+  public long getChunkPartStartNonce(long chunkNumber, int partNumber)
+  {
+    return startnonce + chunkNumber * staggeramt + partNumber * getChunkPartNonces();
+  }
+
+  /* number of nonces per chunk part */
+  public long getChunkPartNonces()
+  {
+    return staggeramt / numberOfParts;
+  }
+
+  /* number of bytes per chunk part */
+  public long getChunkPartSize()
   {
-    return chunkPartStartNonces;
+    return size / numberOfChunks / numberOfParts;
   }
 
   public PocVersion getPocVersion()
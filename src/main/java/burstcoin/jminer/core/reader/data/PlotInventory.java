@@ -0,0 +1,210 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.reader.data;
+
+import burstcoin.jminer.core.CoreProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Keeps plots up to date in background, so getting plots on round start costs nothing.
+ *
+ * Plot directories are watched for added, removed and renamed (e.g. finished '.plotting') files,
+ * changed directories are listed again and applied to a new Plots snapshot (copy-on-write).
+ * As watching may miss changes (e.g. network drives), all directories are reconciled every 'scanPathsInterval'.
+ */
+public class PlotInventory
+{
+  private static final Logger LOG = LoggerFactory.getLogger(PlotInventory.class);
+
+  // wait for more changes, e.g. while many files are copied
+  private static final long SETTLE_TIME_MS = 1000;
+
+  private final String numericAccountId;
+  private volatile Plots plots;
+
+  private WatchService watchService;
+  // plot directory by registered watch key
+  private Map<WatchKey, String> watchedDirectories = new HashMap<>();
+
+  public PlotInventory(String numericAccountId)
+  {
+    this.numericAccountId = numericAccountId;
+    plots = new Plots(numericAccountId);
+  }
+
+  /* current snapshot, never changed afterwards */
+  public Plots getPlots()
+  {
+    return plots;
+  }
+
+  public void start()
+  {
+    try
+    {
+      watchService = FileSystems.getDefault().newWatchService();
+      for(String plotDirectory : CoreProperties.getPlotPaths())
+      {
+        register(plotDirectory);
+      }
+    }
+    catch(IOException e)
+    {
+      LOG.warn("watching plotPaths not supported, changes are detected every 'scanPathsInterval' only. (" + e.getMessage() + ")");
+    }
+
+    Thread thread = new Thread(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        watch();
+      }
+    }, "plot-inventory");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void register(String plotDirectory)
+  {
+    try
+    {
+      WatchKey watchKey = Paths.get(plotDirectory).register(watchService, ENTRY_CREATE, ENTRY_DELETE);
+      watchedDirectories.put(watchKey, plotDirectory);
+    }
+    catch(IOException e)
+    {
+      LOG.warn("could not watch '" + plotDirectory + "', changes are detected every 'scanPathsInterval' only. (" + e.getMessage() + ")");
+    }
+  }
+
+  private void watch()
+  {
+    long scanPathsInterval = CoreProperties.getScanPathsInterval();
+    long nextReconcileTime = System.currentTimeMillis() + scanPathsInterval;
+    while(!Thread.currentThread().isInterrupted())
+    {
+      try
+      {
+        Set<String> changedDirectories = new HashSet<>();
+        WatchKey watchKey = poll(Math.max(0, nextReconcileTime - System.currentTimeMillis()));
+        while(watchKey != null)
+        {
+          collectChanged(watchKey, changedDirectories);
+          watchKey = poll(SETTLE_TIME_MS);
+        }
+
+        if(System.currentTimeMillis() >= nextReconcileTime)
+        {
+          changedDirectories.addAll(CoreProperties.getPlotPaths());
+          nextReconcileTime = System.currentTimeMillis() + scanPathsInterval;
+        }
+        for(String plotDirectory : changedDirectories)
+        {
+          update(plotDirectory);
+        }
+      }
+      catch(InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+      catch(RuntimeException e)
+      {
+        LOG.error("update plots failed: " + e.getMessage(), e);
+      }
+    }
+  }
+
+  private WatchKey poll(long timeout)
+    throws InterruptedException
+  {
+    if(watchService == null)
+    {
+      Thread.sleep(timeout);
+      return null;
+    }
+    try
+    {
+      return watchService.poll(timeout, TimeUnit.MILLISECONDS);
+    }
+    catch(ClosedWatchServiceException e)
+    {
+      watchService = null;
+      return null;
+    }
+  }
+
+  private void collectChanged(WatchKey watchKey, Set<String> changedDirectories)
+  {
+    String plotDirectory = watchedDirectories.get(watchKey);
+    for(WatchEvent<?> event : watchKey.pollEvents())
+    {
+      // on overflow events got lost, directory is listed anyway
+      if(plotDirectory != null && (OVERFLOW.equals(event.kind()) || event.context().toString().contains(numericAccountId)))
+      {
+        changedDirectories.add(plotDirectory);
+      }
+    }
+    if(!watchKey.reset())
+    {
+      // directory removed, reconcile will drop its plots
+      watchedDirectories.remove(watchKey);
+    }
+  }
+
+  /* only called by inventory thread, so snapshots are never replaced concurrently */
+  private void update(String plotDirectory)
+  {
+    Collection<Path> plotFilePaths = Plots.listPlotFiles(plotDirectory, numericAccountId);
+    if(plotFilePaths == null)
+    {
+      plotFilePaths = new HashSet<>();
+    }
+    plots = plots.withDirectory(plotDirectory, plotFilePaths);
+
+    if(watchService != null && !watchedDirectories.containsValue(plotDirectory) && !plotFilePaths.isEmpty())
+    {
+      // directory (re)appeared, e.g. drive mounted again
+      register(plotDirectory);
+    }
+  }
+}
@@ -24,11 +24,11 @@ package burstcoin.jminer.core.reader.data;
 
 
 import burstcoin.jminer.core.CoreProperties;
+import burstcoin.jminer.core.converter.PlotConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.math.BigInteger;
 import java.nio.file.DirectoryIteratorException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
@@ -40,18 +40,18 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class Plots
 {
   private static final Logger LOG = LoggerFactory.getLogger(Plots.class);
 
   private Collection<PlotDrive> plotDrives;
-  private Map<BigInteger, Long> chunkPartStartNonces;
+  private ChunkPartIndex chunkPartIndex;
 
   public Plots(String numericAccountId)
   {
     plotDrives = new HashSet<>();
-    chunkPartStartNonces = new HashMap<>();
     Map<String, Collection<Path>> plotFilesLookup = collectPlotFiles(CoreProperties.getPlotPaths(), numericAccountId);
     for(Map.Entry<String, Collection<Path>> entry : plotFilesLookup.entrySet())
     {
@@ -59,19 +59,76 @@ public class Plots
       if(!plotDrive.getPlotFiles().isEmpty())
       {
         plotDrives.add(plotDrive);
+      }
+      else
+      {
+        LOG.info("No plotfiles found at '" + plotDrive.getDirectory() + "' ... will be ignored.");
+      }
+    }
+    chunkPartIndex = new ChunkPartIndex(plotDrives);
+  }
 
-        int expectedSize = chunkPartStartNonces.size() + plotDrive.collectChunkPartStartNonces().size();
-        chunkPartStartNonces.putAll(plotDrive.collectChunkPartStartNonces());
-        if(expectedSize != chunkPartStartNonces.size())
+  /* snapshot of given drives, plots are never changed after creation (copy-on-write) */
+  Plots(Collection<PlotDrive> plotDrives)
+  {
+    this.plotDrives = plotDrives;
+    chunkPartIndex = new ChunkPartIndex(plotDrives);
+  }
+
+  /**
+   * Copy with plot files of directory updated to given paths, unchanged plot files and drives are reused.
+   *
+   * @return this, if nothing changed
+   */
+  Plots withDirectory(String directory, Collection<Path> plotFilePaths)
+  {
+    Map<Path, PlotFile> previousPlotFiles = new HashMap<>();
+    Collection<PlotDrive> updatedPlotDrives = new HashSet<>();
+    for(PlotDrive plotDrive : plotDrives)
+    {
+      if(plotDrive.getDirectory().equals(directory))
+      {
+        for(PlotFile plotFile : plotDrive.getPlotFiles())
         {
-          LOG.error("possible duplicate/overlapping plot-file on drive '" + plotDrive.getDirectory() + "' please check your plots.");
+          previousPlotFiles.put(plotFile.getFilePath(), plotFile);
         }
       }
       else
       {
-        LOG.info("No plotfiles found at '" + plotDrive.getDirectory() + "' ... will be ignored.");
+        updatedPlotDrives.add(plotDrive);
       }
     }
+
+    Set<Path> paths = new HashSet<>(plotFilePaths);
+    if(previousPlotFiles.keySet().equals(paths))
+    {
+      return this;
+    }
+
+    List<PlotFile> plotFiles = new ArrayList<>();
+    for(Path plotFilePath : plotFilePaths)
+    {
+      PlotFile plotFile = previousPlotFiles.get(plotFilePath);
+      if(plotFile == null)
+      {
+        LOG.info("plot file added: '" + plotFilePath + "'");
+        plotFile = PlotDrive.createPlotFile(plotFilePath, CoreProperties.getChunkPartNonces());
+      }
+      plotFiles.add(plotFile);
+    }
+    for(Path previousPlotFilePath : previousPlotFiles.keySet())
+    {
+      if(!paths.contains(previousPlotFilePath))
+      {
+        LOG.info("plot file removed: '" + previousPlotFilePath + "'");
+      }
+    }
+
+    if(!plotFiles.isEmpty())
+    {
+      updatedPlotDrives.add(new PlotDrive(directory, plotFiles));
+    }
+    return new Plots(updatedPlotDrives);
   }
 
   public Collection<PlotDrive> getPlotDrives()
@@ -84,25 +141,43 @@ public class Plots
     Map<String, Collection<Path>> plotFilesLookup = new HashMap<>();
     for(String plotDirectory : plotDirectories)
     {
-      Path folderPath = Paths.get(plotDirectory);
-      try (DirectoryStream<Path> plotFilesStream = Files.newDirectoryStream(folderPath))
+      Collection<Path> plotFilePaths = listPlotFiles(plotDirectory, numericAccountId);
+      if(plotFilePaths != null)
       {
-        List<Path> plotFilePaths = new ArrayList<>();
-        for(Path plotFilePath : plotFilesStream)
-        {
-          if(plotFilePath.toString().contains(numericAccountId))
-          {
-            plotFilePaths.add(plotFilePath);
-          }
-        }
         plotFilesLookup.put(plotDirectory, plotFilePaths);
       }
-      catch(IOException | DirectoryIteratorException e)
+    }
+    return plotFilesLookup;
+  }
+
+  /* plot files of account in directory, null if directory could not be read */
+  static Collection<Path> listPlotFiles(String plotDirectory, String numericAccountId)
+  {
+    Path folderPath = Paths.get(plotDirectory);
+    try (DirectoryStream<Path> plotFilesStream = Files.newDirectoryStream(folderPath))
+    {
+      List<Path> plotFilePaths = new ArrayList<>();
+      for(Path plotFilePath : plotFilesStream)
       {
-        LOG.error(e.getMessage());
+        if(plotFilePath.toString().contains(numericAccountId) && !isConverterFile(plotFilePath))
+        {
+          plotFilePaths.add(plotFilePath);
+        }
       }
+      return plotFilePaths;
     }
-    return plotFilesLookup;
+    catch(IOException | DirectoryIteratorException e)
+    {
+      LOG.error(e.getMessage());
+    }
+    return null;
+  }
+
+  // target and checkpoint of a running poc1 to poc2 conversion
+  private static boolean isConverterFile(Path plotFilePath)
+  {
+    String filename = plotFilePath.getFileName().toString();
+    return filename.endsWith(PlotConverter.CONVERTING_EXTENSION) || filename.contains(PlotConverter.CHECKPOINT_EXTENSION);
   }
 
   /* total number of bytes of all plotFiles */
@@ -143,25 +218,16 @@ public class Plots
     return null;
   }
 
-  /* gets chunk part start nonces. */
-  public Map<BigInteger, Long> getChunkPartStartNonces()
+  /* gets index of all chunk parts. */
+  public ChunkPartIndex getChunkPartIndex()
   {
-    return chunkPartStartNonces;
+    return chunkPartIndex;
   }
 
   /* gets plot file by chunk part start nonce. */
-  public PlotFile getPlotFileByChunkPartStartNonce(BigInteger chunkPartStartNonce)
+  public PlotFile getPlotFileByChunkPartStartNonce(long chunkPartStartNonce)
   {
-    for(PlotDrive plotDrive : getPlotDrives())
-    {
-      for(PlotFile plotFile : plotDrive.getPlotFiles())
-      {
-        if(plotFile.getChunkPartStartNonces().containsKey(chunkPartStartNonce))
-        {
-          return plotFile;
-        }
-      }
-    }
-    return null;
+    int index = chunkPartIndex.indexOf(chunkPartStartNonce);
+    return index >= 0 ? chunkPartIndex.getPlotFile(index) : null;
   }
 }
@@ -30,17 +30,21 @@ public class ReaderDriveFinishEvent
 {
   private String directory;
   private long size;
+  private long readBytes;
   private long time;
   private long blockNumber;
+  private byte[] generationSignature;
 
-  public ReaderDriveFinishEvent(String directory, long size, long time, long blockNumber)
+  public ReaderDriveFinishEvent(String directory, long size, long readBytes, long time, long blockNumber, byte[] generationSignature)
   {
     super(directory);
 
     this.directory = directory;
     this.size = size;
+    this.readBytes = readBytes;
     this.time = time;
     this.blockNumber = blockNumber;
+    this.generationSignature = generationSignature;
   }
 
   public long getTime()
@@ -58,8 +62,19 @@ public class ReaderDriveFinishEvent
     return size;
   }
 
+  /* bytes read from disk, poc1 drives are read twice, direct reads include alignment */
+  public long getReadBytes()
+  {
+    return readBytes;
+  }
+
   public long getBlockNumber()
   {
     return blockNumber;
   }
+
+  public byte[] getGenerationSignature()
+  {
+    return generationSignature;
+  }
 }
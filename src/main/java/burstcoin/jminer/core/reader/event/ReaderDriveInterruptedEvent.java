@@ -31,13 +31,15 @@ public class ReaderDriveInterruptedEvent
   extends ApplicationEvent
 {
   private long blockNumber;
+  private byte[] generationSignature;
   private String directory;
 
-  public ReaderDriveInterruptedEvent(long blockNumber, String directory)
+  public ReaderDriveInterruptedEvent(long blockNumber, byte[] generationSignature, String directory)
   {
     super(blockNumber);
 
     this.blockNumber = blockNumber;
+    this.generationSignature = generationSignature;
     this.directory = directory;
   }
 
@@ -46,6 +48,11 @@ public class ReaderDriveInterruptedEvent
     return blockNumber;
   }
 
+  public byte[] getGenerationSignature()
+  {
+    return generationSignature;
+  }
+
   public String getDirectory()
   {
     return directory;
@@ -23,24 +23,48 @@
 package burstcoin.jminer.core.reader.event;
 
 
-import java.math.BigInteger;
+import burstcoin.jminer.core.reader.data.CancellationToken;
+import burstcoin.jminer.core.reader.data.PartBuffer;
+
+import java.nio.ByteBuffer;
 
 public class ReaderLoadedPartEvent
 {
   private byte[] generationSignature;
-  private BigInteger chunkPartStartNonce;
+  private long chunkPartStartNonce;
   private long blockNumber;
 
-  private byte[] scoops;
+  private PartBuffer partBuffer;
+  // poc1 only: mirror scoops, provide second hash of every scoop
+  private PartBuffer mirrorPartBuffer;
   private String plotFilePath;
 
-  public ReaderLoadedPartEvent(long blockNumber, byte[] generationSignature, byte[] scoops, BigInteger chunkPartStartNonce, String plotFilePath)
+  // bytes of chunk part in plot file, and bytes read to load it (poc1 parts are read twice)
+  private long chunkPartSize;
+  private long realChunkPartSize;
+
+  private CancellationToken cancellationToken;
+  // handed over to next stage, only set while tracing
+  private long traceTime;
+
+  public ReaderLoadedPartEvent(long blockNumber, byte[] generationSignature, PartBuffer partBuffer, long chunkPartStartNonce, String plotFilePath,
+                               long chunkPartSize, long realChunkPartSize, CancellationToken cancellationToken)
+  {
+    this(blockNumber, generationSignature, partBuffer, null, chunkPartStartNonce, plotFilePath, chunkPartSize, realChunkPartSize, cancellationToken);
+  }
+
+  public ReaderLoadedPartEvent(long blockNumber, byte[] generationSignature, PartBuffer partBuffer, PartBuffer mirrorPartBuffer, long chunkPartStartNonce,
+                               String plotFilePath, long chunkPartSize, long realChunkPartSize, CancellationToken cancellationToken)
   {
     this.generationSignature = generationSignature;
     this.chunkPartStartNonce = chunkPartStartNonce;
     this.blockNumber = blockNumber;
-    this.scoops = scoops;
+    this.partBuffer = partBuffer;
+    this.mirrorPartBuffer = mirrorPartBuffer;
     this.plotFilePath = plotFilePath;
+    this.chunkPartSize = chunkPartSize;
+    this.realChunkPartSize = realChunkPartSize;
+    this.cancellationToken = cancellationToken;
   }
 
   public String getPlotFilePath()
@@ -53,18 +77,75 @@ public class ReaderLoadedPartEvent
     return blockNumber;
   }
 
-  public byte[] getScoops()
+  /* pooled buffer, reused by reader after check or enqueue, retain it to keep scoops beyond that */
+  public PartBuffer getPartBuffer()
+  {
+    return partBuffer;
+  }
+
+  public ByteBuffer getScoops()
   {
-    return scoops;
+    return partBuffer.getScoops();
   }
 
-  public BigInteger getChunkPartStartNonce()
+  /* second hashes of scoops for poc1 parts, null for poc2 parts */
+  public ByteBuffer getMirrorScoops()
+  {
+    return mirrorPartBuffer != null ? mirrorPartBuffer.getScoops() : null;
+  }
+
+  /* keeps part buffers (incl. mirror) beyond reader */
+  public void retain()
+  {
+    partBuffer.retain();
+    if(mirrorPartBuffer != null)
+    {
+      mirrorPartBuffer.retain();
+    }
+  }
+
+  public void release()
+  {
+    partBuffer.release();
+    if(mirrorPartBuffer != null)
+    {
+      mirrorPartBuffer.release();
+    }
+  }
+
+  public long getChunkPartStartNonce()
   {
     return chunkPartStartNonce;
   }
 
+  public long getChunkPartSize()
+  {
+    return chunkPartSize;
+  }
+
+  public long getRealChunkPartSize()
+  {
+    return realChunkPartSize;
+  }
+
   public byte[] getGenerationSignature()
   {
     return generationSignature;
   }
+
+  /* cancelled if round of part is over */
+  public boolean isCancelled()
+  {
+    return cancellationToken.isCancelled();
+  }
+
+  public long getTraceTime()
+  {
+    return traceTime;
+  }
+
+  public void setTraceTime(long traceTime)
+  {
+    this.traceTime = traceTime;
+  }
 }
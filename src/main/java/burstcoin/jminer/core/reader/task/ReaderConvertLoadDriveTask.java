@@ -23,38 +23,44 @@
 package burstcoin.jminer.core.reader.task;
 
 import burstcoin.jminer.core.CoreProperties;
-import burstcoin.jminer.core.checker.event.CheckerResultEvent;
-import burstcoin.jminer.core.checker.util.ShaLibChecker;
+import burstcoin.jminer.core.checker.Checker;
+import burstcoin.jminer.core.metrics.DriveMetrics;
+import burstcoin.jminer.core.metrics.Metrics;
 import burstcoin.jminer.core.reader.Reader;
+import burstcoin.jminer.core.reader.data.CancellationToken;
+import burstcoin.jminer.core.reader.data.PartBuffer;
+import burstcoin.jminer.core.reader.data.PartBufferPool;
 import burstcoin.jminer.core.reader.data.PlotDrive;
 import burstcoin.jminer.core.reader.data.PlotFile;
+import burstcoin.jminer.core.reader.data.ReadMode;
 import burstcoin.jminer.core.reader.event.ReaderDriveFinishEvent;
 import burstcoin.jminer.core.reader.event.ReaderDriveInterruptedEvent;
 import burstcoin.jminer.core.reader.event.ReaderLoadedPartEvent;
+import burstcoin.jminer.core.reader.util.PlotFileChannel;
+import burstcoin.jminer.core.trace.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Scope;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Component;
 import pocminer.generate.MiningPlot;
 
 import java.io.IOException;
-import java.math.BigInteger;
-import java.nio.ByteBuffer;
 import java.nio.channels.ClosedByInterruptException;
-import java.nio.channels.SeekableByteChannel;
-import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
-import java.nio.file.StandardOpenOption;
-import java.util.Arrays;
 import java.util.Date;
-import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This reader can handle POC1 plotfiles.
- * To archive compatibility, twice the amount of data needs to be read. Also memory and cpu usage is higher.
+ * To archive compatibility, twice the amount of data needs to be read. Also memory usage is higher.
+ * Both scoop regions are read concurrently and handed to checker as they are, checker takes second hash of scoops from mirror.
  *
  * Executed once for every block ... reads scoops of drive plots
  */
@@ -66,37 +72,56 @@ public class ReaderConvertLoadDriveTask
   private static final Logger LOG = LoggerFactory.getLogger(ReaderConvertLoadDriveTask.class);
 
   private final ApplicationEventPublisher publisher;
-  private ShaLibChecker shaLibChecker;
+  private final Checker checker;
+  private final Reader reader;
+  private final Metrics metrics;
+  private final Tracer tracer;
   private byte[] generationSignature;
   private PlotDrive plotDrive;
   private int scoopNumber;
   private long blockNumber;
   private boolean showDriveInfo;
+  private ReadMode readMode;
+  private PartBufferPool partBufferPool;
+  private AsyncTaskExecutor mirrorReaderPool;
+  private CancellationToken cancellationToken;
+  private boolean pipelined;
+  private DriveMetrics driveMetrics;
+  private long readBytes;
 
   @Autowired
-  public ReaderConvertLoadDriveTask(ApplicationEventPublisher publisher)
+  public ReaderConvertLoadDriveTask(ApplicationEventPublisher publisher, Checker checker, Reader reader, Metrics metrics, Tracer tracer)
   {
     this.publisher = publisher;
+    this.checker = checker;
+    this.reader = reader;
+    this.metrics = metrics;
+    this.tracer = tracer;
   }
 
-  public void init(int scoopNumber, long blockNumber, byte[] generationSignature, PlotDrive plotDrive)
+  public void init(int scoopNumber, long blockNumber, byte[] generationSignature, PlotDrive plotDrive, PartBufferPool partBufferPool,
+                   AsyncTaskExecutor mirrorReaderPool, CancellationToken cancellationToken)
   {
     this.scoopNumber = scoopNumber;
     this.blockNumber = blockNumber;
     this.generationSignature = generationSignature;
     this.plotDrive = plotDrive;
+    this.partBufferPool = partBufferPool;
+    this.mirrorReaderPool = mirrorReaderPool;
+    this.cancellationToken = cancellationToken;
 
     showDriveInfo = CoreProperties.isShowDriveInfo();
-    if(!CoreProperties.isUseOpenCl())
-    {
-      this.shaLibChecker = new ShaLibChecker();
-    }
+    readMode = CoreProperties.getReadMode();
+    pipelined = CoreProperties.getReaderQueueDepth() > 0;
+    driveMetrics = metrics.drive(plotDrive.getDirectory());
   }
 
   @Override
   public void run()
   {
     long startTime = showDriveInfo ? new Date().getTime() : 0;
+    long startNanos = System.nanoTime();
+    readBytes = 0;
     Iterator<PlotFile> iterator = plotDrive.getPlotFiles().iterator();
     boolean interrupted = false;
     while(iterator.hasNext() && !interrupted)
@@ -111,83 +136,106 @@ public class ReaderConvertLoadDriveTask
       interrupted = load(plotPathInfo);
     }
 
+    if(!interrupted)
+    {
+      driveMetrics.finished(generationSignature, readBytes, System.nanoTime() - startNanos);
+    }
+
     if(showDriveInfo)
     {
       if(interrupted)
       {
         // ui-event
-        publisher.publishEvent(new ReaderDriveInterruptedEvent(blockNumber, plotDrive.getDirectory()));
+        publisher.publishEvent(new ReaderDriveInterruptedEvent(blockNumber, generationSignature, plotDrive.getDirectory()));
       }
       else
       {
         // ui event
-        publisher.publishEvent(new ReaderDriveFinishEvent(plotDrive.getDirectory(), plotDrive.getSize(), new Date().getTime() - startTime, blockNumber));
+        publisher.publishEvent(new ReaderDriveFinishEvent(plotDrive.getDirectory(), plotDrive.getSize(), readBytes, new Date().getTime() - startTime,
+                                                          blockNumber, generationSignature));
       }
     }
   }
 
   private boolean load(PlotFile plotFile)
   {
-    // using two channels to avoid positioning manually
-    try (SeekableByteChannel sbc1 = Files.newByteChannel(plotFile.getFilePath(), EnumSet.of(StandardOpenOption.READ));
-         SeekableByteChannel sbc2 = Files.newByteChannel(plotFile.getFilePath(), EnumSet.of(StandardOpenOption.READ)))
+    PartBuffer[] partBuffers = new PartBuffer[2];
+    // own channel for mirror reads, channels are not shared between threads
+    try (PlotFileChannel plotFileChannel = PlotFileChannel.open(plotFile.getFilePath(), readMode);
+         PlotFileChannel mirrorFileChannel = PlotFileChannel.open(plotFile.getFilePath(), readMode))
     {
       long partSize = plotFile.getStaggeramt() / plotFile.getNumberOfParts();
       long currentScoopPosition1 = scoopNumber * plotFile.getStaggeramt() * MiningPlot.SCOOP_SIZE;
       int partBufferSize = (int) (partSize * MiningPlot.SCOOP_SIZE);
-      ByteBuffer partBuffer1 = ByteBuffer.allocate(partBufferSize);
 
       long currentScoopPosition2 = (4095 - scoopNumber) * plotFile.getStaggeramt() * MiningPlot.SCOOP_SIZE;
-      ByteBuffer partBuffer2 = ByteBuffer.allocate(partBufferSize);
 
       // optimized plotFiles only have one chunk!
       for(int chunkNumber = 0; chunkNumber < plotFile.getNumberOfChunks(); chunkNumber++)
       {
         long currentChunkPosition = chunkNumber * plotFile.getStaggeramt() * MiningPlot.PLOT_SIZE;
-        sbc1.position(currentScoopPosition1 + currentChunkPosition);
-        sbc2.position(currentScoopPosition2 + currentChunkPosition);
         for(int partNumber = 0; partNumber < plotFile.getNumberOfParts(); partNumber++)
         {
-          sbc1.read(partBuffer1);
-          sbc2.read(partBuffer2);
+          long currentPartPosition = currentChunkPosition + (long) partNumber * partBufferSize;
+          long chunkPartStartNonce = plotFile.getChunkPartStartNonce(chunkNumber, partNumber);
+          long waitTime = tracer.now();
+          // mapped parts need no buffer memory, buffer just limits parts in flight
+          int capacity = plotFileChannel.isMapped() ? 0 : partBufferSize;
+          PartBuffer partBuffer = partBuffers[0] = acquire(capacity);
+          PartBuffer mirrorPartBuffer = partBuffers[1] = partBuffer != null ? acquire(capacity) : null;
+          long readTime = System.nanoTime();
+          long channelReadBytes = plotFileChannel.getReadBytes() + mirrorFileChannel.getReadBytes();
+          if(mirrorPartBuffer != null)
+          {
+            // mirror scoops are read on mirrorReaderPool, while scoops are read on this thread
+            Future<Void> mirrorRead = mirrorReaderPool.submit(new Callable<Void>()
+            {
+              @Override
+              public Void call()
+                throws IOException
+              {
+                mirrorFileChannel.read(currentScoopPosition2 + currentPartPosition, partBufferSize, mirrorPartBuffer, cancellationToken);
+                return null;
+              }
+            });
+            boolean mirrorDone = false;
+            try
+            {
+              plotFileChannel.read(currentScoopPosition1 + currentPartPosition, partBufferSize, partBuffer, cancellationToken);
+              awaitMirrorRead(mirrorRead);
+              mirrorDone = true;
+            }
+            finally
+            {
+              // mirror buffer and channel stay in use, until mirror read is done
+              if(!mirrorDone)
+              {
+                awaitQuietly(mirrorRead);
+              }
+            }
+          }
 
-          if(Reader.blockNumber.get() != blockNumber || !Arrays.equals(Reader.generationSignature, generationSignature))
+          if(mirrorPartBuffer == null || !isCurrentRound())
           {
             LOG.trace("loadDriveThread stopped!");
-            partBuffer1.clear();
-            partBuffer2.clear();
-            sbc1.close();
-            sbc2.close();
             return true;
           }
           else
           {
-            byte[] scoops1 = partBuffer1.array();
-            byte[] scoops2 = partBuffer2.array();
-
-            partBuffer1.clear();
-            partBuffer2.clear();
+            // scoops and mirror scoops, read concurrently
+            long partReadBytes = plotFileChannel.getReadBytes() + mirrorFileChannel.getReadBytes() - channelReadBytes;
+            driveMetrics.read(partReadBytes, System.nanoTime() - readTime);
+            readBytes += partReadBytes;
+            tracer.part("wait buffer", blockNumber, chunkPartStartNonce, waitTime, readTime);
+            tracer.part("read", blockNumber, chunkPartStartNonce, readTime);
 
-            // copy every other 32 bytes from scoops2 to scoops1
-            for(int pos = 0; pos < partSize; pos++)
-            {
-              int copyPosition = pos * MiningPlot.SCOOP_SIZE + MiningPlot.HASH_SIZE;
-              System.arraycopy(scoops2, copyPosition, scoops1, copyPosition, MiningPlot.HASH_SIZE);
-            }
-            BigInteger chunkPartStartNonce = plotFile.getStartnonce().add(BigInteger.valueOf(chunkNumber * plotFile.getStaggeramt() + partNumber * partSize));
-            publisher.publishEvent(new ReaderLoadedPartEvent(blockNumber, generationSignature, scoops1, chunkPartStartNonce, plotFile.getFilePath().toString()));
-
-            if(!CoreProperties.isUseOpenCl())
-            {
-              int lowestNonce = shaLibChecker.findLowest(generationSignature, scoops1);
-              publisher.publishEvent(new CheckerResultEvent(blockNumber, generationSignature, chunkPartStartNonce, lowestNonce,
-                                                            plotFile.getFilePath().toString(), scoops1));
-            }
+            publish(new ReaderLoadedPartEvent(blockNumber, generationSignature, partBuffer, mirrorPartBuffer, chunkPartStartNonce,
+                                              plotFile.getFilePath().toString(), plotFile.getChunkPartSize(), 2 * plotFile.getChunkPartSize(),
+                                              cancellationToken));
           }
+          release(partBuffers);
         }
       }
-      sbc1.close();
-      sbc2.close();
     }
     catch(NoSuchFileException exception)
     {
@@ -202,6 +250,101 @@ public class ReaderConvertLoadDriveTask
     {
       LOG.error("IOException in: " + plotFile.getFilePath().toString() + " -> " + e.getMessage());
     }
+    catch(InterruptedException e)
+    {
+      LOG.trace("reader stopped cause of new block ...");
+      Thread.currentThread().interrupt();
+      return true;
+    }
+    finally
+    {
+      release(partBuffers);
+    }
     return false;
   }
+
+  private static void awaitMirrorRead(Future<?> mirrorRead)
+    throws IOException, InterruptedException
+  {
+    try
+    {
+      mirrorRead.get();
+    }
+    catch(ExecutionException e)
+    {
+      if(e.getCause() instanceof IOException)
+      {
+        throw (IOException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static void awaitQuietly(Future<?> mirrorRead)
+  {
+    boolean interrupted = Thread.interrupted();
+    try
+    {
+      mirrorRead.get();
+    }
+    catch(ExecutionException e)
+    {
+      LOG.trace("mirror read failed: " + e.getCause());
+    }
+    catch(InterruptedException e)
+    {
+      interrupted = true;
+    }
+    finally
+    {
+      if(interrupted)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  // checks part on reader thread, or queues it for checker threads and continues reading
+  private void publish(ReaderLoadedPartEvent event)
+    throws InterruptedException
+  {
+    if(pipelined)
+    {
+      checker.enqueue(event);
+    }
+    else
+    {
+      checker.check(event);
+    }
+    reader.updateProgress(event);
+  }
+
+  /* waits for a free buffer of drive, returns null if round changed meanwhile */
+  private PartBuffer acquire(int capacity)
+    throws InterruptedException
+  {
+    PartBuffer partBuffer = null;
+    while(partBuffer == null && isCurrentRound())
+    {
+      partBuffer = partBufferPool.acquire(capacity, 10, TimeUnit.MILLISECONDS);
+    }
+    return partBuffer;
+  }
+
+  private static void release(PartBuffer[] partBuffers)
+  {
+    for(int i = 0; i < partBuffers.length; i++)
+    {
+      if(partBuffers[i] != null)
+      {
+        partBuffers[i].release();
+        partBuffers[i] = null;
+      }
+    }
+  }
+
+  private boolean isCurrentRound()
+  {
+    return !cancellationToken.isCancelled();
+  }
 }
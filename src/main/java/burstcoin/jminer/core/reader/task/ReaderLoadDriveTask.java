@@ -24,14 +24,21 @@ package burstcoin.jminer.core.reader.task;
 
 
 import burstcoin.jminer.core.CoreProperties;
-import burstcoin.jminer.core.checker.event.CheckerResultEvent;
-import burstcoin.jminer.core.checker.util.ShaLibChecker;
+import burstcoin.jminer.core.checker.Checker;
+import burstcoin.jminer.core.metrics.DriveMetrics;
+import burstcoin.jminer.core.metrics.Metrics;
 import burstcoin.jminer.core.reader.Reader;
+import burstcoin.jminer.core.reader.data.CancellationToken;
+import burstcoin.jminer.core.reader.data.PartBuffer;
+import burstcoin.jminer.core.reader.data.PartBufferPool;
 import burstcoin.jminer.core.reader.data.PlotDrive;
 import burstcoin.jminer.core.reader.data.PlotFile;
+import burstcoin.jminer.core.reader.data.ReadMode;
 import burstcoin.jminer.core.reader.event.ReaderDriveFinishEvent;
 import burstcoin.jminer.core.reader.event.ReaderDriveInterruptedEvent;
 import burstcoin.jminer.core.reader.event.ReaderLoadedPartEvent;
+import burstcoin.jminer.core.reader.util.PlotFileChannel;
+import burstcoin.jminer.core.trace.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,17 +48,11 @@ import org.springframework.stereotype.Component;
 import pocminer.generate.MiningPlot;
 
 import java.io.IOException;
-import java.math.BigInteger;
-import java.nio.ByteBuffer;
 import java.nio.channels.ClosedByInterruptException;
-import java.nio.channels.SeekableByteChannel;
-import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
-import java.nio.file.StandardOpenOption;
-import java.util.Arrays;
 import java.util.Date;
-import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -65,39 +66,55 @@ public class ReaderLoadDriveTask
   private static final Logger LOG = LoggerFactory.getLogger(ReaderLoadDriveTask.class);
 
   private final ApplicationEventPublisher publisher;
-  private ShaLibChecker shaLibChecker;
+  private final Checker checker;
+  private final Reader reader;
+  private final Metrics metrics;
+  private final Tracer tracer;
 
   private byte[] generationSignature;
   private PlotDrive plotDrive;
   private int scoopNumber;
   private long blockNumber;
   private boolean showDriveInfo;
+  private ReadMode readMode;
+  private PartBufferPool partBufferPool;
+  private CancellationToken cancellationToken;
+  private boolean pipelined;
+  private DriveMetrics driveMetrics;
+  private long readBytes;
 
   @Autowired
-  public ReaderLoadDriveTask(ApplicationEventPublisher publisher)
+  public ReaderLoadDriveTask(ApplicationEventPublisher publisher, Checker checker, Reader reader, Metrics metrics, Tracer tracer)
   {
     this.publisher = publisher;
+    this.checker = checker;
+    this.reader = reader;
+    this.metrics = metrics;
+    this.tracer = tracer;
   }
 
-  public void init(int scoopNumber, long blockNumber, byte[] generationSignature, PlotDrive plotDrive)
+  public void init(int scoopNumber, long blockNumber, byte[] generationSignature, PlotDrive plotDrive, PartBufferPool partBufferPool,
+                   CancellationToken cancellationToken)
   {
     this.scoopNumber = scoopNumber;
     this.blockNumber = blockNumber;
     this.generationSignature = generationSignature;
     this.plotDrive = plotDrive;
+    this.partBufferPool = partBufferPool;
+    this.cancellationToken = cancellationToken;
 
     showDriveInfo = CoreProperties.isShowDriveInfo();
-
-    if(!CoreProperties.isUseOpenCl())
-    {
-      this.shaLibChecker = new ShaLibChecker();
-    }
+    readMode = CoreProperties.getReadMode();
+    pipelined = CoreProperties.getReaderQueueDepth() > 0;
+    driveMetrics = metrics.drive(plotDrive.getDirectory());
   }
 
   @Override
   public void run()
   {
     long startTime = showDriveInfo ? new Date().getTime() : 0;
+    long startNanos = System.nanoTime();
+    readBytes = 0;
     Iterator<PlotFile> iterator = plotDrive.getPlotFiles().iterator();
     boolean interrupted = false;
     while(iterator.hasNext() && !interrupted)
@@ -112,62 +129,84 @@ public class ReaderLoadDriveTask
       interrupted = load(plotPathInfo);
     }
 
+    if(!interrupted)
+    {
+      driveMetrics.finished(generationSignature, readBytes, System.nanoTime() - startNanos);
+    }
+
     if(showDriveInfo)
     {
       if(interrupted)
       {
         // ui-event
-        publisher.publishEvent(new ReaderDriveInterruptedEvent(blockNumber, plotDrive.getDirectory()));
+        publisher.publishEvent(new ReaderDriveInterruptedEvent(blockNumber, generationSignature, plotDrive.getDirectory()));
       }
       else
       {
         // ui event
-        publisher.publishEvent(new ReaderDriveFinishEvent(plotDrive.getDirectory(), plotDrive.getSize(), new Date().getTime() - startTime, blockNumber));
+        publisher.publishEvent(new ReaderDriveFinishEvent(plotDrive.getDirectory(), plotDrive.getSize(), readBytes, new Date().getTime() - startTime,
+                                                          blockNumber, generationSignature));
       }
     }
   }
 
   private boolean load(PlotFile plotFile)
   {
-    try (SeekableByteChannel sbc = Files.newByteChannel(plotFile.getFilePath(), EnumSet.of(StandardOpenOption.READ)))
+    PartBuffer[] partBuffers = new PartBuffer[1];
+    try (PlotFileChannel plotFileChannel = PlotFileChannel.open(plotFile.getFilePath(), readMode))
     {
       long currentScoopPosition = scoopNumber * plotFile.getStaggeramt() * MiningPlot.SCOOP_SIZE;
 
       long partSize = plotFile.getStaggeramt() / plotFile.getNumberOfParts();
-      ByteBuffer partBuffer = ByteBuffer.allocate((int) (partSize * MiningPlot.SCOOP_SIZE));
+      int partBufferSize = (int) (partSize * MiningPlot.SCOOP_SIZE);
       // optimized plotFiles only have one chunk!
       for(int chunkNumber = 0; chunkNumber < plotFile.getNumberOfChunks(); chunkNumber++)
       {
         long currentChunkPosition = chunkNumber * plotFile.getStaggeramt() * MiningPlot.PLOT_SIZE;
-        sbc.position(currentScoopPosition + currentChunkPosition);
         for(int partNumber = 0; partNumber < plotFile.getNumberOfParts(); partNumber++)
         {
-          sbc.read(partBuffer);
+          long currentPartPosition = currentScoopPosition + currentChunkPosition + (long) partNumber * partBufferSize;
+          long chunkPartStartNonce = plotFile.getChunkPartStartNonce(chunkNumber, partNumber);
+          long waitTime = tracer.now();
+          // mapped parts need no buffer memory, buffer just limits parts in flight
+          PartBuffer partBuffer = partBuffers[0] = acquire(plotFileChannel.isMapped() ? 0 : partBufferSize);
+          long readTime = System.nanoTime();
+          long channelReadBytes = plotFileChannel.getReadBytes();
+          if(partBuffer != null)
+          {
+            plotFileChannel.read(currentPartPosition, partBufferSize, partBuffer, cancellationToken);
+          }
 
-          if(Reader.blockNumber.get() != blockNumber || !Arrays.equals(Reader.generationSignature, generationSignature))
+          if(partBuffer == null || !isCurrentRound())
           {
             LOG.trace("loadDriveThread stopped!");
-            partBuffer.clear();
-            sbc.close();
             return true;
           }
           else
           {
-            BigInteger chunkPartStartNonce = plotFile.getStartnonce().add(BigInteger.valueOf(chunkNumber * plotFile.getStaggeramt() + partNumber * partSize));
-            final byte[] scoops = partBuffer.array();
-            partBuffer.clear();
-            publisher.publishEvent(new ReaderLoadedPartEvent(blockNumber, generationSignature, scoops, chunkPartStartNonce, plotFile.getFilePath().toString()));
+            // bytes really read, e.g. with alignment of direct reads
+            long partReadBytes = plotFileChannel.getReadBytes() - channelReadBytes;
+            driveMetrics.read(partReadBytes, System.nanoTime() - readTime);
+            readBytes += partReadBytes;
+            tracer.part("wait buffer", blockNumber, chunkPartStartNonce, waitTime, readTime);
+            tracer.part("read", blockNumber, chunkPartStartNonce, readTime);
 
-            if(!CoreProperties.isUseOpenCl())
+            // mapped: os reads next part ahead, while this one is checked
+            if(partNumber + 1 < plotFile.getNumberOfParts())
+            {
+              plotFileChannel.prefetch(currentPartPosition + partBufferSize, partBufferSize);
+            }
+            else if(chunkNumber + 1 < plotFile.getNumberOfChunks())
             {
-              int lowestNonce = shaLibChecker.findLowest(generationSignature, scoops);
-              publisher.publishEvent(new CheckerResultEvent(blockNumber, generationSignature, chunkPartStartNonce, lowestNonce,
-                                                            plotFile.getFilePath().toString(), scoops));
+              plotFileChannel.prefetch(currentScoopPosition + (chunkNumber + 1) * plotFile.getStaggeramt() * MiningPlot.PLOT_SIZE, partBufferSize);
             }
+
+            publish(new ReaderLoadedPartEvent(blockNumber, generationSignature, partBuffer, chunkPartStartNonce, plotFile.getFilePath().toString(),
+                                              plotFile.getChunkPartSize(), plotFile.getChunkPartSize(), cancellationToken));
           }
+          release(partBuffers);
         }
       }
-      sbc.close();
     }
     catch(NoSuchFileException exception)
     {
@@ -182,6 +221,60 @@ public class ReaderLoadDriveTask
     {
       LOG.error("IOException in: " + plotFile.getFilePath().toString() + " -> " + e.getMessage());
     }
+    catch(InterruptedException e)
+    {
+      LOG.trace("reader stopped cause of new block ...");
+      Thread.currentThread().interrupt();
+      return true;
+    }
+    finally
+    {
+      release(partBuffers);
+    }
     return false;
   }
+
+  // checks part on reader thread, or queues it for checker threads and continues reading
+  private void publish(ReaderLoadedPartEvent event)
+    throws InterruptedException
+  {
+    if(pipelined)
+    {
+      checker.enqueue(event);
+    }
+    else
+    {
+      checker.check(event);
+    }
+    reader.updateProgress(event);
+  }
+
+  /* waits for a free buffer of drive, returns null if round changed meanwhile */
+  private PartBuffer acquire(int capacity)
+    throws InterruptedException
+  {
+    PartBuffer partBuffer = null;
+    while(partBuffer == null && isCurrentRound())
+    {
+      partBuffer = partBufferPool.acquire(capacity, 10, TimeUnit.MILLISECONDS);
+    }
+    return partBuffer;
+  }
+
+  private static void release(PartBuffer[] partBuffers)
+  {
+    for(int i = 0; i < partBuffers.length; i++)
+    {
+      if(partBuffers[i] != null)
+      {
+        partBuffers[i].release();
+        partBuffers[i] = null;
+      }
+    }
+  }
+
+  private boolean isCurrentRound()
+  {
+    return !cancellationToken.isCancelled();
+  }
 }
@@ -0,0 +1,202 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.reader.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Physical block device (disk) a plot directory is stored on, resolved via /proc/self/mountinfo and /sys (linux only).
+ *
+ * If the device can not be resolved (other os, network or pooled filesystems like zfs), the directory itself is used
+ * as rotational device, so it gets its own reader thread, like without device detection.
+ */
+public final class BlockDevice
+{
+  private static final Logger LOG = LoggerFactory.getLogger(BlockDevice.class);
+
+  private static final Path MOUNT_INFO = Paths.get("/proc/self/mountinfo");
+  private static final Path SYS_DEV_BLOCK = Paths.get("/sys/dev/block");
+
+  private final String name;
+  private final boolean rotational;
+
+  private BlockDevice(String name, boolean rotational)
+  {
+    this.name = name;
+    this.rotational = rotational;
+  }
+
+  /* device name (e.g. 'sda', 'nvme0n1') or directory, if unknown */
+  public String getName()
+  {
+    return name;
+  }
+
+  /* spinning disk, seeks are expensive, so it should be read by one thread only */
+  public boolean isRotational()
+  {
+    return rotational;
+  }
+
+  /* devices by directory */
+  public static Map<String, BlockDevice> of(Collection<String> directories)
+  {
+    List<MountPoint> mountPoints = readMountPoints();
+    Map<String, BlockDevice> devices = new HashMap<>();
+    for(String directory : directories)
+    {
+      devices.put(directory, of(directory, mountPoints));
+    }
+    return devices;
+  }
+
+  private static List<MountPoint> readMountPoints()
+  {
+    List<MountPoint> mountPoints = new ArrayList<>();
+    if(Files.isReadable(MOUNT_INFO))
+    {
+      try
+      {
+        for(String line : Files.readAllLines(MOUNT_INFO, StandardCharsets.UTF_8))
+        {
+          // id parentId major:minor root mountPoint options ...
+          String[] fields = line.split(" ");
+          if(fields.length > 4)
+          {
+            mountPoints.add(new MountPoint(Paths.get(unescape(fields[4])), fields[2]));
+          }
+        }
+      }
+      catch(IOException e)
+      {
+        LOG.debug("reading '" + MOUNT_INFO + "' failed: " + e.getMessage());
+      }
+    }
+    return mountPoints;
+  }
+
+  private static BlockDevice of(String directory, List<MountPoint> mountPoints)
+  {
+    try
+    {
+      Path path = Paths.get(directory).toRealPath();
+
+      // mounts can be stacked, the last matching one is visible
+      MountPoint mountPoint = null;
+      for(MountPoint candidate : mountPoints)
+      {
+        if(path.startsWith(candidate.path)
+           && (mountPoint == null || candidate.path.getNameCount() >= mountPoint.path.getNameCount()))
+        {
+          mountPoint = candidate;
+        }
+      }
+
+      if(mountPoint != null)
+      {
+        Path device = SYS_DEV_BLOCK.resolve(mountPoint.majorMinor);
+        if(Files.exists(device))
+        {
+          device = device.toRealPath();
+          // partitions are below their disk
+          if(Files.exists(device.resolve("partition")))
+          {
+            device = device.getParent();
+          }
+          Path rotational = device.resolve("queue").resolve("rotational");
+          if(Files.isReadable(rotational))
+          {
+            String value = new String(Files.readAllBytes(rotational), StandardCharsets.US_ASCII).trim();
+            return new BlockDevice(device.getFileName().toString(), !"0".equals(value));
+          }
+        }
+      }
+    }
+    catch(IOException | RuntimeException e)
+    {
+      LOG.debug("device of '" + directory + "' unknown: " + e.getMessage());
+    }
+    return new BlockDevice(directory, true);
+  }
+
+  // mountinfo escapes space, tab, newline and backslash as octal
+  private static String unescape(String value)
+  {
+    StringBuilder unescaped = new StringBuilder();
+    for(int i = 0; i < value.length(); i++)
+    {
+      char c = value.charAt(i);
+      if(c == '\\' && i + 3 < value.length())
+      {
+        unescaped.append((char) Integer.parseInt(value.substring(i + 1, i + 4), 8));
+        i += 3;
+      }
+      else
+      {
+        unescaped.append(c);
+      }
+    }
+    return unescaped.toString();
+  }
+
+  @Override
+  public boolean equals(Object o)
+  {
+    return o instanceof BlockDevice && name.equals(((BlockDevice) o).name);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return name.hashCode();
+  }
+
+  @Override
+  public String toString()
+  {
+    return name + (rotational ? " (rotational)" : "");
+  }
+
+  private static final class MountPoint
+  {
+    private final Path path;
+    private final String majorMinor;
+
+    private MountPoint(Path path, String majorMinor)
+    {
+      this.path = path;
+      this.majorMinor = majorMinor;
+    }
+  }
+}
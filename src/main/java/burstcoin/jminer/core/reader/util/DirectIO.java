@@ -0,0 +1,244 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package burstcoin.jminer.core.reader.util;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Unbuffered (O_DIRECT) file reading via libc, as java8 has no api for it.
+ * Only supported on 64bit linux, position, length and buffer address of a read have to be aligned to BLOCK_SIZE.
+ * Also provides madvise prefetch hints and explicit unmapping for memory mapped reading.
+ */
+public final class DirectIO
+{
+  private static final Logger LOG = LoggerFactory.getLogger(DirectIO.class);
+
+  // covers logical block sizes of 512 and 4096 bytes
+  public static final int BLOCK_SIZE = 4096;
+
+  private static final int O_RDONLY = 0;
+  private static final int MADV_WILLNEED = 3;
+  private static final int O_DIRECT = lookupDirectFlag();
+  private static final LibC LIBC = loadLibC();
+
+  private interface LibC
+    extends Library
+  {
+    int open(String path, int flags)
+      throws LastErrorException;
+
+    long pread(int fd, Pointer buffer, long count, long offset)
+      throws LastErrorException;
+
+    int close(int fd)
+      throws LastErrorException;
+
+    int madvise(Pointer address, long length, int advice)
+      throws LastErrorException;
+  }
+
+  private DirectIO()
+  {
+    // no instances
+  }
+
+  public static boolean isSupported()
+  {
+    return LIBC != null;
+  }
+
+  /* opens file for unbuffered reading, throws IOException if the filesystem refuses direct i/o */
+  public static int open(Path path)
+    throws IOException
+  {
+    if(!isSupported())
+    {
+      throw new IOException("direct i/o is only supported on 64bit linux");
+    }
+    try
+    {
+      return LIBC.open(path.toAbsolutePath().toString(), O_RDONLY | O_DIRECT);
+    }
+    catch(LastErrorException e)
+    {
+      throw new IOException("open failed, errno '" + e.getErrorCode() + "'");
+    }
+  }
+
+  /* reads into buffer (position to limit) at file position, returns number of bytes read, 0 on end of file */
+  public static int read(int fd, ByteBuffer buffer, long position)
+    throws IOException
+  {
+    try
+    {
+      Pointer pointer = Native.getDirectBufferPointer(buffer).share(buffer.position());
+      int bytesRead = (int) LIBC.pread(fd, pointer, buffer.remaining(), position);
+      buffer.position(buffer.position() + bytesRead);
+      return bytesRead;
+    }
+    catch(LastErrorException e)
+    {
+      throw new IOException("read failed, errno '" + e.getErrorCode() + "'");
+    }
+  }
+
+  public static void close(int fd)
+    throws IOException
+  {
+    try
+    {
+      LIBC.close(fd);
+    }
+    catch(LastErrorException e)
+    {
+      throw new IOException("close failed, errno '" + e.getErrorCode() + "'");
+    }
+  }
+
+  /* asks os to read pages of mapped buffer (position to limit) ahead in background, ignored if not supported */
+  public static void willNeed(ByteBuffer buffer)
+  {
+    if(isSupported() && buffer.isDirect())
+    {
+      try
+      {
+        // madvise needs page aligned address
+        long address = Pointer.nativeValue(Native.getDirectBufferPointer(buffer)) + buffer.position();
+        long alignedAddress = alignDown(address, BLOCK_SIZE);
+        LIBC.madvise(new Pointer(alignedAddress), address - alignedAddress + buffer.remaining(), MADV_WILLNEED);
+      }
+      catch(LastErrorException e)
+      {
+        LOG.trace("madvise failed, errno '" + e.getErrorCode() + "'");
+      }
+    }
+  }
+
+  /* unmaps buffer right away instead of on gc, buffer and all its slices must not be used afterwards */
+  public static void unmap(MappedByteBuffer buffer)
+  {
+    try
+    {
+      try
+      {
+        // java9+
+        Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+        Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+        theUnsafe.setAccessible(true);
+        invokeCleaner.invoke(theUnsafe.get(null), buffer);
+      }
+      catch(NoSuchMethodException e)
+      {
+        // java8
+        Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+        cleanerMethod.setAccessible(true);
+        Object cleaner = cleanerMethod.invoke(buffer);
+        if(cleaner != null)
+        {
+          cleaner.getClass().getMethod("clean").invoke(cleaner);
+        }
+      }
+    }
+    catch(ReflectiveOperationException | RuntimeException e)
+    {
+      // unmapped by gc later
+      LOG.trace("unmap failed: " + e.getMessage());
+    }
+  }
+
+  /* direct buffer, address and capacity aligned to BLOCK_SIZE */
+  public static ByteBuffer allocate(int capacity)
+  {
+    int alignedCapacity = (int) alignUp(capacity, BLOCK_SIZE);
+    return alignedSlice(ByteBuffer.allocateDirect(alignedCapacity + BLOCK_SIZE), alignedCapacity);
+  }
+
+  /* aligned part of a direct buffer, buffer needs BLOCK_SIZE more than capacity */
+  public static ByteBuffer alignedSlice(ByteBuffer buffer, int capacity)
+  {
+    long address = Pointer.nativeValue(Native.getDirectBufferPointer(buffer));
+    int offset = (int) (alignUp(address, BLOCK_SIZE) - address);
+    ByteBuffer slice = buffer.duplicate();
+    slice.position(offset);
+    slice.limit(offset + capacity);
+    return slice.slice();
+  }
+
+  public static long alignDown(long value, int alignment)
+  {
+    return value & -alignment;
+  }
+
+  public static long alignUp(long value, int alignment)
+  {
+    return (value + alignment - 1) & -alignment;
+  }
+
+  private static int lookupDirectFlag()
+  {
+    String arch = System.getProperty("os.arch");
+    if("amd64".equals(arch) || "x86_64".equals(arch))
+    {
+      return 0x4000;
+    }
+    if("aarch64".equals(arch))
+    {
+      return 0x10000;
+    }
+    if("ppc64".equals(arch) || "ppc64le".equals(arch))
+    {
+      return 0x20000;
+    }
+    return 0;
+  }
+
+  private static LibC loadLibC()
+  {
+    if(Platform.isLinux() && Platform.is64Bit() && O_DIRECT != 0)
+    {
+      try
+      {
+        return Native.loadLibrary("c", LibC.class);
+      }
+      catch(UnsatisfiedLinkError e)
+      {
+        LOG.debug("could not load libc, direct i/o not available: " + e.getMessage());
+      }
+    }
+    return null;
+  }
+}
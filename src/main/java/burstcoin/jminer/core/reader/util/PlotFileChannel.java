@@ -0,0 +1,355 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package burstcoin.jminer.core.reader.util;
+
+import burstcoin.jminer.core.reader.data.CancellationToken;
+import burstcoin.jminer.core.reader.data.PartBuffer;
+import burstcoin.jminer.core.reader.data.ReadMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads scoop data of a plot file, buffered, direct (O_DIRECT) or memory mapped depending on ReadMode.
+ * Falls back to buffered reading, if the filesystem refuses direct i/o.
+ */
+public class PlotFileChannel
+  implements Closeable
+{
+  private static final Logger LOG = LoggerFactory.getLogger(PlotFileChannel.class);
+
+  // remember paths without direct i/o support, to warn just once
+  private static final Set<Path> DIRECT_UNSUPPORTED = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+  // parts are read in slices, to stop within milliseconds on new round (blocking reads can not be interrupted)
+  private static final int READ_SLICE_SIZE = 2 * 1024 * 1024;
+
+  // mapped parts are slices of a rolling window, as one mapping is limited to 2GB
+  private static final long MAX_WINDOW_SIZE = 1024L * 1024 * 1024;
+  private static final int PAGE_SIZE = 4096;
+
+  private final Path path;
+  private FileChannel fileChannel;
+  private int fd = -1;
+
+  private boolean mapped;
+  private MappedWindow mappedWindow;
+  // sum of touched bytes, keeps jit from dropping the reads
+  private int touched;
+  private long readBytes;
+
+  private PlotFileChannel(Path path)
+  {
+    this.path = path;
+  }
+
+  public static PlotFileChannel open(Path path, ReadMode readMode)
+    throws IOException
+  {
+    PlotFileChannel plotFileChannel = new PlotFileChannel(path);
+    if(ReadMode.DIRECT.equals(readMode) && DirectIO.isSupported() && !DIRECT_UNSUPPORTED.contains(path))
+    {
+      if(!Files.exists(path))
+      {
+        throw new NoSuchFileException(path.toString());
+      }
+      try
+      {
+        plotFileChannel.fd = DirectIO.open(path);
+        return plotFileChannel;
+      }
+      catch(IOException e)
+      {
+        directUnsupported(path, e);
+      }
+    }
+    plotFileChannel.fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+    plotFileChannel.mapped = ReadMode.MAPPED.equals(readMode);
+    return plotFileChannel;
+  }
+
+  public boolean isDirect()
+  {
+    return fd >= 0;
+  }
+
+  public boolean isMapped()
+  {
+    return mapped;
+  }
+
+  /* bytes read from file so far, direct reads include alignment, mapped reads the pages touched (not read ahead) */
+  public long getReadBytes()
+  {
+    return readBytes;
+  }
+
+  /* reads length bytes of file starting at position into partBuffer, missing bytes at end of file are zero, stops early if cancelled (scoops are not set then)
+   * mapped: scoops are a slice of the mapped file, partBuffer is not used for data */
+  public void read(long position, int length, PartBuffer partBuffer, CancellationToken cancellationToken)
+    throws IOException
+  {
+    if(mapped)
+    {
+      readMapped(position, length, partBuffer, cancellationToken);
+      return;
+    }
+    if(isDirect())
+    {
+      try
+      {
+        readDirect(position, length, partBuffer, cancellationToken);
+        return;
+      }
+      catch(IOException e)
+      {
+        // e.g. filesystem accepted O_DIRECT on open, but refuses the aligned read
+        directUnsupported(path, e);
+        DirectIO.close(fd);
+        fd = -1;
+        fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+      }
+    }
+    readBuffered(position, length, partBuffer, cancellationToken);
+  }
+
+  private void readBuffered(long position, int length, PartBuffer partBuffer, CancellationToken cancellationToken)
+    throws IOException
+  {
+    ByteBuffer buffer = partBuffer.getBuffer();
+    buffer.clear();
+    while(buffer.position() < length && !cancellationToken.isCancelled())
+    {
+      buffer.limit(Math.min(length, buffer.position() + READ_SLICE_SIZE));
+      if(fileChannel.read(buffer, position + buffer.position()) < 0)
+      {
+        break;
+      }
+    }
+    readBytes += buffer.position();
+    if(!cancellationToken.isCancelled())
+    {
+      partBuffer.setScoops(window(buffer, 0, buffer.position(), length));
+    }
+  }
+
+  // direct reads need aligned position, length and buffer address, so we read the aligned region around the requested one
+  private void readDirect(long position, int length, PartBuffer partBuffer, CancellationToken cancellationToken)
+    throws IOException
+  {
+    long alignedPosition = DirectIO.alignDown(position, DirectIO.BLOCK_SIZE);
+    int offset = (int) (position - alignedPosition);
+    int alignedLength = (int) DirectIO.alignUp(offset + length, DirectIO.BLOCK_SIZE);
+
+    ByteBuffer buffer = partBuffer.getBuffer();
+    buffer.clear();
+    while(buffer.position() < alignedLength && !cancellationToken.isCancelled())
+    {
+      buffer.limit(Math.min(alignedLength, buffer.position() + READ_SLICE_SIZE));
+      int read = DirectIO.read(fd, buffer, alignedPosition + buffer.position());
+      if(read == 0 || buffer.position() % DirectIO.BLOCK_SIZE != 0)
+      {
+        // end of file
+        break;
+      }
+    }
+    readBytes += buffer.position();
+    if(!cancellationToken.isCancelled())
+    {
+      partBuffer.setScoops(window(buffer, offset, Math.max(0, buffer.position() - offset), length));
+    }
+  }
+
+  /* mapped: os reads given part ahead in background, while current part is checked */
+  public void prefetch(long position, int length)
+    throws IOException
+  {
+    if(mapped)
+    {
+      ByteBuffer scoops = mappedSlice(position, length);
+      if(scoops != null)
+      {
+        DirectIO.willNeed(scoops);
+      }
+    }
+  }
+
+  private void readMapped(long position, int length, PartBuffer partBuffer, CancellationToken cancellationToken)
+    throws IOException
+  {
+    ByteBuffer scoops = mappedSlice(position, length);
+    MappedWindow window = scoops != null ? mappedWindow : null;
+    if(scoops == null)
+    {
+      // incomplete plot file, copy existing bytes
+      ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+      while(buffer.hasRemaining())
+      {
+        if(fileChannel.read(buffer, position + buffer.position()) < 0)
+        {
+          break;
+        }
+      }
+      readBytes += buffer.position();
+      scoops = window(buffer, 0, buffer.position(), length);
+    }
+    else
+    {
+      // fault in pages on reader thread, so checker does not wait for disk
+      int offset = 0;
+      for(; offset < length && !cancellationToken.isCancelled(); offset += PAGE_SIZE)
+      {
+        touched += scoops.get(offset);
+      }
+      readBytes += Math.min(offset, length);
+    }
+    if(!cancellationToken.isCancelled())
+    {
+      if(window != null)
+      {
+        // window stays mapped, until part is checked
+        window.retain();
+        partBuffer.setScoops(scoops, window::release);
+      }
+      else
+      {
+        partBuffer.setScoops(scoops);
+      }
+    }
+  }
+
+  /* slice of mapped file, maps new window if needed, null if not within file */
+  private ByteBuffer mappedSlice(long position, int length)
+    throws IOException
+  {
+    if(mappedWindow == null || !mappedWindow.contains(position, length))
+    {
+      long size = fileChannel.size();
+      if(position + length > size)
+      {
+        return null;
+      }
+      releaseMappedWindow();
+      MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, position, Math.max(length, Math.min(MAX_WINDOW_SIZE, size - position)));
+      mappedWindow = new MappedWindow(buffer, position);
+    }
+    int offset = (int) (position - mappedWindow.position);
+    ByteBuffer slice = mappedWindow.buffer.duplicate();
+    slice.limit(offset + length);
+    slice.position(offset);
+    return slice.slice();
+  }
+
+  // previous window is unmapped, as soon as all parts read from it are checked
+  private void releaseMappedWindow()
+  {
+    if(mappedWindow != null)
+    {
+      mappedWindow.release();
+      mappedWindow = null;
+    }
+  }
+
+  private static ByteBuffer window(ByteBuffer buffer, int offset, int bytesRead, int length)
+  {
+    // incomplete plot file
+    for(int position = offset + bytesRead; position < offset + length; position++)
+    {
+      buffer.put(position, (byte) 0);
+    }
+    ByteBuffer window = buffer.duplicate();
+    window.limit(offset + length);
+    window.position(offset);
+    return window.slice();
+  }
+
+  private static void directUnsupported(Path path, Exception e)
+  {
+    if(DIRECT_UNSUPPORTED.add(path))
+    {
+      LOG.warn("direct i/o not supported for '" + path + "', fallback to buffered reading. (" + e.getMessage() + ")");
+    }
+  }
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    if(isDirect())
+    {
+      DirectIO.close(fd);
+    }
+    else
+    {
+      releaseMappedWindow();
+      fileChannel.close();
+    }
+  }
+
+  /* mapped region of plot file, unmapped explicitly after last release, as gc may keep lots of mappings alive */
+  private static final class MappedWindow
+  {
+    private final MappedByteBuffer buffer;
+    private final long position;
+    // channel holds one, every part with scoops of this window another
+    private final AtomicInteger references;
+
+    private MappedWindow(MappedByteBuffer buffer, long position)
+    {
+      this.buffer = buffer;
+      this.position = position;
+      references = new AtomicInteger(1);
+    }
+
+    private boolean contains(long position, int length)
+    {
+      return position >= this.position && position + length <= this.position + buffer.capacity();
+    }
+
+    private void retain()
+    {
+      references.incrementAndGet();
+    }
+
+    private void release()
+    {
+      if(references.decrementAndGet() == 0)
+      {
+        DirectIO.unmap(buffer);
+      }
+    }
+  }
+}
@@ -25,6 +25,7 @@ package burstcoin.jminer.core.round;
 import burstcoin.jminer.core.CoreProperties;
 import burstcoin.jminer.core.checker.Checker;
 import burstcoin.jminer.core.checker.event.CheckerResultEvent;
+import burstcoin.jminer.core.metrics.Metrics;
 import burstcoin.jminer.core.network.Network;
 import burstcoin.jminer.core.network.event.NetworkQualityChangeEvent;
 import burstcoin.jminer.core.network.event.NetworkResultConfirmedEvent;
@@ -38,6 +39,7 @@ import burstcoin.jminer.core.round.event.RoundGenSigUpdatedEvent;
 import burstcoin.jminer.core.round.event.RoundSingleResultEvent;
 import burstcoin.jminer.core.round.event.RoundSingleResultSkippedEvent;
 import burstcoin.jminer.core.round.event.RoundStartedEvent;
+import burstcoin.jminer.core.trace.Tracer;
 import fr.cryptohash.Shabal256;
 import nxt.util.Convert;
 import org.slf4j.Logger;
@@ -56,13 +58,16 @@ import java.math.MathContext;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The type Round.
+ *
+ * State of current round is swapped atomically on new round, results are handled without lock (see RoundState).
  */
 @Component
 @Scope("singleton")
@@ -73,43 +78,35 @@ public class Round
   private final Reader reader;
   private final Checker checker;
   private final Network network;
+  private final Metrics metrics;
+  private final Tracer tracer;
   private final ApplicationEventPublisher publisher;
 
   private boolean poolMining;
-  private long targetDeadline;
 
   private Timer timer;
-  private long blockNumber;
-  private long finishedBlockNumber;
-  private long baseTarget;
-  private Date roundStartDate;
-
-  private BigInteger lowest;
-  private long bestCommittedDeadline;
-
-  // cache for next lowest
-  private CheckerResultEvent queuedEvent;
-  private BigInteger lowestCommitted;
 
-  private Set<BigInteger> runningChunkPartStartNonces;
-  private Plots plots;
-  private byte[] generationSignature;
+  // current round, null before first round
+  private final AtomicReference<RoundState> state;
+  // network state changes are handled one after the other
+  private final Object stateLock;
 
   // generationSignature
   private Set<String> finishedLookup;
 
-  private long networkSuccessCount;
-  private long networkFailCount;
-
   @Autowired
-  public Round(Reader reader, Checker checker, Network network, ApplicationEventPublisher publisher)
+  public Round(Reader reader, Checker checker, Network network, Metrics metrics, Tracer tracer, ApplicationEventPublisher publisher)
   {
     this.reader = reader;
     this.checker = checker;
     this.network = network;
+    this.metrics = metrics;
+    this.tracer = tracer;
     this.publisher = publisher;
 
-    finishedLookup = new HashSet<>();
+    state = new AtomicReference<>();
+    stateLock = new Object();
+    finishedLookup = ConcurrentHashMap.newKeySet();
   }
 
   @PostConstruct
@@ -117,25 +114,51 @@ public class Round
   {
     this.poolMining = CoreProperties.isPoolMining();
     timer = new Timer();
+
+    // results are handed over by checker in a ring buffer, not as spring event
+    Thread thread = new Thread(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        handleResults();
+      }
+    }, "round-results");
+    thread.setDaemon(true);
+    thread.start();
   }
 
-  private void initNewRound(Plots plots)
+  private void handleResults()
   {
-    networkFailCount = 0;
-    networkSuccessCount = 0;
-    runningChunkPartStartNonces = new HashSet<>(plots.getChunkPartStartNonces().keySet());
-    roundStartDate = new Date();
-    lowest = new BigInteger("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF", 16);
-    lowestCommitted = new BigInteger("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF", 16);
-    queuedEvent = null;
-    bestCommittedDeadline = Long.MAX_VALUE;
+    while(!Thread.currentThread().isInterrupted())
+    {
+      try
+      {
+        handleMessage(checker.takeResult());
+      }
+      catch(InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+      catch(RuntimeException e)
+      {
+        LOG.error("handle result failed: " + e.getMessage(), e);
+      }
+    }
   }
 
   @EventListener
   public void handleMessage(NetworkStateChangeEvent event)
   {
-    synchronized(reader)
+    long waitTime = tracer.now();
+    synchronized(stateLock)
     {
+      tracer.span("wait state lock", "round", waitTime);
+      long startTime = tracer.now();
+      RoundState previousState = state.get();
+      long blockNumber = previousState != null ? previousState.getBlockNumber() : 0;
+      byte[] generationSignature = previousState != null ? previousState.getGenerationSignature() : null;
+
       boolean blockHeightIncreased = blockNumber < event.getBlockNumber();
       boolean generationSignatureChanged = generationSignature != null && !Arrays.equals(event.getGenerationSignature(), generationSignature);
       boolean restart = false;
@@ -149,11 +172,6 @@ public class Round
       if(!blockHeightIncreased && (!alreadyMined && CoreProperties.isUpdateMiningInfo() && generationSignatureChanged))
       {
         restart = true;
-        // generationSignature for block updated
-        if(finishedBlockNumber == blockNumber)
-        {
-          finishedBlockNumber--;
-        }
         // ui event
         publisher.publishEvent(new RoundGenSigUpdatedEvent(blockNumber, generationSignature));
       }
@@ -162,211 +180,219 @@ public class Round
       if(blockHeightIncreased)
       {
         previousBlockNumber = blockNumber;
-        Round.this.blockNumber = event.getBlockNumber();
+        blockNumber = event.getBlockNumber();
       }
 
       if(blockHeightIncreased || (!alreadyMined && CoreProperties.isUpdateMiningInfo() && generationSignatureChanged))
       {
-        Round.this.baseTarget = event.getBaseTarget();
-        Round.this.targetDeadline = event.getTargetDeadline();
-
-        long lastBestCommittedDeadline = bestCommittedDeadline;
+        long lastBestCommittedDeadline = previousState != null ? previousState.getBestCommittedDeadline() : Long.MAX_VALUE;
+        int networkQuality = getNetworkQuality(previousState);
 
-        plots = reader.getPlots();
-        int networkQuality = getNetworkQuality();
-        initNewRound(plots);
-
-        // reconfigure checker
+        // results of previous round are dropped from now on
         generationSignature = event.getGenerationSignature();
-        if(CoreProperties.isUseOpenCl())
-        {
-          checker.reconfigure(blockNumber, generationSignature);
-        }
+        Plots plots = reader.getPlots();
+        state.set(new RoundState(blockNumber, generationSignature, event.getBaseTarget(), event.getTargetDeadline(), plots));
 
         // start reader
         int scoopNumber = calcScoopNumber(event.getBlockNumber(), event.getGenerationSignature());
-        reader.read(previousBlockNumber, blockNumber, generationSignature, scoopNumber, lastBestCommittedDeadline, networkQuality);
+        // same plots snapshot as round state, chunk part index and read parts have to match
+        reader.read(previousBlockNumber, blockNumber, generationSignature, scoopNumber, plots, lastBestCommittedDeadline, networkQuality);
 
         // ui event
-        publisher.publishEvent(new RoundStartedEvent(restart, blockNumber, scoopNumber, plots.getSize(), targetDeadline, baseTarget, generationSignature));
+        publisher.publishEvent(new RoundStartedEvent(restart, blockNumber, scoopNumber, plots.getSize(), event.getTargetDeadline(), event.getBaseTarget(),
+                                                     generationSignature));
 
         network.checkLastWinner(blockNumber);
       }
+      tracer.span("network state changed", "round", startTime);
     }
   }
 
-  @EventListener
   public void handleMessage(CheckerResultEvent event)
   {
-    synchronized(reader)
+    long roundTime = tracer.now();
+    // queued results are handled again later, without waiting for round thread
+    tracer.part("wait round", event.getBlockNumber(), event.getChunkPartStartNonce(), event.getTraceTime(), roundTime);
+    event.setTraceTime(0);
+
+    RoundState roundState = state.get();
+    if(roundState != null && roundState.isCurrentRound(event.getBlockNumber(), event.getGenerationSignature()))
     {
-      if(isCurrentRound(event.getBlockNumber(), event.getGenerationSignature()))
-      {
-        BigInteger nonce = event.getChunkPartStartNonce().add(BigInteger.valueOf(event.getLowestNonce()));
-        BigInteger result = calculateResult(event.getScoops(), generationSignature, event.getLowestNonce());
-        event.setResult(result);
+      metrics.resultChecked();
+      long nonce = event.getChunkPartStartNonce() + event.getLowestNonce();
+      long result = event.getResult();
 
-        BigInteger deadline = result.divide(BigInteger.valueOf(baseTarget));
-        long calculatedDeadline = deadline.longValue();
+      long calculatedDeadline = Long.divideUnsigned(result, roundState.getBaseTarget());
+      long targetDeadline = roundState.getTargetDeadline();
 
-        if(result.compareTo(lowest) < 0)
+      if(roundState.updateLowest(result))
+      {
+        if(calculatedDeadline < targetDeadline)
         {
-          lowest = result;
-          if(calculatedDeadline < targetDeadline)
-          {
-            network.commitResult(blockNumber, calculatedDeadline, nonce, event.getChunkPartStartNonce(), plots.getSize(), result, event.getPlotFilePath());
+          network.commitResult(roundState.getBlockNumber(), calculatedDeadline, nonce, event.getChunkPartStartNonce(), roundState.getPlots().getSize(),
+                               result, event.getPlotFilePath());
 
-            // ui event
-            publisher.publishEvent(new RoundSingleResultEvent(event.getBlockNumber(), nonce, event.getChunkPartStartNonce(), calculatedDeadline,
-                                                              poolMining));
-          }
-          else
-          {
-            // ui event
-            if(CoreProperties.isShowSkippedDeadlines())
-            {
-              publisher.publishEvent(new RoundSingleResultSkippedEvent(event.getBlockNumber(), nonce, event.getChunkPartStartNonce(), calculatedDeadline,
-                                                                       targetDeadline, poolMining));
-            }
-            // chunkPartStartNonce finished
-            runningChunkPartStartNonces.remove(event.getChunkPartStartNonce());
-            triggerFinishRoundEvent(event.getBlockNumber());
-          }
+          // ui event
+          publisher.publishEvent(new RoundSingleResultEvent(event.getBlockNumber(), event.getGenerationSignature(), nonce, event.getChunkPartStartNonce(),
+                                                            calculatedDeadline, poolMining));
         }
-        // remember next lowest in case that lowest fails to commit
-        else if(calculatedDeadline < targetDeadline
-                && result.compareTo(lowestCommitted) < 0
-                && (queuedEvent == null || result.compareTo(queuedEvent.getResult()) < 0))
+        else
         {
-          if(queuedEvent != null)
+          // ui event
+          if(CoreProperties.isShowSkippedDeadlines())
           {
-            // remove previous queued
-            runningChunkPartStartNonces.remove(queuedEvent.getChunkPartStartNonce());
+            publisher.publishEvent(new RoundSingleResultSkippedEvent(event.getBlockNumber(), nonce, event.getChunkPartStartNonce(), calculatedDeadline,
+                                                                     targetDeadline, poolMining));
           }
-          LOG.info("dl '" + calculatedDeadline + "' queued");
-          queuedEvent = event;
-
-          triggerFinishRoundEvent(event.getBlockNumber());
-        }
-        else
-        {
           // chunkPartStartNonce finished
-          runningChunkPartStartNonces.remove(event.getChunkPartStartNonce());
-          triggerFinishRoundEvent(event.getBlockNumber());
+          roundState.finishChunkPart(event.getChunkPartStartNonce());
+          triggerFinishRoundEvent(roundState);
         }
       }
+      // remember next lowest in case that lowest fails to commit
+      else if(calculatedDeadline < targetDeadline
+              && Long.compareUnsigned(result, roundState.getLowestCommitted()) < 0
+              && queue(roundState, event))
+      {
+        LOG.info("dl '" + calculatedDeadline + "' queued");
+        triggerFinishRoundEvent(roundState);
+      }
       else
       {
-        LOG.trace("event for previous block ...");
+        // chunkPartStartNonce finished
+        roundState.finishChunkPart(event.getChunkPartStartNonce());
+        triggerFinishRoundEvent(roundState);
       }
     }
+    else
+    {
+      LOG.trace("event for previous block ...");
+    }
+    tracer.part("round", event.getBlockNumber(), event.getChunkPartStartNonce(), roundTime);
+  }
+
+  /* queues event, if it is lower than the queued one */
+  private boolean queue(RoundState roundState, CheckerResultEvent event)
+  {
+    CheckerResultEvent replacedEvent = roundState.queue(event);
+    if(replacedEvent == event)
+    {
+      return false;
+    }
+    if(replacedEvent != null)
+    {
+      // remove previous queued
+      roundState.finishChunkPart(replacedEvent.getChunkPartStartNonce());
+    }
+    return true;
   }
 
   @EventListener
   public void handleMessage(NetworkResultConfirmedEvent event)
   {
-    if(isCurrentRound(event.getBlockNumber(), event.getGenerationSignature()))
+    RoundState roundState = state.get();
+    if(roundState != null && roundState.isCurrentRound(event.getBlockNumber(), event.getGenerationSignature()))
     {
       // if result if lower than lowestCommitted, update lowestCommitted
-      if(event.getResult() != null && event.getResult().compareTo(lowestCommitted) < 0)
+      if(roundState.updateLowestCommitted(event.getResult()))
       {
-        lowestCommitted = event.getResult();
-
         // if queuedLowest exist and is higher than lowestCommitted, remove queuedLowest
-        if(queuedEvent != null && lowestCommitted.compareTo(queuedEvent.getResult()) < 0)
+        CheckerResultEvent queuedEvent = roundState.getQueuedEvent();
+        if(queuedEvent != null && Long.compareUnsigned(roundState.getLowestCommitted(), queuedEvent.getResult()) < 0 && roundState.dequeue(queuedEvent))
         {
-          BigInteger dl = queuedEvent.getResult().divide(BigInteger.valueOf(baseTarget));
+          long dl = Long.divideUnsigned(queuedEvent.getResult(), roundState.getBaseTarget());
           LOG.debug("dl '" + dl + "' removed from queue");
 
-          runningChunkPartStartNonces.remove(queuedEvent.getChunkPartStartNonce());
-          queuedEvent = null;
+          roundState.finishChunkPart(queuedEvent.getChunkPartStartNonce());
         }
       }
 
-      runningChunkPartStartNonces.remove(event.getChunkPartStartNonce());
-
-      if(bestCommittedDeadline > event.getDeadline())
-      {
-        bestCommittedDeadline = event.getDeadline();
-      }
-      triggerFinishRoundEvent(event.getBlockNumber());
+      roundState.finishChunkPart(event.getChunkPartStartNonce());
+      roundState.updateBestCommittedDeadline(event.getDeadline());
+      triggerFinishRoundEvent(roundState);
     }
   }
 
   @EventListener
   public void handleMessage(NetworkResultErrorEvent event)
   {
-    if(isCurrentRound(event.getBlockNumber(), event.getGenerationSignature()))
+    RoundState roundState = state.get();
+    if(roundState != null && roundState.isCurrentRound(event.getBlockNumber(), event.getGenerationSignature()))
     {
       // reset lowest to lowestCommitted, as it does not commit successful.
-      lowest = lowestCommitted;
+      roundState.resetLowest();
       // in case that queued result is lower than committedLowest, commit queued again.
-      if(queuedEvent != null && lowestCommitted.compareTo(queuedEvent.getResult()) < 0)
+      CheckerResultEvent queuedEvent = roundState.getQueuedEvent();
+      if(queuedEvent != null && Long.compareUnsigned(roundState.getLowestCommitted(), queuedEvent.getResult()) < 0 && roundState.dequeue(queuedEvent))
       {
         LOG.info("commit queued dl ...");
         handleMessage(queuedEvent);
-
-        queuedEvent = null;
       }
 
-      runningChunkPartStartNonces.remove(event.getChunkPartStartNonce());
-      triggerFinishRoundEvent(event.getBlockNumber());
+      roundState.finishChunkPart(event.getChunkPartStartNonce());
+      triggerFinishRoundEvent(roundState);
     }
   }
 
   @EventListener
   public void handleMessage(NetworkQualityChangeEvent event)
   {
-    if(event.isSuccess())
+    RoundState roundState = state.get();
+    if(roundState != null)
     {
-      networkSuccessCount++;
-    }
-    else
-    {
-      networkFailCount++;
+      roundState.networkQualityChanged(event.isSuccess());
     }
   }
 
-  private void triggerFinishRoundEvent(long blockNumber)
+  private void triggerFinishRoundEvent(RoundState roundState)
   {
-    if(finishedBlockNumber < blockNumber)
+    if(!roundState.isFinished())
     {
-      if(runningChunkPartStartNonces.isEmpty())
+      if(roundState.getNumberOfRunningChunkParts() == 0)
       {
-        onRoundFinish(blockNumber);
+        if(roundState.finish())
+        {
+          onRoundFinish(roundState);
+        }
       }
-      // commit queued if exists ... and it is the only remaining in runningChunkPartStartNonces
-      else if(queuedEvent != null && runningChunkPartStartNonces.size() == 1 && runningChunkPartStartNonces.contains(queuedEvent.getChunkPartStartNonce()))
+      // commit queued if exists ... and it is the only remaining in runningChunkParts
+      else
       {
-        handleMessage(queuedEvent);
-        queuedEvent = null;
+        CheckerResultEvent queuedEvent = roundState.getQueuedEvent();
+        if(queuedEvent != null && roundState.getNumberOfRunningChunkParts() == 1 && roundState.isRunningChunkPart(queuedEvent.getChunkPartStartNonce())
+           && roundState.dequeue(queuedEvent))
+        {
+          handleMessage(queuedEvent);
+        }
       }
     }
   }
 
-  private void onRoundFinish(long blockNumber)
+  private void onRoundFinish(RoundState roundState)
   {
-    finishedBlockNumber = blockNumber;
-
     // remember finished genSig, to prevent mining it again
-    finishedLookup.add(Convert.toHexString(generationSignature));
+    finishedLookup.add(Convert.toHexString(roundState.getGenerationSignature()));
 
-    long elapsedRoundTime = new Date().getTime() - roundStartDate.getTime();
-    int networkQuality = getNetworkQuality();
+    long blockNumber = roundState.getBlockNumber();
+    long elapsedRoundTime = new Date().getTime() - roundState.getRoundStartDate().getTime();
+    int networkQuality = getNetworkQuality(roundState);
     timer.schedule(new TimerTask()
     {
       @Override
       public void run()
       {
-        publisher.publishEvent(new RoundFinishedEvent(blockNumber, bestCommittedDeadline, elapsedRoundTime, networkQuality));
+        publisher.publishEvent(new RoundFinishedEvent(blockNumber, roundState.getGenerationSignature(), roundState.getBestCommittedDeadline(), elapsedRoundTime,
+                                                     networkQuality));
       }
     }, 250); // fire deferred
 
     triggerCleanup();
   }
 
-  private int getNetworkQuality()
+  private static int getNetworkQuality(RoundState roundState)
   {
+    long networkSuccessCount = roundState != null ? roundState.getNetworkSuccessCount() : 0;
+    long networkFailCount = roundState != null ? roundState.getNetworkFailCount() : 0;
     BigDecimal factor = BigDecimal.ONE.divide(new BigDecimal(networkSuccessCount + networkFailCount + 1), MathContext.DECIMAL32);
     BigDecimal progress = factor.multiply(new BigDecimal(networkSuccessCount + 1));
     int percentage = (int) Math.ceil(progress.doubleValue() * 100);
@@ -384,10 +410,6 @@ public class Round
         {
           triggerCleanup();
         }
-        else
-        {
-          System.gc();
-        }
       }
     };
 
@@ -401,13 +423,7 @@ public class Round
     }
   }
 
-  private boolean isCurrentRound(long currentBlockNumber, byte[] currentGenerationSignature)
-  {
-    return blockNumber == currentBlockNumber
-           && Arrays.equals(generationSignature, currentGenerationSignature);
-  }
-
-  private static int calcScoopNumber(long blockNumber, byte[] generationSignature)
+  static int calcScoopNumber(long blockNumber, byte[] generationSignature)
   {
     if(blockNumber > 0 && generationSignature != null)
     {
@@ -424,14 +440,4 @@ public class Round
     }
     return 0;
   }
-
-  private static BigInteger calculateResult(byte[] scoops, byte[] generationSignature, int nonce)
-  {
-    Shabal256 md = new Shabal256();
-    md.reset();
-    md.update(generationSignature);
-    md.update(scoops, nonce * MiningPlot.SCOOP_SIZE, MiningPlot.SCOOP_SIZE);
-    byte[] hash = md.digest();
-    return new BigInteger(1, new byte[]{hash[7], hash[6], hash[5], hash[4], hash[3], hash[2], hash[1], hash[0]});
-  }
 }
@@ -0,0 +1,301 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.round;
+
+import burstcoin.jminer.core.checker.event.CheckerResultEvent;
+import burstcoin.jminer.core.reader.data.ChunkPartIndex;
+import burstcoin.jminer.core.reader.data.Plots;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * State of one round (block and generationSignature), replaced as a whole on new round.
+ *
+ * Mining info is final, results and running chunk parts are updated by CAS, so results, confirmations and errors
+ * can be handled concurrently without lock.
+ */
+class RoundState
+{
+  private static final long UNSIGNED_MAX = 0xFFFFFFFFFFFFFFFFL;
+
+  private final long blockNumber;
+  private final byte[] generationSignature;
+  private final long baseTarget;
+  private final long targetDeadline;
+  private final Plots plots;
+  private final Date roundStartDate;
+
+  // results are unsigned, compared via Long.compareUnsigned
+  private final AtomicLong lowest;
+  private final AtomicLong lowestCommitted;
+  private final AtomicLong bestCommittedDeadline;
+
+  // cache for next lowest
+  private final AtomicReference<CheckerResultEvent> queuedEvent;
+
+  // running chunk parts by position in chunkPartIndex, one bit per part
+  private final ChunkPartIndex chunkPartIndex;
+  private final AtomicLongArray runningChunkParts;
+  private final AtomicInteger numberOfRunningChunkParts;
+
+  private final AtomicBoolean finished;
+  private final AtomicLong networkSuccessCount;
+  private final AtomicLong networkFailCount;
+
+  RoundState(long blockNumber, byte[] generationSignature, long baseTarget, long targetDeadline, Plots plots)
+  {
+    this.blockNumber = blockNumber;
+    this.generationSignature = generationSignature;
+    this.baseTarget = baseTarget;
+    this.targetDeadline = targetDeadline;
+    this.plots = plots;
+    roundStartDate = new Date();
+
+    lowest = new AtomicLong(UNSIGNED_MAX);
+    lowestCommitted = new AtomicLong(UNSIGNED_MAX);
+    bestCommittedDeadline = new AtomicLong(Long.MAX_VALUE);
+    queuedEvent = new AtomicReference<>();
+
+    chunkPartIndex = plots.getChunkPartIndex();
+    int size = chunkPartIndex.size();
+    runningChunkParts = new AtomicLongArray((size + 63) >>> 6);
+    for(int word = 0; word < runningChunkParts.length(); word++)
+    {
+      int bits = Math.min(64, size - (word << 6));
+      runningChunkParts.set(word, bits == 64 ? -1L : (1L << bits) - 1);
+    }
+    numberOfRunningChunkParts = new AtomicInteger(size);
+
+    finished = new AtomicBoolean();
+    networkSuccessCount = new AtomicLong();
+    networkFailCount = new AtomicLong();
+  }
+
+  boolean isCurrentRound(long currentBlockNumber, byte[] currentGenerationSignature)
+  {
+    return blockNumber == currentBlockNumber && Arrays.equals(generationSignature, currentGenerationSignature);
+  }
+
+  /* sets result as lowest, if it is lower than lowest */
+  boolean updateLowest(long result)
+  {
+    long current;
+    do
+    {
+      current = lowest.get();
+      if(Long.compareUnsigned(result, current) >= 0)
+      {
+        return false;
+      }
+    }
+    while(!lowest.compareAndSet(current, result));
+    return true;
+  }
+
+  /* after failed commit, lowest is the lowest committed again */
+  void resetLowest()
+  {
+    lowest.set(lowestCommitted.get());
+  }
+
+  boolean updateLowestCommitted(long result)
+  {
+    long current;
+    do
+    {
+      current = lowestCommitted.get();
+      if(Long.compareUnsigned(result, current) >= 0)
+      {
+        return false;
+      }
+    }
+    while(!lowestCommitted.compareAndSet(current, result));
+    return true;
+  }
+
+  void updateBestCommittedDeadline(long deadline)
+  {
+    long current;
+    do
+    {
+      current = bestCommittedDeadline.get();
+      if(deadline >= current)
+      {
+        return;
+      }
+    }
+    while(!bestCommittedDeadline.compareAndSet(current, deadline));
+  }
+
+  /* queues event if it is lower than queued one, returns the replaced one or event itself if not queued */
+  CheckerResultEvent queue(CheckerResultEvent event)
+  {
+    CheckerResultEvent current;
+    do
+    {
+      current = queuedEvent.get();
+      if(current != null && Long.compareUnsigned(event.getResult(), current.getResult()) >= 0)
+      {
+        return event;
+      }
+    }
+    while(!queuedEvent.compareAndSet(current, event));
+    return current;
+  }
+
+  CheckerResultEvent getQueuedEvent()
+  {
+    return queuedEvent.get();
+  }
+
+  /* removes queued event, false if it was replaced or removed meanwhile */
+  boolean dequeue(CheckerResultEvent event)
+  {
+    return queuedEvent.compareAndSet(event, null);
+  }
+
+  /* marks chunk part as finished, returns false if it was not running */
+  boolean finishChunkPart(long chunkPartStartNonce)
+  {
+    // duplicate plot files: one of the adjacent parts with same start nonce is finished per call
+    for(int index = chunkPartIndex.indexOf(chunkPartStartNonce); isStartNonce(index, chunkPartStartNonce); index++)
+    {
+      if(finish(index))
+      {
+        numberOfRunningChunkParts.decrementAndGet();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean finish(int index)
+  {
+    int word = index >>> 6;
+    long mask = 1L << index;
+    long bits;
+    do
+    {
+      bits = runningChunkParts.get(word);
+      if((bits & mask) == 0)
+      {
+        return false;
+      }
+    }
+    while(!runningChunkParts.compareAndSet(word, bits, bits & ~mask));
+    return true;
+  }
+
+  boolean isRunningChunkPart(long chunkPartStartNonce)
+  {
+    for(int index = chunkPartIndex.indexOf(chunkPartStartNonce); isStartNonce(index, chunkPartStartNonce); index++)
+    {
+      if((runningChunkParts.get(index >>> 6) & (1L << index)) != 0)
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean isStartNonce(int index, long chunkPartStartNonce)
+  {
+    return index >= 0 && index < chunkPartIndex.size() && chunkPartIndex.getStartNonce(index) == chunkPartStartNonce;
+  }
+
+  int getNumberOfRunningChunkParts()
+  {
+    return numberOfRunningChunkParts.get();
+  }
+
+  /* true only for the first caller */
+  boolean finish()
+  {
+    return finished.compareAndSet(false, true);
+  }
+
+  boolean isFinished()
+  {
+    return finished.get();
+  }
+
+  void networkQualityChanged(boolean success)
+  {
+    (success ? networkSuccessCount : networkFailCount).incrementAndGet();
+  }
+
+  long getNetworkSuccessCount()
+  {
+    return networkSuccessCount.get();
+  }
+
+  long getNetworkFailCount()
+  {
+    return networkFailCount.get();
+  }
+
+  long getBlockNumber()
+  {
+    return blockNumber;
+  }
+
+  byte[] getGenerationSignature()
+  {
+    return generationSignature;
+  }
+
+  long getBaseTarget()
+  {
+    return baseTarget;
+  }
+
+  long getTargetDeadline()
+  {
+    return targetDeadline;
+  }
+
+  Plots getPlots()
+  {
+    return plots;
+  }
+
+  Date getRoundStartDate()
+  {
+    return roundStartDate;
+  }
+
+  long getLowestCommitted()
+  {
+    return lowestCommitted.get();
+  }
+
+  long getBestCommittedDeadline()
+  {
+    return bestCommittedDeadline.get();
+  }
+}
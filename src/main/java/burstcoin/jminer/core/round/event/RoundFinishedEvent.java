@@ -31,15 +31,17 @@ public class RoundFinishedEvent
   extends ApplicationEvent
 {
   private long blockNumber;
+  private byte[] generationSignature;
   private long bestCommittedDeadline;
   private long roundTime;
 
   private int networkQuality;
 
-  public RoundFinishedEvent(long blockNumber, long bestCommittedDeadline, long roundTime, int networkQuality)
+  public RoundFinishedEvent(long blockNumber, byte[] generationSignature, long bestCommittedDeadline, long roundTime, int networkQuality)
   {
     super(blockNumber);
     this.blockNumber = blockNumber;
+    this.generationSignature = generationSignature;
     this.bestCommittedDeadline = bestCommittedDeadline;
     this.roundTime = roundTime;
     this.networkQuality = networkQuality;
@@ -50,6 +52,11 @@ public class RoundFinishedEvent
     return blockNumber;
   }
 
+  public byte[] getGenerationSignature()
+  {
+    return generationSignature;
+  }
+
   public long getBestCommittedDeadline()
   {
     return bestCommittedDeadline;
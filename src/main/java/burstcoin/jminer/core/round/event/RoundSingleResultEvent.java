@@ -24,7 +24,6 @@ package burstcoin.jminer.core.round.event;
 
 import org.springframework.context.ApplicationEvent;
 
-import java.math.BigInteger;
 
 /**
  * fired on new best deadline below targetDeadline (not confirmed)
@@ -33,8 +32,9 @@ public class RoundSingleResultEvent
   extends ApplicationEvent
 {
   private long blockNumber;
-  private BigInteger nonce;
-  private BigInteger chunkPartStartNonce;
+  private byte[] generationSignature;
+  private long nonce;
+  private long chunkPartStartNonce;
 
   private long calculatedDeadline;
   private boolean poolMining;
@@ -43,17 +43,20 @@ public class RoundSingleResultEvent
    * Instantiates a new Round single result event.
    *
    * @param blockNumber the block number
+   * @param generationSignature the generation signature
    * @param nonce the nonce
    * @param chunkPartStartNonce the chunk part start nonce
    * @param calculatedDeadline the calculated deadline
    * @param poolMining the pool mining
    */
-  public RoundSingleResultEvent(long blockNumber, BigInteger nonce, BigInteger chunkPartStartNonce, long calculatedDeadline, boolean poolMining)
+  public RoundSingleResultEvent(long blockNumber, byte[] generationSignature, long nonce, long chunkPartStartNonce, long calculatedDeadline,
+                                boolean poolMining)
   {
     super(blockNumber);
 
     this.nonce = nonce;
     this.blockNumber = blockNumber;
+    this.generationSignature = generationSignature;
     this.chunkPartStartNonce = chunkPartStartNonce;
     this.calculatedDeadline = calculatedDeadline;
     this.poolMining = poolMining;
@@ -69,12 +72,22 @@ public class RoundSingleResultEvent
     return blockNumber;
   }
 
+  /**
+   * Gets generation signature.
+   *
+   * @return the generation signature
+   */
+  public byte[] getGenerationSignature()
+  {
+    return generationSignature;
+  }
+
   /**
    * Gets nonce.
    *
    * @return the nonce
    */
-  public BigInteger getNonce()
+  public long getNonce()
   {
     return nonce;
   }
@@ -84,7 +97,7 @@ public class RoundSingleResultEvent
    *
    * @return the chunk part start nonce
    */
-  public BigInteger getChunkPartStartNonce()
+  public long getChunkPartStartNonce()
   {
     return chunkPartStartNonce;
   }
@@ -24,7 +24,6 @@ package burstcoin.jminer.core.round.event;
 
 import org.springframework.context.ApplicationEvent;
 
-import java.math.BigInteger;
 
 /**
  * fired if deadline is skipped cause of targetDeadline
@@ -33,8 +32,8 @@ public class RoundSingleResultSkippedEvent
   extends ApplicationEvent
 {
   private long blockNumber;
-  private BigInteger nonce;
-  private BigInteger chunkPartStartNonce;
+  private long nonce;
+  private long chunkPartStartNonce;
 
   private long calculatedDeadline;
   private long targetDeadline;
@@ -50,7 +49,7 @@ public class RoundSingleResultSkippedEvent
    * @param targetDeadline the target deadline
    * @param poolMining the pool mining
    */
-  public RoundSingleResultSkippedEvent(long blockNumber, BigInteger nonce, BigInteger chunkPartStartNonce, long calculatedDeadline, long targetDeadline,
+  public RoundSingleResultSkippedEvent(long blockNumber, long nonce, long chunkPartStartNonce, long calculatedDeadline, long targetDeadline,
                                        boolean poolMining)
   {
     super(blockNumber);
@@ -79,7 +78,7 @@ public class RoundSingleResultSkippedEvent
    *
    * @return the nonce
    */
-  public BigInteger getNonce()
+  public long getNonce()
   {
     return nonce;
   }
@@ -89,7 +88,7 @@ public class RoundSingleResultSkippedEvent
    *
    * @return the chunk part start nonce
    */
-  public BigInteger getChunkPartStartNonce()
+  public long getChunkPartStartNonce()
   {
     return chunkPartStartNonce;
   }
@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.trace;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Single event of chrome trace-event format, e.g. complete ('X'), nestable async begin/end ('b'/'e') or metadata ('M').
+ */
+final class TraceEvent
+{
+  private final char phase;
+  private final String name;
+  private final String category;
+  private final long time;
+  private final long duration;
+  private final long track;
+  // async events of same id are shown on one track
+  private final String id;
+  // json object members, or null
+  private final String args;
+
+  TraceEvent(char phase, String name, String category, long time, long duration, long track, String id, String args)
+  {
+    this.phase = phase;
+    this.name = name;
+    this.category = category;
+    this.time = time;
+    this.duration = duration;
+    this.track = track;
+    this.id = id;
+    this.args = args;
+  }
+
+  /* writes event as json object, times relative to origin in microseconds */
+  void write(Writer out, long origin)
+    throws IOException
+  {
+    out.write("{\"name\":\"");
+    out.write(escape(name));
+    out.write("\",\"ph\":\"");
+    out.write(phase);
+    out.write('"');
+    if(category != null)
+    {
+      out.write(",\"cat\":\"");
+      out.write(category);
+      out.write('"');
+    }
+    if(phase != 'M')
+    {
+      out.write(",\"ts\":");
+      out.write(micros(time - origin));
+    }
+    if(phase == 'X')
+    {
+      out.write(",\"dur\":");
+      out.write(micros(duration));
+    }
+    out.write(",\"pid\":1,\"tid\":");
+    out.write(Long.toString(track));
+    if(id != null)
+    {
+      out.write(",\"id\":\"");
+      out.write(id);
+      out.write('"');
+    }
+    if(args != null)
+    {
+      out.write(",\"args\":{");
+      out.write(args);
+      out.write('}');
+    }
+    out.write('}');
+  }
+
+  private static String micros(long nanos)
+  {
+    // microseconds with nanosecond fraction, without exponent
+    return (nanos / 1000) + "." + String.format("%03d", Math.abs(nanos % 1000));
+  }
+
+  static String escape(String value)
+  {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"");
+  }
+}
@@ -0,0 +1,270 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 by luxe - https://github.com/de-luxe - BURST-LUXE-RED2-G6JW-H4HG5
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package burstcoin.jminer.core.trace;
+
+import burstcoin.jminer.core.CoreProperties;
+import burstcoin.jminer.core.checker.util.RingBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes timelines of chunk parts and openCL queues to 'traceFile' in chrome trace-event format,
+ * for chrome://tracing, perfetto or flamegraph tools.
+ *
+ * Every stage of a chunk part (read, queue, check, round, submit) is a nestable async span with id 'block:startNonce',
+ * so each part gets its own track. Events are handed over to a writer thread by a ring buffer, events are dropped
+ * instead of blocking, if writer can not keep up. Without 'traceFile' all methods return immediately.
+ */
+@Component
+@Scope("singleton")
+public class Tracer
+{
+  private static final Logger LOG = LoggerFactory.getLogger(Tracer.class);
+
+  private static final String PART_CATEGORY = "part";
+  private static final int BUFFER_SIZE = 1 << 16;
+  // writer blocks while no events, wakes up to see if stopped
+  private static final long WRITER_IDLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+  // tracks not bound to a java thread, e.g. openCL queues
+  private static final long FIRST_TRACK = 1L << 32;
+
+  private final boolean enabled;
+  private final long origin;
+  private final RingBuffer<TraceEvent> events;
+  private final Map<Long, Boolean> namedThreads;
+  private final AtomicLong nextTrack;
+  private final LongAdder dropped;
+
+  private Thread writer;
+  private volatile boolean stopped;
+
+  public Tracer()
+  {
+    enabled = !StringUtils.isEmpty(CoreProperties.getTraceFile());
+    origin = System.nanoTime();
+    events = enabled ? new RingBuffer<>(BUFFER_SIZE) : null;
+    namedThreads = new ConcurrentHashMap<>();
+    nextTrack = new AtomicLong(FIRST_TRACK);
+    dropped = new LongAdder();
+  }
+
+  @PostConstruct
+  protected void postConstruct()
+  {
+    if(enabled)
+    {
+      Path path = Paths.get(CoreProperties.getTraceFile());
+      Writer out;
+      try
+      {
+        if(path.getParent() != null)
+        {
+          Files.createDirectories(path.getParent());
+        }
+        out = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+      }
+      catch(IOException e)
+      {
+        LOG.error("tracing disabled, could not write 'traceFile' " + path + ": " + e.getMessage());
+        stopped = true;
+        return;
+      }
+
+      add(new TraceEvent('M', "process_name", null, 0, 0, 0, null, "\"name\":\"jminer\""));
+      writer = new Thread(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          write(out);
+        }
+      }, "tracer");
+      writer.setDaemon(true);
+      writer.start();
+      LOG.info("tracing chunk parts to: " + path.toAbsolutePath());
+    }
+  }
+
+  @PreDestroy
+  protected void preDestroy()
+  {
+    if(writer != null)
+    {
+      stopped = true;
+      try
+      {
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+      }
+      catch(InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+      if(dropped.sum() > 0)
+      {
+        LOG.warn("trace incomplete, dropped '" + dropped.sum() + "' events, writer could not keep up.");
+      }
+    }
+  }
+
+  public boolean isEnabled()
+  {
+    return enabled && !stopped;
+  }
+
+  /* start time of a span, 0 if tracing is disabled */
+  public long now()
+  {
+    return isEnabled() ? System.nanoTime() : 0;
+  }
+
+  /* stage of chunk part from startTime until now */
+  public void part(String name, long blockNumber, long chunkPartStartNonce, long startTime)
+  {
+    if(isEnabled())
+    {
+      part(name, blockNumber, chunkPartStartNonce, startTime, System.nanoTime());
+    }
+  }
+
+  /* stage of chunk part, startTime 0 means not traced */
+  public void part(String name, long blockNumber, long chunkPartStartNonce, long startTime, long endTime)
+  {
+    if(isEnabled() && startTime != 0)
+    {
+      long track = currentTrack();
+      String id = blockNumber + ":" + chunkPartStartNonce;
+      add(new TraceEvent('b', name, PART_CATEGORY, startTime, 0, track, id,
+                         "\"block\":" + blockNumber + ",\"chunkPartStartNonce\":" + chunkPartStartNonce));
+      add(new TraceEvent('e', name, PART_CATEGORY, endTime, 0, track, id, null));
+    }
+  }
+
+  /* work of current thread from startTime until now */
+  public void span(String name, String category, long startTime)
+  {
+    if(isEnabled() && startTime != 0)
+    {
+      add(new TraceEvent('X', name, category, startTime, System.nanoTime() - startTime, currentTrack(), null, null));
+    }
+  }
+
+  /* creates a named track for work not bound to a java thread, e.g. an openCL queue */
+  public long track(String name)
+  {
+    long track = nextTrack.getAndIncrement();
+    if(isEnabled())
+    {
+      add(threadName(track, name));
+    }
+    return track;
+  }
+
+  /* work on track from startTime until endTime */
+  public void span(long track, String name, String category, long startTime, long endTime)
+  {
+    if(isEnabled())
+    {
+      add(new TraceEvent('X', name, category, startTime, endTime - startTime, track, null, null));
+    }
+  }
+
+  private long currentTrack()
+  {
+    Thread thread = Thread.currentThread();
+    long track = thread.getId();
+    if(namedThreads.putIfAbsent(track, Boolean.TRUE) == null)
+    {
+      add(threadName(track, thread.getName()));
+    }
+    return track;
+  }
+
+  private static TraceEvent threadName(long track, String name)
+  {
+    return new TraceEvent('M', "thread_name", null, 0, 0, track, null, "\"name\":\"" + TraceEvent.escape(name) + "\"");
+  }
+
+  private void add(TraceEvent event)
+  {
+    if(!events.offer(event))
+    {
+      dropped.increment();
+    }
+  }
+
+  // streams json array, a missing ']' on crash is tolerated by trace viewers
+  private void write(Writer out)
+  {
+    try(Writer writer = out)
+    {
+      writer.write('[');
+      boolean first = true;
+      while(true)
+      {
+        TraceEvent event = events.poll();
+        if(event == null)
+        {
+          writer.flush();
+          if(stopped)
+          {
+            break;
+          }
+          event = events.poll(WRITER_IDLE_NANOS, TimeUnit.NANOSECONDS);
+        }
+        if(event != null)
+        {
+          writer.write(first ? "\n" : ",\n");
+          event.write(writer, origin);
+          first = false;
+        }
+      }
+      writer.write("\n]\n");
+    }
+    catch(IOException e)
+    {
+      LOG.error("tracing stopped, could not write 'traceFile': " + e.getMessage());
+      stopped = true;
+    }
+    catch(InterruptedException e)
+    {
+      stopped = true;
+      Thread.currentThread().interrupt();
+    }
+  }
+}